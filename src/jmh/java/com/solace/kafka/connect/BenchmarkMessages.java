@@ -0,0 +1,87 @@
+package com.solace.kafka.connect;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.solacesystems.jcsmp.BytesMessage;
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.MapMessage;
+import com.solacesystems.jcsmp.SDTException;
+import com.solacesystems.jcsmp.SDTMap;
+import com.solacesystems.jcsmp.TextMessage;
+import com.solacesystems.jcsmp.impl.JCSMPXMLMessage;
+import com.solacesystems.jcsmp.impl.MessageImpl;
+
+/**
+ * Builds messages which look like they were received from a router.
+ *
+ * Unlike TestMessages this reaches into the API's implementation classes to set the received
+ * destination and timestamp, so the benchmarks measure the real getters rather than a proxy.
+ */
+public class BenchmarkMessages {
+
+	public enum Type {
+		TEXT, BYTES, MAP
+	}
+
+	private static final Random random = new Random(42);
+
+	/**
+	 * @param payloadSize approximate payload size in bytes
+	 * @param userProperties number of user properties to add
+	 */
+	public static BytesXMLMessage create(Type type, String destination, int payloadSize, int userProperties) throws SDTException {
+		BytesXMLMessage msg;
+		switch (type) {
+		case TEXT:
+			char[] text = new char[payloadSize];
+			Arrays.fill(text, 'x');
+			TextMessage tm = JCSMPFactory.onlyInstance().createMessage(TextMessage.class);
+			tm.setText(new String(text));
+			msg = tm;
+			break;
+		case BYTES:
+			byte[] data = new byte[payloadSize];
+			random.nextBytes(data);
+			BytesMessage bm = JCSMPFactory.onlyInstance().createMessage(BytesMessage.class);
+			bm.setData(data);
+			msg = bm;
+			break;
+		default:
+			// fields of about 16 bytes each
+			SDTMap map = JCSMPFactory.onlyInstance().createMap();
+			for (int i = 0; i*16 < payloadSize; i++) {
+				switch (i % 3) {
+				case 0:
+					map.putString("field"+i, "value"+i);
+					break;
+				case 1:
+					map.putLong("field"+i, random.nextLong());
+					break;
+				default:
+					map.putDouble("field"+i, random.nextDouble());
+				}
+			}
+			MapMessage mm = JCSMPFactory.onlyInstance().createMessage(MapMessage.class);
+			mm.setMap(map);
+			msg = mm;
+		}
+
+		if (userProperties > 0) {
+			SDTMap properties = JCSMPFactory.onlyInstance().createMap();
+			for (int i = 0; i < userProperties; i++) {
+				properties.putString("property"+i, "value"+i);
+			}
+			msg.setProperties(properties);
+		}
+		msg.setSenderTimestamp(System.currentTimeMillis());
+		msg.setSequenceNumber(1);
+		msg.setSenderId("benchmark");
+
+		JCSMPXMLMessage received = (JCSMPXMLMessage) (msg instanceof MessageImpl ? ((MessageImpl) msg).getWrappedMessage() : msg);
+		received.setDestinationReceived(JCSMPFactory.onlyInstance().createTopic(destination));
+		received.setReceiveTimestamp(System.currentTimeMillis());
+		return msg;
+	}
+}
@@ -0,0 +1,65 @@
+package com.solace.kafka.connect;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+
+/**
+ * Throughput of SolaceConverter.convertMessage() for the different message types and record modes.
+ * Run with -prof gc to see the allocation rate per converted message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolaceConverterBenchmark {
+
+	@Param({"TEXT", "BYTES", "MAP"})
+	public BenchmarkMessages.Type messageType;
+
+	@Param({"100", "100000"})
+	public int payloadSize;
+
+	@Param({"0", "5"})
+	public int userProperties;
+
+	@Param({"struct", "raw"})
+	public String recordMode;
+
+	private SolaceConverter converter;
+	private BytesXMLMessage message;
+
+	@Setup
+	public void setup() throws Exception {
+		Map<String, String> config = new HashMap<String, String>();
+		config.put(SolaceConnectorConstants.SOLACE_TOPIC, "benchmark/>");
+		config.put(SolaceConnectorConstants.KAFKA_TOPIC, "benchmark");
+		config.put(SolaceConnectorConstants.RECORD_MODE, recordMode);
+		SolaceSourceTask task = new SolaceSourceTask();
+		task.setParameters(config);
+		converter = new SolaceConverter(task);
+		message = BenchmarkMessages.create(messageType, "benchmark/prices/eur", payloadSize, userProperties);
+	}
+
+	@Benchmark
+	public SourceRecord convertMessage() {
+		return converter.convertMessage(message);
+	}
+}
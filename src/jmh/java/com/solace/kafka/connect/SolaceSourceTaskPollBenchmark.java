@@ -0,0 +1,177 @@
+package com.solace.kafka.connect;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.XMLMessageConsumer;
+import com.solacesystems.jcsmp.XMLMessageListener;
+
+/**
+ * Cost of one SolaceSourceTask.poll() returning a full batch, without a router.
+ *
+ * In sync mode the messages come from an in-memory consumer which always has a message ready, in
+ * async and low_latency mode the benchmark pushes a batch through onReceive() as the API's dispatcher
+ * would and then polls it. Either way the time is the task's own overhead per batch, including conversion,
+ * which in low_latency mode happens inside onReceive().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolaceSourceTaskPollBenchmark {
+
+	@Param({"sync", "async", "low_latency"})
+	public String mode;
+
+	private boolean async;
+
+	@Param({"100", "1000"})
+	public int batchSize;
+
+	@Param({"TEXT", "MAP"})
+	public BenchmarkMessages.Type messageType;
+
+	private SolaceSourceTask task;
+	private BytesXMLMessage[] messages;
+
+	/**
+	 * A consumer which hands out the same few messages over and over
+	 */
+	static class InMemoryConsumer implements XMLMessageConsumer {
+		private final BytesXMLMessage[] messages;
+		private int next;
+
+		InMemoryConsumer(BytesXMLMessage[] messages) {
+			this.messages = messages;
+		}
+
+		@Override
+		public BytesXMLMessage receive(int timeoutInMillis) {
+			return receive();
+		}
+
+		@Override
+		public BytesXMLMessage receive() {
+			BytesXMLMessage msg = messages[next];
+			next = (next + 1) % messages.length;
+			return msg;
+		}
+
+		@Override
+		public BytesXMLMessage receiveNoWait() {
+			return receive();
+		}
+
+		@Override
+		public void closeSync() {
+		}
+
+		@Override
+		public void closeSync(boolean b) {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public void startSync() {
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void stop() {
+		}
+
+		@Override
+		public void stopSync() {
+		}
+
+		@Override
+		public boolean stopSyncStart() {
+			return true;
+		}
+
+		@Override
+		public void stopSyncWait() {
+		}
+
+		@Override
+		@Deprecated
+		public void setMessageListener(XMLMessageListener listener) {
+		}
+
+		@Override
+		public XMLMessageListener getMessageListener() {
+			return null;
+		}
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		Map<String, String> config = new HashMap<String, String>();
+		config.put(SolaceConnectorConstants.SOLACE_TOPIC, "benchmark/>");
+		config.put(SolaceConnectorConstants.KAFKA_TOPIC, "benchmark");
+		config.put(SolaceConnectorConstants.POLL_BATCH_SIZE, Integer.toString(batchSize));
+		async = !mode.equals("sync");
+		config.put(SolaceConnectorConstants.POLL_ASYNC, Boolean.toString(mode.equals("async")));
+		config.put(SolaceConnectorConstants.POLL_LOW_LATENCY, Boolean.toString(mode.equals("low_latency")));
+		config.put(SolaceConnectorConstants.POLL_ASYNC_BUFFER_SIZE, Integer.toString(batchSize));
+		task = new SolaceSourceTask();
+		task.setParameters(config);
+		task.converter = new SolaceConverter(task);
+		task.metrics = new SolaceSourceTaskMetrics("benchmark", "benchmark_0", batchSize);
+
+		messages = new BytesXMLMessage[16];
+		for (int i = 0; i < messages.length; i++) {
+			messages[i] = BenchmarkMessages.create(messageType, "benchmark/prices/"+i, 200, 2);
+		}
+		if (mode.equals("low_latency")) {
+			task.recordBatches = new RecordBatchBuffer(batchSize, 0);
+		}
+		else if (async) {
+			task.messageBuffer = new MessageRingBuffer<BytesXMLMessage>(batchSize);
+		}
+		else {
+			task.consumer = new InMemoryConsumer(messages);
+		}
+		task.consuming = true;
+	}
+
+	@TearDown
+	public void tearDown() {
+		task.metrics.close();
+	}
+
+	@Benchmark
+	public List<SourceRecord> poll() throws InterruptedException {
+		if (async) {
+			for (int i = 0; i < batchSize; i++) {
+				task.onReceive(messages[i % messages.length]);
+			}
+		}
+		return task.poll();
+	}
+}
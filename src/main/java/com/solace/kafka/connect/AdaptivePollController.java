@@ -0,0 +1,146 @@
+package com.solace.kafka.connect;
+
+/**
+ * Chooses the batch size and short poll wait for the next task.poll() from what the previous polls saw.
+ *
+ * The batch size follows the number of messages expected to arrive in one poll cycle: the smoothed
+ * arrival rate times the smoothed time from one poll to the next, with headroom. The cycle includes the
+ * gap between poll() returning and being called again, which is where Kafka Connect converts the records
+ * and hands them to the producer. When the producer pushes back that gap grows, more messages queue up in
+ * the Solace API while it waits, and the batch size grows with it so the task drains them in fewer polls.
+ * A poll which fills its batch doubles the batch size, since the arrival rate it measures is capped by the batch,
+ * and a poll which times out empty at least halves it, since the average rate is slow to forget a burst.
+ *
+ * The short poll wait is twice the expected time between two messages while that fits below the maximum.
+ * When messages arrive further apart than that, waiting is unlikely to extend the batch, so poll() uses the
+ * minimum wait and hands over what it has.
+ *
+ * Only used from the polling thread.
+ */
+public class AdaptivePollController {
+
+	/**
+	 * Weight of the latest poll in the moving averages
+	 */
+	static final double ALPHA = 0.3;
+
+	/**
+	 * How many cycles' worth of messages the batch can hold
+	 */
+	static final double HEADROOM = 2.0;
+
+	private final int minBatchSize;
+	private final int maxBatchSize;
+	private final int minShortInterval;
+	private final int maxShortInterval;
+
+	private int batchSize;
+	private int shortInterval;
+
+	private long pollStarted;
+	private long lastPollCompleted;
+	// messages per second
+	private double arrivalRate = -1;
+	private double cycleNanos;
+	private double gapNanos;
+
+	public AdaptivePollController(int minBatchSize, int maxBatchSize, int initialBatchSize,
+			int minShortInterval, int maxShortInterval, int initialShortInterval) {
+		if (minBatchSize > maxBatchSize) {
+			throw new IllegalArgumentException("Minimum batch size "+minBatchSize+" is larger than the maximum "+maxBatchSize);
+		}
+		if (minShortInterval > maxShortInterval) {
+			throw new IllegalArgumentException("Minimum short interval "+minShortInterval+" is larger than the maximum "+maxShortInterval);
+		}
+		this.minBatchSize = minBatchSize;
+		this.maxBatchSize = maxBatchSize;
+		this.minShortInterval = minShortInterval;
+		this.maxShortInterval = maxShortInterval;
+		this.batchSize = clamp(initialBatchSize, minBatchSize, maxBatchSize);
+		this.shortInterval = clamp(initialShortInterval, minShortInterval, maxShortInterval);
+	}
+
+	/**
+	 * @param now System.nanoTime() on entering poll()
+	 */
+	public void pollStarted(long now) {
+		pollStarted = now;
+	}
+
+	/**
+	 * Update the batch size and short interval from the outcome of a poll.
+	 * @param records number of records the poll returned
+	 * @param now System.nanoTime() on leaving poll()
+	 */
+	public void pollCompleted(int records, long now) {
+		if (lastPollCompleted == 0) {
+			// no gap to measure before the first poll
+			lastPollCompleted = pollStarted;
+		}
+		long cycle = Math.max(now - lastPollCompleted, 1);
+		long gap = Math.max(pollStarted - lastPollCompleted, 0);
+		lastPollCompleted = now;
+
+		double rate = records * 1e9 / cycle;
+		if (arrivalRate < 0) {
+			arrivalRate = rate;
+			cycleNanos = cycle;
+			gapNanos = gap;
+		}
+		else {
+			arrivalRate += ALPHA * (rate - arrivalRate);
+			cycleNanos += ALPHA * (cycle - cycleNanos);
+			gapNanos += ALPHA * (gap - gapNanos);
+		}
+
+		long target = (long) Math.ceil(arrivalRate * cycleNanos / 1e9 * HEADROOM);
+		if (records >= batchSize) {
+			target = Math.max(target, 2L * batchSize);
+		}
+		else if (records == 0) {
+			target = Math.min(target, batchSize / 2);
+		}
+		batchSize = (int) clamp(target, minBatchSize, maxBatchSize);
+
+		double waitMillis = arrivalRate > 0 ? 2000.0 / arrivalRate : Double.MAX_VALUE;
+		if (waitMillis > maxShortInterval) {
+			shortInterval = minShortInterval;
+		}
+		else {
+			shortInterval = clamp((int) Math.ceil(waitMillis), minShortInterval, maxShortInterval);
+		}
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return milliseconds to wait for each further message once a poll has received one
+	 */
+	public int getShortInterval() {
+		return shortInterval;
+	}
+
+	/**
+	 * @return smoothed messages per second
+	 */
+	public double getArrivalRate() {
+		return Math.max(arrivalRate, 0);
+	}
+
+	/**
+	 * @return smoothed milliseconds between poll() returning and the next call, the time Kafka Connect spends delivering the records
+	 */
+	public double getPollGapMillis() {
+		return gapNanos / 1e6;
+	}
+
+	private static int clamp(int value, int min, int max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	private static long clamp(long value, int min, int max) {
+		return Math.max(min, Math.min(max, value));
+	}
+}
@@ -0,0 +1,220 @@
+package com.solace.kafka.connect;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.DeliveryMode;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.MapMessage;
+import com.solacesystems.jcsmp.SDTException;
+import com.solacesystems.jcsmp.SDTMap;
+
+/**
+ * How far the active member of an HA group has got: for each sender the highest sequence number up to which
+ * every message it passed to Kafka has been committed. Records on different Kafka partitions are committed
+ * out of order, so a message may be committed while earlier ones are still in flight. The checkpoint then
+ * stays below the earliest message in flight, which is why the task reports each record it hands to Kafka
+ * with {@link #polled(String, Long)}. This relies on a sender's messages being polled in sequence order, as
+ * they are when they arrive on one session. The active member publishes it to the HA sentinel queue, a last value queue, and
+ * the member which takes over reads it back to drop the messages which were already written.
+ *
+ * Only messages carrying a sequence number can be recognised, see BytesXMLMessage.setSequenceNumber().
+ *
+ * The checkpoint is sent as a MapMessage of sender id to sequence number, with the instance and
+ * creation time as user properties. Records are committed on the Kafka producer's thread while the
+ * checkpoint is published from the polling thread, so updates are lock-free.
+ */
+public class HACheckpoint {
+
+	public static final String PROPERTY_INSTANCE = "instance";
+	public static final String PROPERTY_TIMESTAMP = "timestamp";
+
+	/**
+	 * Key for messages without a sender id
+	 */
+	static final String NO_SENDER = "";
+
+	private final ConcurrentHashMap<String, Progress> sequences = new ConcurrentHashMap<String, Progress>();
+	private volatile boolean dirty;
+	private long timestamp;
+	private String instance;
+
+	public HACheckpoint() {
+	}
+
+	/**
+	 * Progress of one sender
+	 */
+	private static final class Progress {
+		private final AtomicLong committed = new AtomicLong(Long.MIN_VALUE);
+		private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<Long>();
+
+		void committed(long sequenceNumber) {
+			inFlight.remove(sequenceNumber);
+			long current = committed.get();
+			while (current < sequenceNumber && !committed.compareAndSet(current, sequenceNumber)) {
+				current = committed.get();
+			}
+		}
+
+		/**
+		 * @return the highest sequence number up to which all polled messages are committed, Long.MIN_VALUE if there is none
+		 */
+		long watermark() {
+			// read before the messages in flight: anything polled before a committed message is then still in flight or committed
+			long highest = committed.get();
+			Long earliest = inFlight.ceiling(Long.MIN_VALUE);
+			return earliest == null ? highest : Math.min(highest, earliest - 1);
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(watermark());
+		}
+	}
+
+	private Progress progress(String senderId) {
+		String key = senderId == null ? NO_SENDER : senderId;
+		Progress progress = sequences.get(key);
+		if (progress == null) {
+			Progress created = new Progress();
+			progress = sequences.putIfAbsent(key, created);
+			if (progress == null) {
+				progress = created;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Record that the message from the sender with this sequence number has been handed to Kafka.
+	 * Only called by the polling thread, in the order the messages were received.
+	 */
+	public void polled(String senderId, Long sequenceNumber) {
+		if (sequenceNumber == null) {
+			return;
+		}
+		progress(senderId).inFlight.add(sequenceNumber);
+	}
+
+	/**
+	 * Record that the message from the sender with this sequence number has been written to Kafka.
+	 */
+	public void committed(String senderId, Long sequenceNumber) {
+		if (sequenceNumber == null) {
+			return;
+		}
+		progress(senderId).committed(sequenceNumber);
+		dirty = true;
+	}
+
+	/**
+	 * Take over the progress recorded in another checkpoint.
+	 */
+	public void merge(HACheckpoint other) {
+		for (Map.Entry<String, Progress> entry : other.sequences.entrySet()) {
+			long watermark = entry.getValue().watermark();
+			if (watermark != Long.MIN_VALUE) {
+				committed(entry.getKey(), watermark);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the message was already written to Kafka according to this checkpoint
+	 */
+	public boolean covers(BytesXMLMessage msg) {
+		Long sequenceNumber = msg.getSequenceNumber();
+		if (sequenceNumber == null) {
+			return false;
+		}
+		Progress progress = sequences.get(msg.getSenderId() == null ? NO_SENDER : msg.getSenderId());
+		return progress != null && sequenceNumber <= progress.watermark();
+	}
+
+	/**
+	 * @return true if anything has been committed since the last call to toMessage()
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	public boolean isEmpty() {
+		for (Progress progress : sequences.values()) {
+			if (progress.watermark() != Long.MIN_VALUE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return System.currentTimeMillis() when a received checkpoint was created, 0 for a local one
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return the instance which published a received checkpoint, null for a local one
+	 */
+	public String getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Create the message to publish, and clear the dirty flag.
+	 */
+	public BytesXMLMessage toMessage(String instanceName) throws SDTException {
+		dirty = false;
+		SDTMap map = JCSMPFactory.onlyInstance().createMap();
+		for (Map.Entry<String, Progress> entry : sequences.entrySet()) {
+			long watermark = entry.getValue().watermark();
+			if (watermark != Long.MIN_VALUE) {
+				map.putLong(entry.getKey(), watermark);
+			}
+		}
+		SDTMap properties = JCSMPFactory.onlyInstance().createMap();
+		properties.putString(PROPERTY_INSTANCE, instanceName);
+		properties.putLong(PROPERTY_TIMESTAMP, System.currentTimeMillis());
+
+		MapMessage msg = JCSMPFactory.onlyInstance().createMessage(MapMessage.class);
+		msg.setMap(map);
+		msg.setProperties(properties);
+		msg.setDeliveryMode(DeliveryMode.PERSISTENT);
+		return msg;
+	}
+
+	/**
+	 * @return the checkpoint carried by a message created by toMessage()
+	 * @throws IllegalArgumentException if the message is not a checkpoint
+	 */
+	public static HACheckpoint fromMessage(BytesXMLMessage msg) {
+		if (!(msg instanceof MapMessage)) {
+			throw new IllegalArgumentException("Not an HA checkpoint: "+msg.getClass().getName());
+		}
+		HACheckpoint checkpoint = new HACheckpoint();
+		try {
+			SDTMap map = ((MapMessage) msg).getMap();
+			for (String sender : map.keySet()) {
+				checkpoint.progress(sender).committed(map.getLong(sender));
+			}
+			SDTMap properties = msg.getProperties();
+			if (properties != null) {
+				checkpoint.instance = properties.containsKey(PROPERTY_INSTANCE) ? properties.getString(PROPERTY_INSTANCE) : null;
+				checkpoint.timestamp = properties.containsKey(PROPERTY_TIMESTAMP) ? properties.getLong(PROPERTY_TIMESTAMP) : 0;
+			}
+		} catch (SDTException e) {
+			throw new IllegalArgumentException("Invalid HA checkpoint", e);
+		}
+		return checkpoint;
+	}
+
+	@Override
+	public String toString() {
+		return "HACheckpoint"+sequences;
+	}
+}
@@ -1,6 +1,7 @@
 package com.solace.kafka.connect;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,8 +10,21 @@ import com.solace.solft.FTEventListener;
 import com.solace.solft.FTMgr;
 import com.solacesystems.jcsmp.BytesXMLMessage;
 import com.solacesystems.jcsmp.JCSMPException;
+import com.solacesystems.jcsmp.JCSMPFactory;
 import com.solacesystems.jcsmp.JCSMPSession;
+import com.solacesystems.jcsmp.JCSMPStreamingPublishEventHandler;
+import com.solacesystems.jcsmp.XMLMessageProducer;
 
+/**
+ * Tracks whether the task is the active member of its HA group, using an exclusive queue as the sentinel.
+ *
+ * With a checkpoint topic the sentinel queue is also a last value queue subscribed to that topic, so the
+ * member which takes over finds the last HACheckpoint published by its predecessor.
+ *
+ * The FT events arrive on the API's callback thread while the task reads the state on its polling thread.
+ * The state is held in an AtomicReference and every change is passed to the registered HAStateListeners,
+ * so the task can react to it straight away rather than the next time it looks.
+ */
 public class HASentinel implements FTEventListener {
 	
 	private static final Logger log = LoggerFactory.getLogger(HASentinel.class);
@@ -19,44 +33,208 @@ public class HASentinel implements FTEventListener {
 	
 	protected String haQueueName;
 	
-	private boolean isAM;
+	/**
+	 * Role of this member in the HA group
+	 */
+	public enum State {
+		/** start() has not been called yet */
+		STARTING,
+		/** another member is active, or this one has not been told it is active yet */
+		BACKUP,
+		ACTIVE,
+		/** stop() has been called, no further events are passed on */
+		STOPPED
+	}
+
+	// Written on the API's callback thread, read by the polling thread
+	private final AtomicReference<State> state = new AtomicReference<State>(State.STARTING);
+
+	private final CopyOnWriteArrayList<HAStateListener> listeners = new CopyOnWriteArrayList<HAStateListener>();
+
+	// Only used to wake threads blocked in awaitActive()
+	private final Object stateLock = new Object();
 
 	protected String id;
 	
 	public boolean isActiveMember() {
-		return isAM;
+		return state.get() == State.ACTIVE;
+	}
+
+	public State getState() {
+		return state.get();
+	}
+
+	public void addStateListener(HAStateListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeStateListener(HAStateListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Block until this member becomes active, the sentinel is stopped or the timeout expires. Used by the
+	 * standby's poll() so that it resumes as soon as the FT event arrives rather than after a fixed sleep.
+	 * @return true if this is the active member
+	 */
+	public boolean awaitActive(long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (stateLock) {
+			long remaining = timeoutMillis;
+			State current;
+			while ((current = state.get()) != State.ACTIVE && current != State.STOPPED && remaining > 0) {
+				stateLock.wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+			return current == State.ACTIVE;
+		}
+	}
+
+	/**
+	 * Move to the next state unless already there or stopped, and tell everyone who is waiting.
+	 * @return true if the state changed
+	 */
+	private boolean changeState(State next) {
+		State previous;
+		do {
+			previous = state.get();
+			if (previous == next || previous == State.STOPPED) {
+				return false;
+			}
+		} while (!state.compareAndSet(previous, next));
+		log.info("HASentinel:{} {} -> {}", id, previous, next);
+		for (HAStateListener listener : listeners) {
+			try {
+				listener.onStateChange(previous, next);
+			} catch (RuntimeException e) {
+				log.warn("HASentinel:{} state listener failed", id, e);
+			}
+		}
+		synchronized (stateLock) {
+			stateLock.notifyAll();
+		}
+		return true;
 	}
 	
 	private FTMgr ftmanager;
+
+	/**
+	 * Topic the active member publishes its HACheckpoint to, null when not checkpointing
+	 */
+	protected String checkpointTopic;
+
+	private XMLMessageProducer checkpointProducer;
+
+	// The checkpoint found on the sentinel queue when this member last became active
+	private volatile HACheckpoint receivedCheckpoint;
+	private volatile long activatedAt;
+	private volatile long takeoverMillis = -1;
+	private volatile long checkpointAgeMillis = -1;
 		
 	public HASentinel(String _id, JCSMPSession _session, String queueName) throws JCSMPException
+	{
+		this(_id, _session, queueName, null);
+	}
+
+	/**
+	 * @param checkpointTopic if set, the sentinel queue also holds the last HACheckpoint published to this topic
+	 */
+	public HASentinel(String _id, JCSMPSession _session, String queueName, String checkpointTopic) throws JCSMPException
 	{
 		this.id = _id;
 		session = _session;
 		this.haQueueName = queueName;
+		this.checkpointTopic = checkpointTopic;
 		//ftmanager = new FTMgr(session);
 		
 	}
 	
 	public void start()  throws JCSMPException {
 		this.ftmanager = new FTMgr(session);
-		this.ftmanager.start(haQueueName, this);
+		if (checkpointTopic != null) {
+			checkpointProducer = session.getMessageProducer(new JCSMPStreamingPublishEventHandler() {
+				@Override
+				public void responseReceived(String messageID) {
+				}
+				@Override
+				public void handleError(String messageID, JCSMPException e, long timestamp) {
+					log.warn("HASentinel:{} failed to publish checkpoint: {}", id, e.getMessage());
+				}
+			});
+			this.ftmanager.startStateful(haQueueName, checkpointTopic, this);
+		}
+		else {
+			this.ftmanager.start(haQueueName, this);
+		}
+	}
+
+	/**
+	 * Publish the progress of the active member, to be picked up by whichever member takes over from it.
+	 */
+	public void publishCheckpoint(HACheckpoint checkpoint) throws JCSMPException {
+		checkpointProducer.send(checkpoint.toMessage(id), JCSMPFactory.onlyInstance().createTopic(checkpointTopic));
+	}
+
+	/**
+	 * @return the checkpoint left by the previous active member when this one took over, null if there was none
+	 */
+	public HACheckpoint getReceivedCheckpoint() {
+		return receivedCheckpoint;
+	}
+
+	/**
+	 * Called by the task once it has returned the first records after taking over.
+	 */
+	public void takeoverCompleted() {
+		takeoverMillis = System.currentTimeMillis() - activatedAt;
+		HACheckpoint checkpoint = receivedCheckpoint;
+		if (checkpoint != null && checkpoint.getTimestamp() > 0) {
+			checkpointAgeMillis = activatedAt - checkpoint.getTimestamp();
+		}
+		log.info("HASentinel:{} took over in {}ms, checkpoint from {} was {}ms old", id, takeoverMillis,
+				checkpoint == null ? null : checkpoint.getInstance(), checkpointAgeMillis);
+	}
+
+	/**
+	 * @return milliseconds from becoming active to the first records being passed to Kafka at the last takeover, -1 before the first
+	 */
+	public long getTakeoverMillis() {
+		return takeoverMillis;
+	}
+
+	/**
+	 * @return age of the previous member's checkpoint at the last takeover, an upper bound for how long
+	 * it took to detect the failure, -1 if there was no checkpoint
+	 */
+	public long getCheckpointAgeMillis() {
+		return checkpointAgeMillis;
 	}
 	
 	public void stop()  throws JCSMPException {
+		if (checkpointProducer != null) {
+			checkpointProducer.close();
+		}
 		this.ftmanager.stop();
+		changeState(State.STOPPED);
 	}
 
 	@Override
 	public void onActive(BytesXMLMessage msg) {
-		log.info("HASentinel:{} became active", id);
-		isAM = true;
+		activatedAt = System.currentTimeMillis();
+		if (msg != null) {
+			try {
+				receivedCheckpoint = HACheckpoint.fromMessage(msg);
+			} catch (IllegalArgumentException e) {
+				log.warn("HASentinel:{} ignoring the last value of {}: {}", id, haQueueName, e.getMessage());
+			}
+		}
+		// the checkpoint is in place before anyone hears about the change
+		changeState(State.ACTIVE);
 	}
 
 	@Override
 	public void onBackup() {
-		log.info("HASentinel:{} became inactive", id);
-		isAM = false;
+		changeState(State.BACKUP);
 	}
 
 }
@@ -0,0 +1,16 @@
+package com.solace.kafka.connect;
+
+/**
+ * Notified by HASentinel whenever the member changes role.
+ *
+ * Called on the JCSMP API's callback thread, so implementations must not block or make blocking API calls.
+ * They would typically just wake the thread which acts on the change.
+ */
+public interface HAStateListener {
+
+	/**
+	 * @param previous the state before the change
+	 * @param current the new state
+	 */
+	void onStateChange(HASentinel.State previous, HASentinel.State current);
+}
@@ -0,0 +1,188 @@
+package com.solace.kafka.connect;
+
+import java.util.List;
+
+import org.apache.kafka.connect.data.Schema;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.DeliveryMode;
+import com.solacesystems.jcsmp.Destination;
+import com.solacesystems.jcsmp.SDTMap;
+
+/**
+ * The Solace message header fields which can be included in the Kafka Struct, in schema order.
+ *
+ * Each field knows its schema and how to read itself from a message, so the converter can work
+ * through an array of just the configured fields instead of calling every getter for every message.
+ * A null result means the field is left unset.
+ */
+public enum HeaderField {
+
+	APPLICATION_MESSAGE_ID(SolaceConnectorConstants.FIELD_APPLICATION_MESSAGE_ID, Schema.OPTIONAL_STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getApplicationMessageId();
+		}
+	},
+	DELIVERY_MODE(SolaceConnectorConstants.FIELD_APPLICATION_DELIVERY_MODE, Schema.STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getDeliveryMode().toString();
+		}
+	},
+	ATTACHMENT_CONTENT_LENGTH(SolaceConnectorConstants.FIELD_ATTACHMENT_CONTENT_LENGTH, Schema.OPTIONAL_INT32_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getAttachmentContentLength();
+		}
+	},
+	CACHE_REQUEST_ID(SolaceConnectorConstants.FIELD_CACHE_REQUEST_ID, Schema.OPTIONAL_INT64_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getCacheRequestId();
+		}
+	},
+	CONSUMER_ID_LIST(SolaceConnectorConstants.FIELD_CONSUMER_ID_LIST, Schema.OPTIONAL_STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			List<Long> consumerIds = msg.getConsumerIdList();
+			return consumerIds == null || consumerIds.isEmpty() ? null : consumerIds.toString();
+		}
+	},
+	CONTENT_LENGTH(SolaceConnectorConstants.FIELD_CONTENT_LENGTH, Schema.OPTIONAL_INT32_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getContentLength();
+		}
+	},
+	CORRELATION_ID(SolaceConnectorConstants.FIELD_CORRELATION_ID, Schema.OPTIONAL_STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getCorrelationId();
+		}
+	},
+	DESTINATION(SolaceConnectorConstants.FIELD_DESTINATION, Schema.STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getDestination().getName();
+		}
+	},
+	EXPIRATION(SolaceConnectorConstants.FIELD_EXPIRATION, Schema.OPTIONAL_INT64_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getExpiration();
+		}
+	},
+	HTTP_CONTENT_ENCODING(SolaceConnectorConstants.FIELD_HTTP_CONTENT_ENCODING, Schema.OPTIONAL_STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getHTTPContentEncoding();
+		}
+	},
+	HTTP_CONTENT_TYPE(SolaceConnectorConstants.FIELD_HTTP_CONTENT_TYPE, Schema.OPTIONAL_STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getHTTPContentType();
+		}
+	},
+	MESSAGE_ID(SolaceConnectorConstants.FIELD_MESSAGE_ID, Schema.OPTIONAL_STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			// MessageId is meaningless for DIRECT messages
+			return msg.getDeliveryMode() == DeliveryMode.DIRECT ? null : msg.getMessageId();
+		}
+	},
+	MESSAGE_ID_LONG(SolaceConnectorConstants.FIELD_MESSAGE_ID_LONG, Schema.OPTIONAL_INT64_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getDeliveryMode() == DeliveryMode.DIRECT ? null : msg.getMessageIdLong();
+		}
+	},
+	RECEIVE_TIMESTAMP(SolaceConnectorConstants.FIELD_RECEIVE_TIMESTAMP, Schema.OPTIONAL_INT64_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			long receiveTS = msg.getReceiveTimestamp();
+			return receiveTS > 0 ? receiveTS : null;
+		}
+	},
+	REDELIVERED(SolaceConnectorConstants.FIELD_REDELIVERED, Schema.OPTIONAL_BOOLEAN_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getRedelivered();
+		}
+	},
+	REPLYTO(SolaceConnectorConstants.FIELD_REPLYTO, Schema.OPTIONAL_STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			Destination replyToDest = msg.getReplyTo();
+			return replyToDest == null ? null : replyToDest.getName();
+		}
+	},
+	SENDERID(SolaceConnectorConstants.FIELD_SENDERID, Schema.OPTIONAL_STRING_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getSenderId();
+		}
+	},
+	SENDER_TIMESTAMP(SolaceConnectorConstants.FIELD_SENDER_TIMESTAMP, Schema.OPTIONAL_INT64_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getSenderTimestamp();
+		}
+	},
+	SEQUENCE_NUMBER(SolaceConnectorConstants.FIELD_SEQUENCE_NUMBER, Schema.OPTIONAL_INT64_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			return msg.getSequenceNumber();
+		}
+	},
+	USER_DATA(SolaceConnectorConstants.FIELD_USER_DATA, Schema.OPTIONAL_BYTES_SCHEMA) {
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			byte[] userData = msg.getUserData();
+			return userData != null && userData.length > 0 ? userData : null;
+		}
+	},
+	USER_PROPERTIES(SolaceConnectorConstants.FIELD_USER_PROPERTIES, SolaceConverter.getMapSchema()) {
+		/**
+		 * @return the SDT map of the user properties. Unlike the other fields it is not put in the Struct as it is,
+		 *  the converter turns it into a Struct of its own whose schema depends on the message
+		 */
+		@Override
+		Object extract(BytesXMLMessage msg) {
+			SDTMap properties = msg.getProperties();
+			return properties == null || properties.isEmpty() ? null : properties;
+		}
+	};
+
+	private final String fieldName;
+	private final Schema schema;
+
+	HeaderField(String _fieldName, Schema _schema) {
+		this.fieldName = _fieldName;
+		this.schema = _schema;
+	}
+
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Read this field from the message.
+	 * @return the value to put in the Struct, or null to leave it unset
+	 */
+	abstract Object extract(BytesXMLMessage msg);
+
+	public static HeaderField fromFieldName(String _fieldName) {
+		for (HeaderField field : values()) {
+			if (field.fieldName.equalsIgnoreCase(_fieldName)) {
+				return field;
+			}
+		}
+		throw new IllegalArgumentException("Unknown Solace header field: "+_fieldName);
+	}
+}
@@ -0,0 +1,125 @@
+package com.solace.kafka.connect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Decodes JSON payloads into Structs, inferring the schema from the document.
+ *
+ * Objects become Structs with one optional field per member, sorted by name. Integers map to INT64,
+ * other numbers to FLOAT64, and arrays whose elements all have the same shape to typed arrays.
+ * Arrays of mixed elements become arrays of the elements' JSON text. Null members are left out.
+ * Like SDTConverter it builds on StructSchemaConverter, so documents of the same shape share one Schema instance.
+ *
+ * Jackson is provided by the Kafka Connect runtime, which uses it for its own JSON converter.
+ */
+public class JsonPayloadDecoder extends StructSchemaConverter<JsonNode> implements PayloadDecoder {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Override
+	public void configure(Map<String, ?> configs) {
+	}
+
+	@Override
+	public SchemaAndValue decode(String contentType, ByteBuffer payload) {
+		JsonNode document;
+		try {
+			if (payload.hasArray()) {
+				JsonParser parser = mapper.getFactory().createParser(payload.array(),
+						payload.arrayOffset()+payload.position(), payload.remaining());
+				document = mapper.readTree(parser);
+			}
+			else {
+				document = mapper.readTree(new ByteBufferBackedInputStream(payload));
+			}
+		} catch (IOException e) {
+			throw new DataException("Invalid JSON payload", e);
+		}
+		if (document == null || document.isNull() || document.isMissingNode()) {
+			return null;
+		}
+		Schema[] schema = new Schema[1];
+		Object value = convertValue(document, new StringBuilder(), schema, 0);
+		return new SchemaAndValue(schema[0], value);
+	}
+
+	private Struct toStruct(JsonNode object, StringBuilder signature) {
+		List<String> names = new ArrayList<String>(object.size());
+		Iterator<String> it = object.fieldNames();
+		while (it.hasNext()) {
+			names.add(it.next());
+		}
+		String[] keys = names.toArray(new String[names.size()]);
+		Arrays.sort(keys);
+
+		List<JsonNode> members = new ArrayList<JsonNode>(keys.length);
+		for (String key : keys) {
+			JsonNode member = object.get(key);
+			members.add(member.isNull() ? null : member);
+		}
+		return buildStruct(keys, members, signature);
+	}
+
+	private List<Object> toList(JsonNode array, StringBuilder signature, Schema[] schemaOut, int index) {
+		List<JsonNode> elements = new ArrayList<JsonNode>(array.size());
+		for (JsonNode element : array) {
+			elements.add(element.isNull() ? null : element);
+		}
+		return buildList(elements, signature, schemaOut, index);
+	}
+
+	/**
+	 * Convert a single JSON value, setting its schema in schemaOut[index] and appending its type to the signature.
+	 */
+	@Override
+	protected Object convertValue(JsonNode node, StringBuilder signature, Schema[] schemaOut, int index) {
+		if (node.isObject()) {
+			Struct struct = toStruct(node, signature);
+			schemaOut[index] = struct.schema();
+			return struct;
+		}
+		if (node.isArray()) {
+			return toList(node, signature, schemaOut, index);
+		}
+		if (node.isBoolean()) {
+			signature.append('Z');
+			schemaOut[index] = Schema.OPTIONAL_BOOLEAN_SCHEMA;
+			return node.booleanValue();
+		}
+		if (node.isIntegralNumber() && node.canConvertToLong()) {
+			signature.append('L');
+			schemaOut[index] = Schema.OPTIONAL_INT64_SCHEMA;
+			return node.longValue();
+		}
+		if (node.isFloatingPointNumber()) {
+			signature.append('D');
+			schemaOut[index] = Schema.OPTIONAL_FLOAT64_SCHEMA;
+			return node.doubleValue();
+		}
+		// Strings, and integers too large for a long
+		signature.append('S');
+		schemaOut[index] = Schema.OPTIONAL_STRING_SCHEMA;
+		return node.asText();
+	}
+
+	@Override
+	protected String toText(JsonNode node) {
+		return node.isTextual() ? node.textValue() : node.toString();
+	}
+}
@@ -0,0 +1,127 @@
+package com.solace.kafka.connect;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in microseconds with log-linear buckets, in the manner of HdrHistogram:
+ * each power of two is split into SUB_BUCKETS linear buckets, so any value is reported to within about 3%.
+ *
+ * Recording is one atomic increment, so any number of threads may record without locking. The counts
+ * are collected over an interval and {@link #rotate()} hands back those of the interval just ended.
+ * A thread recording while the interval changes may still add to the old counts, which only costs a
+ * sample or two at the edge of an interval.
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BUCKET_BITS = 5;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Larger values are counted as this, one hour
+	 */
+	static final long MAX_VALUE_MICROS = 3600L * 1000 * 1000;
+
+	private static final int BUCKETS = bucketIndex(MAX_VALUE_MICROS) + 1;
+
+	private volatile AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * @param micros latency to record, negative values as may come from clocks on different hosts count as 0
+	 */
+	public void record(long micros) {
+		counts.getAndIncrement(bucketIndex(micros < 0 ? 0 : Math.min(micros, MAX_VALUE_MICROS)));
+	}
+
+	/**
+	 * Start a new interval.
+	 * @return the counts recorded since the previous call
+	 */
+	public Snapshot rotate() {
+		AtomicLongArray ended = counts;
+		counts = new AtomicLongArray(BUCKETS);
+		long[] values = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			values[i] = ended.get(i);
+		}
+		return new Snapshot(values);
+	}
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * @return the largest value counted in the bucket
+	 */
+	static long bucketValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * The counts of one interval
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+
+		Snapshot(long[] counts) {
+			this.counts = counts;
+			long total = 0;
+			for (long c : counts) {
+				total += c;
+			}
+			this.count = total;
+		}
+
+		/**
+		 * @return an interval in which nothing was recorded
+		 */
+		public static Snapshot empty() {
+			return new Snapshot(new long[0]);
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return the value below which that percentage of the samples fall, 0 if there are none
+		 */
+		public long percentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return bucketValue(i);
+				}
+			}
+			return bucketValue(counts.length - 1);
+		}
+
+		/**
+		 * @return the largest sample, 0 if there are none
+		 */
+		public long max() {
+			for (int i = counts.length - 1; i >= 0; i--) {
+				if (counts[i] > 0) {
+					return bucketValue(i);
+				}
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.solace.kafka.connect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows each message through the connector and keeps a LatencyHistogram for every stage:
+ *  - SOLACE from the sender timestamp to the receive timestamp, the time spent in the router. The clocks of the publisher and the connector may differ
+ *  - BUFFER from the receive timestamp to the conversion, the time waiting in the API and the task's buffers
+ *  - POLL from the conversion to poll() returning the record
+ *  - KAFKA from poll() returning to commitRecord(), the time in Kafka Connect and the producer
+ *  - END_TO_END from the sender timestamp, or the receive timestamp if there is none, to commitRecord()
+ *
+ * The converter records the first two stages, and stamps the record so that commitRecord() can record the others.
+ * Percentiles cover one interval. The polling thread calls {@link #rotate(long)}, which at the end of an interval
+ * logs the percentiles and makes them the ones published to JMX.
+ */
+public class LatencyTracker {
+
+	private static final Logger log = LoggerFactory.getLogger(LatencyTracker.class);
+
+	public static enum Stage {
+		SOLACE("solace"),
+		BUFFER("buffer"),
+		POLL("poll"),
+		KAFKA("kafka"),
+		END_TO_END("end-to-end");
+
+		private String value;
+
+		Stage(String _val) {
+			this.value = _val;
+		}
+
+		public String getValue() {
+			return value;
+		}
+	}
+
+	private final String instanceName;
+	private final long intervalMillis;
+	private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+	// Replaced as a whole so that JMX reads a consistent interval
+	private volatile LatencyHistogram.Snapshot[] lastInterval = new LatencyHistogram.Snapshot[Stage.values().length];
+	private long intervalStart;
+
+	/**
+	 * @param intervalMillis length of the interval the percentiles are taken over
+	 */
+	public LatencyTracker(String instanceName, long intervalMillis) {
+		if (intervalMillis < 1) {
+			throw new IllegalArgumentException("Latency interval must be positive: "+intervalMillis);
+		}
+		this.instanceName = instanceName;
+		this.intervalMillis = intervalMillis;
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new LatencyHistogram();
+			lastInterval[i] = LatencyHistogram.Snapshot.empty();
+		}
+		intervalStart = System.currentTimeMillis();
+	}
+
+	/**
+	 * Record the stages up to the conversion of a message, and stamp its record for the later ones.
+	 * @param senderTimestamp null if the message has none
+	 * @param receiveTimestamp 0 if the message has none
+	 */
+	public void converted(SolaceSourceRecord record, Long senderTimestamp, long receiveTimestamp) {
+		long now = System.currentTimeMillis();
+		if (receiveTimestamp > 0) {
+			if (senderTimestamp != null) {
+				histograms[Stage.SOLACE.ordinal()].record((receiveTimestamp - senderTimestamp) * 1000);
+			}
+			histograms[Stage.BUFFER.ordinal()].record((now - receiveTimestamp) * 1000);
+		}
+		record.setLatencyOrigin(senderTimestamp != null ? senderTimestamp : receiveTimestamp > 0 ? receiveTimestamp : now);
+		record.setConvertedNanos(System.nanoTime());
+	}
+
+	/**
+	 * Record the stages after a record has been written to Kafka.
+	 */
+	public void committed(SolaceSourceRecord record) {
+		if (record.getConvertedNanos() == 0 || record.getPolledNanos() == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		histograms[Stage.POLL.ordinal()].record((record.getPolledNanos() - record.getConvertedNanos()) / 1000);
+		histograms[Stage.KAFKA.ordinal()].record((now - record.getPolledNanos()) / 1000);
+		histograms[Stage.END_TO_END.ordinal()].record((System.currentTimeMillis() - record.getLatencyOrigin()) * 1000);
+	}
+
+	/**
+	 * Start a new interval if the current one is over, logging the percentiles of the one which ended.
+	 * Only called by the polling thread.
+	 */
+	public void rotate(long now) {
+		if (now - intervalStart < intervalMillis) {
+			return;
+		}
+		LatencyHistogram.Snapshot[] ended = new LatencyHistogram.Snapshot[histograms.length];
+		for (Stage stage : Stage.values()) {
+			LatencyHistogram.Snapshot snapshot = histograms[stage.ordinal()].rotate();
+			ended[stage.ordinal()] = snapshot;
+			if (snapshot.getCount() > 0) {
+				log.info("{} {} latency over {} ms: count={} p50={}us p99={}us p99.9={}us max={}us", instanceName, stage.getValue(),
+						now - intervalStart, snapshot.getCount(), snapshot.percentile(50), snapshot.percentile(99),
+						snapshot.percentile(99.9), snapshot.max());
+			}
+		}
+		lastInterval = ended;
+		intervalStart = now;
+	}
+
+	/**
+	 * @return the counts of the stage in the last interval which ended
+	 */
+	public LatencyHistogram.Snapshot getLastInterval(Stage stage) {
+		return lastInterval[stage.ordinal()];
+	}
+}
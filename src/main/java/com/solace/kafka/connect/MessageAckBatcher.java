@@ -0,0 +1,83 @@
+package com.solace.kafka.connect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+
+/**
+ * Collects guaranteed messages whose records have been committed by Kafka and acknowledges them
+ * to the Solace router in batches.
+ * 
+ * Records are committed on the Kafka producer's thread and flushed from the task's commit thread, so
+ * adding is lock-free and flushing is serialised. Each batch is acknowledged in ascending message id 
+ * order so that the API can coalesce contiguous ids into ranges in the acknowledgements it sends.
+ */
+public class MessageAckBatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(MessageAckBatcher.class);
+
+	private static final Comparator<BytesXMLMessage> ACK_ID_ORDER = new Comparator<BytesXMLMessage>() {
+		@Override
+		public int compare(BytesXMLMessage m1, BytesXMLMessage m2) {
+			long id1 = m1.getAckMessageId();
+			long id2 = m2.getAckMessageId();
+			return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+		}
+	};
+
+	private final int batchSize;
+	private final ConcurrentLinkedQueue<BytesXMLMessage> committed = new ConcurrentLinkedQueue<BytesXMLMessage>();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	public MessageAckBatcher(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Record that the message has been safely written to Kafka, flushing if a full batch is waiting.
+	 */
+	public void committed(BytesXMLMessage msg) {
+		committed.add(msg);
+		if (pending.incrementAndGet() >= batchSize) {
+			flush();
+		}
+	}
+
+	public int getPending() {
+		return pending.get();
+	}
+
+	/**
+	 * Acknowledge every message committed so far.
+	 * @return the number of messages acknowledged
+	 */
+	public synchronized int flush() {
+		List<BytesXMLMessage> batch = new ArrayList<BytesXMLMessage>(pending.get());
+		BytesXMLMessage msg;
+		while ((msg = committed.poll()) != null) {
+			batch.add(msg);
+		}
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		pending.addAndGet(-batch.size());
+
+		Collections.sort(batch, ACK_ID_ORDER);
+		for (BytesXMLMessage m : batch) {
+			m.ackMessage();
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Acknowledged {} messages, ids {} to {}", batch.size(), 
+					batch.get(0).getAckMessageId(), batch.get(batch.size()-1).getAckMessageId());
+		}
+		return batch.size();
+	}
+}
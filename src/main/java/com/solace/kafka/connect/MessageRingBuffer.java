@@ -0,0 +1,183 @@
+package com.solace.kafka.connect;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, lock-free ring buffer used to hand messages from the JCSMP dispatcher threads
+ * to the Kafka Connect task thread when the connector runs in asynchronous mode.
+ *
+ * Any number of threads may call {@link #offer(Object)}/{@link #put(Object)}, typically one dispatcher per
+ * session, and each thread's elements are taken in the order it added them. Only one thread may call
+ * {@link #peek()}/{@link #poll()}/{@link #await(long)} at any time.
+ *
+ * A producer claims a slot by advancing the tail with compare-and-set and then fills it. The consumer
+ * only takes a slot once it has been filled, so an element claimed but not yet written holds back the
+ * ones behind it for the few nanoseconds it takes.
+ *
+ * @param <E> type of the buffered elements
+ */
+public class MessageRingBuffer<E> {
+
+	/**
+	 * How long the producer backs off when the buffer is full before trying again.
+	 */
+	private static final long PRODUCER_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final AtomicReferenceArray<Object> slots;
+	private final int mask;
+	private final int capacity;
+
+	// Index of the next slot to be read, only written by the consumer
+	private final AtomicLong head = new AtomicLong();
+	// Index of the next slot to be claimed by a producer
+	private final AtomicLong tail = new AtomicLong();
+
+	// Set while the consumer is parked in await()
+	private volatile Thread waitingConsumer;
+	// Set by wakeup() until the consumer's next await() returns
+	private volatile boolean wakeupPending;
+
+	/**
+	 * @param requestedCapacity minimum number of elements the buffer can hold, rounded up to a power of 2
+	 */
+	public MessageRingBuffer(int requestedCapacity) {
+		if (requestedCapacity < 1) {
+			throw new IllegalArgumentException("Ring buffer capacity must be positive: "+requestedCapacity);
+		}
+		int size = 1;
+		while (size < requestedCapacity) {
+			size <<= 1;
+		}
+		capacity = size;
+		mask = size - 1;
+		slots = new AtomicReferenceArray<Object>(size);
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of claimed slots, which may include some not filled yet
+	 */
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * @return true if the consumer has nothing to take right now
+	 */
+	public boolean isEmpty() {
+		return slots.get((int) (head.get() & mask)) == null;
+	}
+
+	/**
+	 * Add an element if there is space, waking the consumer if it is waiting.
+	 * @return false if the buffer is full
+	 */
+	public boolean offer(E element) {
+		if (element == null) {
+			// an empty slot means not written yet
+			throw new NullPointerException("Ring buffer elements must not be null");
+		}
+		long t;
+		do {
+			t = tail.get();
+			if (t - head.get() >= capacity) {
+				return false;
+			}
+		} while (!tail.compareAndSet(t, t + 1));
+		slots.set((int) (t & mask), element);
+		Thread waiter = waitingConsumer;
+		if (waiter != null) {
+			LockSupport.unpark(waiter);
+		}
+		return true;
+	}
+
+	/**
+	 * Add an element, backing off while the buffer is full. This pushes back on the JCSMP
+	 * dispatcher in the same way as a slow synchronous receiver would.
+	 */
+	public void put(E element) throws InterruptedException {
+		while (!offer(element)) {
+			LockSupport.parkNanos(PRODUCER_BACKOFF_NANOS);
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+	}
+
+	/**
+	 * @return the oldest element without removing it, or null if the buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E peek() {
+		return (E) slots.get((int) (head.get() & mask));
+	}
+
+	/**
+	 * Remove the oldest element without blocking.
+	 * @return the element, or null if the buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long h = head.get();
+		int index = (int) (h & mask);
+		E element = (E) slots.get(index);
+		if (element == null) {
+			return null;
+		}
+		// cleared before the head moves on, so the slot is empty by the time a producer can claim it again
+		slots.lazySet(index, null);
+		head.set(h + 1);
+		return element;
+	}
+
+	/**
+	 * Block the consumer until at least one element is available, the timeout expires or
+	 * {@link #wakeup()} is called.
+	 * @return true if elements are available
+	 */
+	public boolean await(long timeoutMillis) throws InterruptedException {
+		if (!isEmpty() || wakeupPending) {
+			wakeupPending = false;
+			return !isEmpty();
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		waitingConsumer = Thread.currentThread();
+		try {
+			// wakeup() sets the flag before unparking, so it cannot slip in between the check and the park
+			while (isEmpty() && !wakeupPending) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					break;
+				}
+				LockSupport.parkNanos(this, remaining);
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+			}
+		} finally {
+			waitingConsumer = null;
+			wakeupPending = false;
+		}
+		return !isEmpty();
+	}
+
+	/**
+	 * Release a consumer blocked in {@link #await(long)} even if no data has arrived. If the consumer
+	 * is not waiting yet its next call to await() returns straight away, so a wakeup is never lost.
+	 * May be called from any thread.
+	 */
+	public void wakeup() {
+		wakeupPending = true;
+		Thread waiter = waitingConsumer;
+		if (waiter != null) {
+			LockSupport.unpark(waiter);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.solace.kafka.connect;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.SchemaAndValue;
+
+/**
+ * Decodes a message payload into a typed Kafka Connect value, so that downstream consumers receive
+ * structured records rather than having to parse the payload themselves.
+ *
+ * Decoders are chosen by the content type of each message, see payload.decoders. One instance is
+ * created per configured content type and shared by every message of that type, possibly from more
+ * than one thread, so implementations must be thread safe. They should set up any parsers in
+ * configure() and return the same Schema instance for payloads of the same shape, as the converter
+ * caches the record schemas built around them by identity.
+ */
+public interface PayloadDecoder {
+
+	/**
+	 * Called once after the decoder is created.
+	 * @param configs the connector configuration
+	 */
+	void configure(Map<String, ?> configs);
+
+	/**
+	 * @param contentType the content type of the message, as received
+	 * @param payload the payload, positioned at its first byte. The decoder may consume it
+	 * @return the decoded value and its schema, or null to pass the payload on undecoded
+	 */
+	SchemaAndValue decode(String contentType, ByteBuffer payload);
+}
@@ -0,0 +1,114 @@
+package com.solace.kafka.connect;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.SchemaAndValue;
+
+/**
+ * The configured payload decoders, by content type.
+ *
+ * Content types are matched on their media type alone, ignoring case and parameters such as
+ * charset, so "application/json; charset=utf-8" uses the decoder registered for "application/json".
+ * A '*' entry catches every content type which has no decoder of its own. The decoder for each
+ * content type string seen on the wire is remembered, so messages only pay for a map lookup.
+ */
+public class PayloadDecoderRegistry {
+
+	private static final String ANY_CONTENT_TYPE = "*";
+
+	/**
+	 * Upper bound on the number of distinct content type strings remembered
+	 */
+	private static final int MAX_CACHED_CONTENT_TYPES = 1024;
+
+	// Marks content types with no decoder, since ConcurrentHashMap cannot hold null values
+	private static final PayloadDecoder NO_DECODER = new PayloadDecoder() {
+		@Override
+		public void configure(Map<String, ?> configs) {
+		}
+		@Override
+		public SchemaAndValue decode(String contentType, ByteBuffer payload) {
+			return null;
+		}
+	};
+
+	private final Map<String, PayloadDecoder> decoders = new HashMap<String, PayloadDecoder>();
+	private final ConcurrentHashMap<String, PayloadDecoder> resolved = new ConcurrentHashMap<String, PayloadDecoder>();
+	private PayloadDecoder anyDecoder = NO_DECODER;
+
+	/**
+	 * Build the registry from a comma separated list of contentType:className entries, eg
+	 * "application/json:com.solace.kafka.connect.JsonPayloadDecoder". Each class is instantiated once
+	 * and configured with the connector configuration.
+	 */
+	public static PayloadDecoderRegistry fromConfig(String decoders, Map<String, ?> configs) {
+		PayloadDecoderRegistry registry = new PayloadDecoderRegistry();
+		for (String entry : SolaceConfigDef.splitList(decoders)) {
+			// Neither content types nor class names contain ':'
+			int split = entry.indexOf(':');
+			if (split <= 0 || split == entry.length()-1) {
+				throw new IllegalArgumentException("Payload decoder must be of the form <content type>:<class name>: "+entry);
+			}
+			String className = entry.substring(split+1).trim();
+			PayloadDecoder decoder;
+			try {
+				decoder = Utils.newInstance(className, PayloadDecoder.class);
+			} catch (ClassNotFoundException e) {
+				throw new IllegalArgumentException("Payload decoder class not found: "+className, e);
+			}
+			decoder.configure(configs);
+			registry.register(entry.substring(0, split).trim(), decoder);
+		}
+		return registry;
+	}
+
+	public void register(String contentType, PayloadDecoder decoder) {
+		String mediaType = mediaType(contentType);
+		if (mediaType.equals(ANY_CONTENT_TYPE)) {
+			anyDecoder = decoder;
+		}
+		else {
+			decoders.put(mediaType, decoder);
+		}
+		resolved.clear();
+	}
+
+	/**
+	 * @return the decoder for the content type, or null if there is none
+	 */
+	public PayloadDecoder get(String contentType) {
+		if (contentType == null) {
+			return anyDecoder == NO_DECODER ? null : anyDecoder;
+		}
+		PayloadDecoder decoder = resolved.get(contentType);
+		if (decoder == null) {
+			decoder = decoders.get(mediaType(contentType));
+			if (decoder == null) {
+				decoder = anyDecoder;
+			}
+			if (resolved.size() >= MAX_CACHED_CONTENT_TYPES) {
+				resolved.clear();
+			}
+			resolved.put(contentType, decoder);
+		}
+		return decoder == NO_DECODER ? null : decoder;
+	}
+
+	public boolean isEmpty() {
+		return decoders.isEmpty() && anyDecoder == NO_DECODER;
+	}
+
+	/**
+	 * The content type without parameters, in lower case
+	 */
+	static String mediaType(String contentType) {
+		int params = contentType.indexOf(';');
+		String mediaType = params < 0 ? contentType : contentType.substring(0, params);
+		return mediaType.trim().toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,193 @@
+package com.solace.kafka.connect;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+/**
+ * Collects records converted on the JCSMP callback threads into batches which poll() takes whole.
+ *
+ * The callbacks run on the API's I/O thread, which must never wait or the session's keep-alives stop.
+ * So {@link #add(SourceRecord, int, long)} always accepts the record, starting a new batch when the last
+ * one is full, and the task pushes back on the router instead by stopping the consumers. The polling thread
+ * does so while {@link #isFull()}, and the callback once add() reports more than maxBatches batches, which
+ * bounds the buffer even while poll() is not called, for instance while the producer is blocked.
+ * Each batch is a list of its own, so a list returned by take() is never touched again.
+ *
+ * Any number of threads may call {@link #add(SourceRecord, int, long)}. Only one thread may call
+ * {@link #await(long)} and {@link #take()}, and the statistics of the last batch taken are only valid on that thread.
+ */
+public class RecordBatchBuffer {
+
+	/**
+	 * The records of one batch
+	 */
+	private static final class Batch {
+		private final ArrayList<SourceRecord> records;
+		private long bytes;
+		private long conversionNanos;
+
+		Batch(int batchSize) {
+			records = new ArrayList<SourceRecord>(batchSize);
+		}
+	}
+
+	/**
+	 * Batches which may be waiting before add() asks for the consumers to be stopped
+	 */
+	public static final int DEFAULT_MAX_BATCHES = 4;
+
+	private final Object lock = new Object();
+	private final int batchSize;
+	private final long maxBatchBytes;
+	private final int maxBatches;
+
+	// Guarded by lock, the last batch is the one being filled
+	private final ArrayDeque<Batch> batches = new ArrayDeque<Batch>();
+	private boolean wakeupPending;
+
+	// The batch last returned by take(), only used by the polling thread
+	private long takenBytes;
+	private long takenConversionNanos;
+
+	/**
+	 * @param batchSize records in a full batch
+	 * @param maxBatchBytes payload bytes in a full batch, 0 for no limit
+	 */
+	public RecordBatchBuffer(int batchSize, long maxBatchBytes) {
+		this(batchSize, maxBatchBytes, DEFAULT_MAX_BATCHES);
+	}
+
+	/**
+	 * @param batchSize records in a full batch
+	 * @param maxBatchBytes payload bytes in a full batch, 0 for no limit
+	 * @param maxBatches batches which may be waiting before {@link #add(SourceRecord, int, long)} reports the buffer over its limit
+	 */
+	public RecordBatchBuffer(int batchSize, long maxBatchBytes, int maxBatches) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: "+batchSize);
+		}
+		if (maxBatches < 1) {
+			throw new IllegalArgumentException("Maximum number of batches must be positive: "+maxBatches);
+		}
+		this.batchSize = batchSize;
+		this.maxBatchBytes = maxBatchBytes;
+		this.maxBatches = maxBatches;
+	}
+
+	/**
+	 * Add a converted record without waiting.
+	 * @param bytes payload size of the message
+	 * @param conversionNanos time it took to convert the message
+	 * @return true if more than maxBatches batches are waiting, so the consumers should be stopped
+	 */
+	public boolean add(SourceRecord record, int bytes, long conversionNanos) {
+		synchronized (lock) {
+			Batch last = batches.peekLast();
+			if (last == null || isFull(last)) {
+				last = new Batch(batchSize);
+				batches.addLast(last);
+			}
+			last.records.add(record);
+			last.bytes += bytes;
+			last.conversionNanos += conversionNanos;
+			if (batches.size() == 1 && last.records.size() == 1) {
+				// the polling thread only waits for the first record
+				lock.notifyAll();
+			}
+			return batches.size() > maxBatches;
+		}
+	}
+
+	/**
+	 * @return true if more than maxBatches batches are waiting, as last reported by {@link #add(SourceRecord, int, long)}
+	 */
+	public boolean isOverLimit() {
+		synchronized (lock) {
+			return batches.size() > maxBatches;
+		}
+	}
+
+	/**
+	 * Wait until there is at least one record, the timeout expires or {@link #wakeup()} is called.
+	 * @return true if there are records to take
+	 */
+	public boolean await(long timeoutMillis) throws InterruptedException {
+		synchronized (lock) {
+			long deadline = System.currentTimeMillis() + timeoutMillis;
+			long remaining = timeoutMillis;
+			while (batches.isEmpty() && !wakeupPending && remaining > 0) {
+				lock.wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+			wakeupPending = false;
+			return !batches.isEmpty();
+		}
+	}
+
+	/**
+	 * Take the oldest batch without waiting.
+	 * @return the batch, empty if there is nothing to take
+	 */
+	public ArrayList<SourceRecord> take() {
+		synchronized (lock) {
+			Batch batch = batches.pollFirst();
+			if (batch == null) {
+				takenBytes = 0;
+				takenConversionNanos = 0;
+				return new ArrayList<SourceRecord>(0);
+			}
+			takenBytes = batch.bytes;
+			takenConversionNanos = batch.conversionNanos;
+			return batch.records;
+		}
+	}
+
+	/**
+	 * @return true if a full batch is waiting to be taken, so records arrive faster than they are polled
+	 */
+	public boolean isFull() {
+		synchronized (lock) {
+			Batch first = batches.peekFirst();
+			return first != null && isFull(first);
+		}
+	}
+
+	/**
+	 * @return the number of batches waiting, including the one being filled
+	 */
+	int batchCount() {
+		synchronized (lock) {
+			return batches.size();
+		}
+	}
+
+	/**
+	 * Release the thread waiting in {@link #await(long)}, or make its next call return straight away.
+	 */
+	public void wakeup() {
+		synchronized (lock) {
+			wakeupPending = true;
+			lock.notifyAll();
+		}
+	}
+
+	private boolean isFull(Batch batch) {
+		return batch.records.size() >= batchSize || (maxBatchBytes > 0 && batch.bytes >= maxBatchBytes);
+	}
+
+	/**
+	 * @return payload bytes of the batch last returned by take()
+	 */
+	public long getTakenBytes() {
+		return takenBytes;
+	}
+
+	/**
+	 * @return nanoseconds spent converting the batch last returned by take()
+	 */
+	public long getTakenConversionNanos() {
+		return takenConversionNanos;
+	}
+}
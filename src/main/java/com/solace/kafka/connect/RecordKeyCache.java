@@ -0,0 +1,163 @@
+package com.solace.kafka.connect;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Interns what the converter derives from a message's destination and sender: the source partition key,
+ * the source partition map built from it and the Kafka topic, and with a per destination key strategy the
+ * record key and Kafka partition. A feed repeats a small set of destinations and senders,
+ * so converting a message then needs no string building or map allocation for these.
+ *
+ * Destinations are kept in a bounded LRU map, and each destination remembers at most
+ * MAX_SENDERS_PER_DESTINATION senders. Keys for anything beyond that are built per message.
+ * The conversion may run on several API threads, so the map is synchronized like TopicRouter's cache.
+ */
+public class RecordKeyCache {
+
+	static final int MAX_SENDERS_PER_DESTINATION = 16;
+
+	static final String PARTITION_KEY = "solaceKey";
+
+	/**
+	 * The interned values for one destination and sender
+	 */
+	public static final class Keys {
+		final String senderId;
+		final String key;
+		final Map<String, String> sourcePartition;
+		final String kafkaTopic;
+		final String recordKey;
+		final Integer kafkaPartition;
+		Keys next;
+
+		Keys(String senderId, String key, String kafkaTopic, String recordKey, Integer kafkaPartition) {
+			this.senderId = senderId;
+			this.key = key;
+			this.sourcePartition = Collections.singletonMap(PARTITION_KEY, key);
+			this.kafkaTopic = kafkaTopic;
+			this.recordKey = recordKey;
+			this.kafkaPartition = kafkaPartition;
+		}
+
+		/**
+		 * @return the destination and sender key of the source partition
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * @return the record key, only set if the key strategy is per destination
+		 */
+		public String getRecordKey() {
+			return recordKey;
+		}
+
+		/**
+		 * @return the Kafka partition for the record key, null if there is no per destination key or record.partitions is not set
+		 */
+		public Integer getKafkaPartition() {
+			return kafkaPartition;
+		}
+
+		public Map<String, String> getSourcePartition() {
+			return sourcePartition;
+		}
+
+		public String getKafkaTopic() {
+			return kafkaTopic;
+		}
+	}
+
+	// The senders seen on one destination, most recent first
+	private static final class Senders {
+		Keys first;
+		int count;
+	}
+
+	private final TopicRouter topicRouter;
+	private final String defaultTopic;
+	private final RecordKeyStrategy keyStrategy;
+	private final Map<String, Senders> cache;
+
+	public RecordKeyCache(TopicRouter topicRouter, String defaultTopic, int cacheSize) {
+		this(topicRouter, defaultTopic, new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.DESTINATION_SENDER, null, 0, 0), cacheSize);
+	}
+
+	/**
+	 * @param topicRouter resolves the Kafka topic, null to send everything to defaultTopic
+	 * @param keyStrategy the record key and partition are interned too if its keys are per destination
+	 * @param cacheSize maximum number of destinations to remember
+	 */
+	public RecordKeyCache(TopicRouter topicRouter, String defaultTopic, RecordKeyStrategy keyStrategy, final int cacheSize) {
+		if (cacheSize < 1) {
+			throw new IllegalArgumentException("Key cache size must be positive: "+cacheSize);
+		}
+		this.topicRouter = topicRouter;
+		this.defaultTopic = defaultTopic;
+		this.keyStrategy = keyStrategy;
+		this.cache = new LinkedHashMap<String, Senders>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Senders> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * @return the record key for the destination and sender, as used before interning was added
+	 */
+	public static String buildKey(String destinationName, String senderId) {
+		return destinationName+"_"+senderId;
+	}
+
+	public Keys lookup(String destinationName, String senderId) {
+		synchronized (cache) {
+			Senders senders = cache.get(destinationName);
+			if (senders != null) {
+				for (Keys keys = senders.first; keys != null; keys = keys.next) {
+					if (senderId == null ? keys.senderId == null : senderId.equals(keys.senderId)) {
+						return keys;
+					}
+				}
+			}
+		}
+
+		// Build outside the lock, the Kafka topic may need a route match
+		String kafkaTopic = topicRouter == null ? defaultTopic : topicRouter.route(destinationName);
+		String recordKey = null;
+		Integer kafkaPartition = null;
+		if (keyStrategy.isPerDestination()) {
+			recordKey = keyStrategy.destinationKey(destinationName, senderId);
+			// records without a key are spread over the partitions one by one
+			kafkaPartition = recordKey == null ? null : keyStrategy.partition(recordKey);
+		}
+		Keys keys = new Keys(senderId, buildKey(destinationName, senderId), kafkaTopic, recordKey, kafkaPartition);
+		synchronized (cache) {
+			Senders senders = cache.get(destinationName);
+			if (senders == null) {
+				senders = new Senders();
+				cache.put(destinationName, senders);
+			}
+			if (senders.count < MAX_SENDERS_PER_DESTINATION) {
+				// another thread may have added the same sender meanwhile, which only costs a duplicate entry
+				keys.next = senders.first;
+				senders.first = keys;
+				senders.count++;
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the number of destinations remembered
+	 */
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.solace.kafka.connect;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Schema;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.SDTException;
+import com.solacesystems.jcsmp.SDTMap;
+
+/**
+ * Chooses the Kafka record key and, if record.partitions is set, the Kafka partition of each message.
+ *
+ * Keys which only depend on the destination and sender are worked out once per destination and sender,
+ * see {@link #isPerDestination()}, the others for every message. The partition is the murmur2 hash of
+ * the key's UTF-8 bytes. Kafka's default partitioner hashes the serialized key instead, so the two only agree
+ * when the worker's key.converter is the StringConverter and record.partitions matches the topic; with any
+ * other key converter the same key lands on a different partition than the producer would choose. Records
+ * without a key are spread round-robin over the partitions.
+ */
+public class RecordKeyStrategy {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final SolaceConnectorConstants.KeyStrategy strategy;
+	private final String propertyName;
+	private final int topicLevel;
+	private final int partitions;
+	private final AtomicInteger nextPartition = new AtomicInteger();
+
+	/**
+	 * @param propertyName user property holding the key, only used by USER_PROPERTY
+	 * @param topicLevel level of the destination used by TOPIC_LEVEL, counting from 0. Negative levels count back from the last one
+	 * @param partitions number of Kafka partitions to choose from, 0 to leave the choice to the producer
+	 * @throws IllegalArgumentException if USER_PROPERTY has no property name or partitions is negative
+	 */
+	public RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy strategy, String propertyName, int topicLevel, int partitions) {
+		if (strategy == SolaceConnectorConstants.KeyStrategy.USER_PROPERTY && (propertyName == null || propertyName.isEmpty())) {
+			throw new IllegalArgumentException("The "+strategy.getValue()+" key strategy needs a property name");
+		}
+		if (partitions < 0) {
+			throw new IllegalArgumentException("Number of partitions must not be negative: "+partitions);
+		}
+		this.strategy = strategy;
+		this.propertyName = propertyName;
+		this.topicLevel = topicLevel;
+		this.partitions = partitions;
+	}
+
+	public SolaceConnectorConstants.KeyStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * @return true if the key only depends on the destination and sender, see {@link #destinationKey(String, String)}
+	 */
+	public boolean isPerDestination() {
+		return strategy == SolaceConnectorConstants.KeyStrategy.DESTINATION_SENDER
+				|| strategy == SolaceConnectorConstants.KeyStrategy.DESTINATION
+				|| strategy == SolaceConnectorConstants.KeyStrategy.TOPIC_LEVEL;
+	}
+
+	/**
+	 * @return the key for a per destination strategy, null if the destination has no such topic level
+	 */
+	public String destinationKey(String destinationName, String senderId) {
+		switch (strategy) {
+		case DESTINATION_SENDER:
+			return RecordKeyCache.buildKey(destinationName, senderId);
+		case DESTINATION:
+			return destinationName;
+		case TOPIC_LEVEL:
+			return topicLevel(destinationName, topicLevel);
+		default:
+			throw new IllegalStateException("The "+strategy.getValue()+" key strategy depends on the message");
+		}
+	}
+
+	/**
+	 * @return the key of the message, null if it has none
+	 */
+	public String messageKey(BytesXMLMessage msg) {
+		switch (strategy) {
+		case CORRELATION_ID:
+			return msg.getCorrelationId();
+		case USER_PROPERTY:
+			SDTMap properties = msg.getProperties();
+			if (properties == null) {
+				return null;
+			}
+			try {
+				Object value = properties.get(propertyName);
+				return value == null ? null : value.toString();
+			} catch (SDTException e) {
+				return null;
+			}
+		case NONE:
+			return null;
+		default:
+			return destinationKey(msg.getDestination().getName(), msg.getSenderId());
+		}
+	}
+
+	/**
+	 * @return the Kafka partition for a record with this key, null to leave it to the producer. This is where
+	 *  Kafka's default partitioner would put the key only if the key converter writes it as plain UTF-8
+	 */
+	public Integer partition(String key) {
+		if (partitions == 0) {
+			return null;
+		}
+		if (key == null) {
+			return Utils.toPositive(nextPartition.getAndIncrement()) % partitions;
+		}
+		return Utils.toPositive(Utils.murmur2(key.getBytes(UTF8))) % partitions;
+	}
+
+	/**
+	 * @return the schema of the keys, optional for the strategies which may not find a key
+	 */
+	public Schema keySchema() {
+		return strategy == SolaceConnectorConstants.KeyStrategy.DESTINATION_SENDER
+				|| strategy == SolaceConnectorConstants.KeyStrategy.DESTINATION
+				? Schema.STRING_SCHEMA : Schema.OPTIONAL_STRING_SCHEMA;
+	}
+
+	/**
+	 * @param level counting from 0, negative levels count back from the last one
+	 * @return the level of a '/' separated topic, null if it has no such level
+	 */
+	static String topicLevel(String destinationName, int level) {
+		int count = 1;
+		for (int i = destinationName.indexOf('/'); i >= 0; i = destinationName.indexOf('/', i + 1)) {
+			count++;
+		}
+		int index = level < 0 ? count + level : level;
+		if (index < 0 || index >= count) {
+			return null;
+		}
+		int start = 0;
+		for (int i = 0; i < index; i++) {
+			start = destinationName.indexOf('/', start) + 1;
+		}
+		int end = destinationName.indexOf('/', start);
+		return end < 0 ? destinationName.substring(start) : destinationName.substring(start, end);
+	}
+}
@@ -0,0 +1,149 @@
+package com.solace.kafka.connect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.solacesystems.common.util.ByteArray;
+import com.solacesystems.jcsmp.Destination;
+import com.solacesystems.jcsmp.SDTException;
+import com.solacesystems.jcsmp.SDTMap;
+import com.solacesystems.jcsmp.SDTStream;
+
+/**
+ * Converts Solace structured data (SDTMap and SDTStream) into Kafka Connect Structs and arrays.
+ *
+ * Map keys become optional Struct fields, sorted by name, and nested maps and streams are converted
+ * recursively. Messages from the same publisher nearly always carry maps of the same shape, so each
+ * generated schema is cached under a signature made of its key names and value types. Repeated
+ * shapes therefore share one Schema instance instead of building a new one per message.
+ */
+public class SDTConverter extends StructSchemaConverter<Object> {
+
+	private static final Logger log = LoggerFactory.getLogger(SDTConverter.class);
+
+	/**
+	 * Convert a map into a Struct.
+	 * @param map the map to convert
+	 * @param signature the shape of the map is appended to this, so that callers can cache schemas which contain the Struct
+	 */
+	public Struct toStruct(SDTMap map, StringBuilder signature) {
+		Set<String> keySet = map.keySet();
+		String[] keys = keySet.toArray(new String[keySet.size()]);
+		Arrays.sort(keys);
+
+		List<Object> raws = new ArrayList<Object>(keys.length);
+		for (String key : keys) {
+			Object raw = null;
+			try {
+				raw = map.get(key);
+			} catch (SDTException e) {
+				log.warn("Unable to read SDT map entry {}: {}", key, e.getMessage());
+			}
+			raws.add(raw);
+		}
+		return buildStruct(keys, raws, signature);
+	}
+
+	/**
+	 * Convert a stream into a list. If every element has the same type the array has that element type,
+	 * otherwise the elements are converted to strings.
+	 */
+	public List<Object> toList(SDTStream stream, StringBuilder signature, Schema[] schemaOut, int index) {
+		List<Object> raws = new ArrayList<Object>();
+		stream.rewind();
+		try {
+			while (stream.hasRemaining()) {
+				raws.add(stream.read());
+			}
+		} catch (SDTException e) {
+			log.warn("Unable to read SDT stream: {}", e.getMessage());
+		} finally {
+			stream.rewind();
+		}
+		return buildList(raws, signature, schemaOut, index);
+	}
+
+	/**
+	 * Convert a single SDT value, setting its schema in schemaOut[index] and appending its type to the signature.
+	 */
+	@Override
+	protected Object convertValue(Object raw, StringBuilder signature, Schema[] schemaOut, int index) {
+		if (raw instanceof String) {
+			signature.append('S');
+			schemaOut[index] = Schema.OPTIONAL_STRING_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof Integer) {
+			signature.append('I');
+			schemaOut[index] = Schema.OPTIONAL_INT32_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof Long) {
+			signature.append('L');
+			schemaOut[index] = Schema.OPTIONAL_INT64_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof Boolean) {
+			signature.append('Z');
+			schemaOut[index] = Schema.OPTIONAL_BOOLEAN_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof Double) {
+			signature.append('D');
+			schemaOut[index] = Schema.OPTIONAL_FLOAT64_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof Float) {
+			signature.append('F');
+			schemaOut[index] = Schema.OPTIONAL_FLOAT32_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof Short) {
+			signature.append('H');
+			schemaOut[index] = Schema.OPTIONAL_INT16_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof Byte) {
+			signature.append('B');
+			schemaOut[index] = Schema.OPTIONAL_INT8_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof byte[]) {
+			signature.append('Y');
+			schemaOut[index] = Schema.OPTIONAL_BYTES_SCHEMA;
+			return raw;
+		}
+		if (raw instanceof ByteArray) {
+			signature.append('Y');
+			schemaOut[index] = Schema.OPTIONAL_BYTES_SCHEMA;
+			return ((ByteArray) raw).asBytes();
+		}
+		if (raw instanceof SDTMap) {
+			Struct struct = toStruct((SDTMap) raw, signature);
+			schemaOut[index] = struct.schema();
+			return struct;
+		}
+		if (raw instanceof SDTStream) {
+			return toList((SDTStream) raw, signature, schemaOut, index);
+		}
+		// Characters, Destinations and anything else are passed on as text
+		signature.append('S');
+		schemaOut[index] = Schema.OPTIONAL_STRING_SCHEMA;
+		if (raw instanceof Destination) {
+			return ((Destination) raw).getName();
+		}
+		return raw.toString();
+	}
+
+	@Override
+	protected String toText(Object raw) {
+		return String.valueOf(raw);
+	}
+}
@@ -1,10 +1,13 @@
 package com.solace.kafka.connect;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigDef.Range;
+import org.apache.kafka.common.config.ConfigDef.ValidString;
 import org.apache.kafka.common.config.ConfigDef.Type;
 import org.apache.kafka.common.config.ConfigDef.Width;
 
@@ -15,6 +18,7 @@ public class SolaceConfigDef extends AbstractConfig
 	{
 		String SOLACE_GROUP = "Solace Connection Parameters";
 		String SOLACE_RECONNECT_GROUP = "Solace Re-Connection Parameters";
+		String SOLACE_TUNING_GROUP = "Solace Performance Tuning";
 		String INTERNAL_GROUP = "Connector Internal Behaviour";
 		ConfigDef defs = new ConfigDef()
 				// Connection parameters
@@ -78,6 +82,119 @@ public class SolaceConfigDef extends AbstractConfig
 						Width.LONG,
 						null
 						)
+				.define(SolaceConnectorConstants.SOLACE_HA_STANDBY_MODE, 
+						Type.STRING, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_HA_STANDBY_MODE, 
+						ValidString.in(SolaceConnectorConstants.HAStandbyMode.SUBSCRIBED.getValue(),
+								SolaceConnectorConstants.HAStandbyMode.IDLE.getValue()),
+						ConfigDef.Importance.MEDIUM, 
+						"What a task does while it is the backup member of the group named by solace.ha_sentinel_queue. "
+							+ "'subscribed' keeps its subscriptions, 'idle' removes its topic subscriptions (or stops its queue flow) "
+							+ "so that no messages are sent to it, and restores them as soon as it becomes active.",
+						SOLACE_GROUP, 
+						4,
+						Width.SHORT,
+						null
+						)
+				.define(SolaceConnectorConstants.SOLACE_HA_CHECKPOINT_TOPIC, 
+						Type.STRING, 
+						null, 
+						ConfigDef.Importance.MEDIUM, 
+						"Topic the active member of the HA group publishes its progress to, so that the member taking over can drop "
+							+ "messages which were already written to Kafka. The sentinel queue keeps the last checkpoint. "
+							+ "Must not match solace.topic. Only messages with a sender sequence number can be recognised.",
+						SOLACE_GROUP, 
+						4,
+						Width.LONG,
+						null
+						)
+				.define(SolaceConnectorConstants.SOLACE_HA_CHECKPOINT_INTERVAL, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_HA_CHECKPOINT_INTERVAL, 
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"Minimum time in milliseconds between two checkpoints published to solace.ha_checkpoint_topic.",
+						SOLACE_GROUP, 
+						4,
+						Width.SHORT,
+						null
+						)
+				.define(SolaceConnectorConstants.SOLACE_HA_STANDBY_BUFFER_SIZE, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_HA_STANDBY_BUFFER_SIZE, 
+						Range.atLeast(0),
+						ConfigDef.Importance.LOW, 
+						"Number of the most recent messages a backup keeps when solace.ha_checkpoint_topic is set and solace.ha_standby_mode "
+							+ "is 'subscribed'. On takeover those not covered by the last checkpoint are passed to Kafka first, closing the gap "
+							+ "left by the failed member. Should cover the message rate times the checkpoint interval plus the failover time.",
+						SOLACE_GROUP, 
+						4,
+						Width.SHORT,
+						null
+						)
+				.define(SolaceConnectorConstants.SOLACE_SUBSCRIPTION_MODE, 
+						Type.STRING, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_SUBSCRIPTION_MODE, 
+						ValidString.in(SolaceConnectorConstants.SubscriptionMode.PARTITIONED.getValue(),
+								SolaceConnectorConstants.SubscriptionMode.SHARED.getValue(),
+								SolaceConnectorConstants.SubscriptionMode.REPLICATED.getValue()),
+						ConfigDef.Importance.MEDIUM, 
+						"How the topics in solace.topic are divided between tasks. 'partitioned' gives each task its own subset of the topics, "
+							+ "'shared' subscribes every task to every topic using Solace shared subscriptions so the router load-balances messages between them, "
+							+ "'replicated' subscribes every task to every topic. When solace.ha_sentinel_queue or solace.queue is set every task "
+							+ "receives the full configuration.",
+						SOLACE_GROUP, 
+						5,
+						Width.SHORT,
+						null
+						)
+				.define(SolaceConnectorConstants.SOLACE_SHARED_SUBSCRIPTION_GROUP, 
+						Type.STRING, 
+						null, 
+						ConfigDef.Importance.LOW, 
+						"Share name used when solace.subscription_mode is 'shared'. Defaults to the connector name.",
+						SOLACE_GROUP, 
+						6,
+						Width.LONG,
+						null
+						)
+				.define(SolaceConnectorConstants.SOLACE_QUEUE, 
+						Type.STRING, 
+						null, 
+						ConfigDef.Importance.MEDIUM, 
+						"Name of a Queue to consume Guaranteed messages from instead of subscribing to solace.topic. "
+							+ "Messages are only acknowledged once Kafka has committed the corresponding records. All tasks bind to the same "
+							+ "queue, use a non-exclusive or partitioned queue to spread the load between them.",
+						SOLACE_GROUP, 
+						7,
+						Width.LONG,
+						null
+						)
+				.define(SolaceConnectorConstants.SOLACE_ACK_BATCH_SIZE, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_ACK_BATCH_SIZE, 
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"When consuming from solace.queue, how many committed messages are collected before they are acknowledged together. "
+							+ "Any remainder is acknowledged when the task commits its offsets.",
+						SOLACE_GROUP, 
+						8,
+						Width.LONG,
+						null
+						)
+				.define(SolaceConnectorConstants.SOLACE_SESSIONS_PER_TASK, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_SESSIONS_PER_TASK, 
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"Number of Solace sessions each task opens, each with its own connection and API thread, all feeding the same "
+							+ "task.poll(). The task's topics are divided between the sessions, so messages on one topic keep their order, "
+							+ "and with solace.queue every session binds a flow to the queue. More than one session implies polling.async.",
+						SOLACE_GROUP, 
+						9,
+						Width.SHORT,
+						null
+						)
 		// Reconnect related parameters
 				.define(SolaceConnectorConstants.SOLACE_RECONNECT_RETRIES, 
 						Type.INT, 
@@ -110,6 +227,107 @@ public class SolaceConfigDef extends AbstractConfig
 						3,
 						Width.LONG,
 						null)
+				.define(SolaceConnectorConstants.SOLACE_CONNECT_TIMEOUT, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_CONNECT_TIMEOUT,
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"How long in milliseconds to wait for each attempt to connect to a host.",
+						SOLACE_RECONNECT_GROUP, 
+						4,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.SOLACE_CONNECT_RETRIES_PER_HOST, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_CONNECT_RETRIES_PER_HOST,
+						Range.atLeast(-1),
+						ConfigDef.Importance.LOW, 
+						"How many times to retry connecting to each host in solace.smfHost before moving on to the next one, -1 to retry forever.",
+						SOLACE_RECONNECT_GROUP, 
+						5,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.SOLACE_KEEP_ALIVE_INTERVAL, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_KEEP_ALIVE_INTERVAL,
+						Range.atLeast(0),
+						ConfigDef.Importance.LOW, 
+						"Milliseconds between the keep-alive messages sent to the router, 0 to disable them.",
+						SOLACE_RECONNECT_GROUP, 
+						6,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.SOLACE_KEEP_ALIVE_LIMIT, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_KEEP_ALIVE_LIMIT,
+						Range.atLeast(3),
+						ConfigDef.Importance.LOW, 
+						"Number of consecutive keep-alive messages the router may leave unanswered before the connection is considered lost.",
+						SOLACE_RECONNECT_GROUP, 
+						7,
+						Width.LONG,
+						null)
+		// Performance tuning
+				.define(SolaceConnectorConstants.SOLACE_SOCKET_SEND_BUFFER, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_SOCKET_SEND_BUFFER,
+						Range.atLeast(0),
+						ConfigDef.Importance.LOW, 
+						"Size in bytes of the TCP send buffer of each session's socket.",
+						SOLACE_TUNING_GROUP, 
+						1,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.SOLACE_SOCKET_RECEIVE_BUFFER, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_SOCKET_RECEIVE_BUFFER,
+						Range.atLeast(0),
+						ConfigDef.Importance.LOW, 
+						"Size in bytes of the TCP receive buffer of each session's socket. A larger buffer lets the router keep "
+							+ "sending over long or fast links while the task is busy.",
+						SOLACE_TUNING_GROUP, 
+						2,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.SOLACE_TCP_NO_DELAY, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_TCP_NO_DELAY,
+						ConfigDef.Importance.LOW, 
+						"If true Nagle's algorithm is disabled, so small messages such as acknowledgements are sent without delay.",
+						SOLACE_TUNING_GROUP, 
+						3,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.SOLACE_SUB_ACK_WINDOW_SIZE, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_SUB_ACK_WINDOW_SIZE,
+						Range.between(1, 255),
+						ConfigDef.Importance.LOW, 
+						"Number of Guaranteed messages the router may send on a flow before the API acknowledges receiving them.",
+						SOLACE_TUNING_GROUP, 
+						4,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.SOLACE_REAPPLY_SUBSCRIPTIONS, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_REAPPLY_SUBSCRIPTIONS,
+						ConfigDef.Importance.LOW, 
+						"If true the API adds the task's topic subscriptions again after reconnecting to a router which has lost them.",
+						SOLACE_TUNING_GROUP, 
+						5,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.SOLACE_MESSAGE_CALLBACK_ON_REACTOR, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_SOLACE_MESSAGE_CALLBACK_ON_REACTOR,
+						ConfigDef.Importance.LOW, 
+						"If true polling.async hands messages over on the API's I/O thread rather than a separate dispatcher thread, "
+							+ "saving a thread switch per message. While the ring buffer is full the I/O thread then waits too, "
+							+ "so polling.async_buffer_size should be large enough to absorb a slow Kafka producer.",
+						SOLACE_TUNING_GROUP, 
+						6,
+						Width.SHORT,
+						null)
 		// Internal parameters
 				.define(SolaceConnectorConstants.CONNECTOR_INSTANCE, 
 						Type.STRING, 
@@ -129,7 +347,159 @@ public class SolaceConfigDef extends AbstractConfig
 						1,
 						Width.LONG,
 						null)
+				.define(SolaceConnectorConstants.KAFKA_TOPIC_ROUTES, 
+						Type.STRING, 
+						null,
+						ConfigDef.Importance.MEDIUM, 
+						"Comma separated list of <solace topic pattern>:<kafka topic> routes, eg 'prices/>:prices,orders/*/new:new_orders'. "
+							+ "Patterns may contain the Solace wildcards '*' and '>'. A message is written to the Kafka topic of the first route "
+							+ "matching its destination, or to the topic property if none match.",
+						INTERNAL_GROUP, 
+						1,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.KAFKA_TOPIC_ROUTE_CACHE_SIZE, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_KAFKA_TOPIC_ROUTE_CACHE_SIZE,
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"Maximum number of resolved destination to Kafka topic mappings which are cached.",
+						INTERNAL_GROUP, 
+						1,
+						Width.LONG,
+						null)
 
+				.define(SolaceConnectorConstants.RECORD_MODE, 
+						Type.STRING, 
+						SolaceConnectorConstants.DEFAULT_RECORD_MODE,
+						ValidString.in(SolaceConnectorConstants.RecordMode.STRUCT.getValue(),
+								SolaceConnectorConstants.RecordMode.RAW.getValue()),
+						ConfigDef.Importance.MEDIUM, 
+						"'struct' writes a Struct containing the Solace message header fields and payload to Kafka. "
+							+ "'raw' writes only the payload as bytes, the record key still identifies the destination and sender.",
+						INTERNAL_GROUP, 
+						1,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.RECORD_FIELDS, 
+						Type.STRING, 
+						null,
+						ConfigDef.Importance.LOW, 
+						"Comma separated list of the Solace header fields to include in the Struct when record.mode is 'struct', "
+							+ "eg 'Destination,DeliveryMode,SenderTimestamp'. The payload fields are always included. Defaults to all header fields.",
+						INTERNAL_GROUP, 
+						1,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.RECORD_ZERO_COPY, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_RECORD_ZERO_COPY,
+						ConfigDef.Importance.LOW, 
+						"If true binary payloads are passed to Kafka as ByteBuffer views of the received message instead of being copied "
+							+ "into a new byte array. The value converter must write a ByteBuffer from its position to its limit, and must be set "
+							+ "as value.converter in the connector configuration. None of the converters shipped with Kafka 0.11 do this: "
+							+ "JsonConverter, ByteArrayConverter and StringConverter are rejected when the task starts.",
+						INTERNAL_GROUP, 
+						1,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.RECORD_KEY_CACHE_SIZE, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_RECORD_KEY_CACHE_SIZE,
+						Range.atLeast(0),
+						ConfigDef.Importance.LOW, 
+						"Number of Solace destinations for which the record key, source partition and Kafka topic are kept, "
+							+ "so that records from the same destination and sender share them. 0 builds them for every message.",
+						INTERNAL_GROUP, 
+						1,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.RECORD_KEY, 
+						Type.STRING, 
+						SolaceConnectorConstants.DEFAULT_RECORD_KEY,
+						ValidString.in(SolaceConnectorConstants.KeyStrategy.DESTINATION_SENDER.getValue(),
+								SolaceConnectorConstants.KeyStrategy.DESTINATION.getValue(),
+								SolaceConnectorConstants.KeyStrategy.TOPIC_LEVEL.getValue(),
+								SolaceConnectorConstants.KeyStrategy.CORRELATION_ID.getValue(),
+								SolaceConnectorConstants.KeyStrategy.USER_PROPERTY.getValue(),
+								SolaceConnectorConstants.KeyStrategy.NONE.getValue()),
+						ConfigDef.Importance.MEDIUM, 
+						"What the record key is taken from: 'destination_sender' the destination name and sender id, 'destination' the "
+							+ "destination name, 'topic_level' one level of the destination, 'correlation_id' the correlation id, "
+							+ "'user_property' the user property named by record.key.property, 'none' no key so records are spread round-robin.",
+						INTERNAL_GROUP, 
+						1,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.RECORD_KEY_PROPERTY, 
+						Type.STRING, 
+						null,
+						ConfigDef.Importance.LOW, 
+						"Name of the user property holding the record key when record.key is 'user_property'.",
+						INTERNAL_GROUP, 
+						1,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.RECORD_KEY_TOPIC_LEVEL, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_RECORD_KEY_TOPIC_LEVEL,
+						ConfigDef.Importance.LOW, 
+						"Level of the destination used as the record key when record.key is 'topic_level', counting from 0. "
+							+ "Negative levels count back from the last one, so -1 is the last level.",
+						INTERNAL_GROUP, 
+						1,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.RECORD_PARTITIONS, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_RECORD_PARTITIONS,
+						Range.atLeast(0),
+						ConfigDef.Importance.LOW, 
+						"If set the connector chooses the Kafka partition itself, from a murmur2 hash of the record key's UTF-8 bytes modulo this "
+							+ "number or round-robin for records without a key. Must not be more than the partitions of any topic written to. "
+							+ "This matches Kafka's default partitioner only when key.converter is the StringConverter, other converters "
+							+ "serialize the key differently so the producer would choose other partitions. "
+							+ "0 leaves the choice to the producer's partitioner.",
+						INTERNAL_GROUP, 
+						1,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.RECORD_TIMESTAMP, 
+						Type.STRING, 
+						SolaceConnectorConstants.DEFAULT_RECORD_TIMESTAMP,
+						ValidString.in(SolaceConnectorConstants.TimestampSource.PRODUCER.getValue(),
+								SolaceConnectorConstants.TimestampSource.SENDER.getValue(),
+								SolaceConnectorConstants.TimestampSource.RECEIVE.getValue()),
+						ConfigDef.Importance.MEDIUM, 
+						"Timestamp of the Kafka records: 'producer' leaves it to the producer, 'sender' uses the message's sender timestamp, "
+							+ "'receive' the time the connector received it. Messages without a sender timestamp get the receive time, "
+							+ "and the receive time falls back to the time of conversion.",
+						INTERNAL_GROUP, 
+						1,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.PAYLOAD_DECODERS, 
+						Type.STRING, 
+						null,
+						ConfigDef.Importance.LOW, 
+						"Comma separated list of <content type>:<class name> entries selecting the PayloadDecoder for Text and Bytes "
+							+ "messages of each content type, eg 'application/json:com.solace.kafka.connect.JsonPayloadDecoder'. "
+							+ "A content type of '*' matches any other content type. The decoded value is written to the DataDecoded field, "
+							+ "or is the record value when record.mode is 'raw'.",
+						INTERNAL_GROUP, 
+						1,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.PAYLOAD_CONTENT_TYPE_PROPERTY, 
+						Type.STRING, 
+						null,
+						ConfigDef.Importance.LOW, 
+						"Name of a user property holding the content type of the payload. "
+							+ "Messages without it are decoded according to their HTTP content type.",
+						INTERNAL_GROUP, 
+						1,
+						Width.LONG,
+						null)
 				.define(SolaceConnectorConstants.LONG_POLL_INTERVAL, 
 						Type.INT, 
 						SolaceConnectorConstants.DEFAULT_LONG_POLL_INTERVAL, 
@@ -156,6 +526,132 @@ public class SolaceConfigDef extends AbstractConfig
 						INTERNAL_GROUP, 
 						3,
 						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.POLL_ASYNC, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_POLL_ASYNC, 
+						ConfigDef.Importance.LOW, 
+						"If true messages are received asynchronously into a ring buffer and task.poll() drains everything available "
+							+ "(up to polling.batch_size) after a single wait of at most polling.long_interval. polling.short_interval is not used.",
+						INTERNAL_GROUP, 
+						4,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.POLL_ASYNC_BUFFER_SIZE, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_POLL_ASYNC_BUFFER_SIZE, 
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"Number of messages which can be held between the Solace API and task.poll() when polling.async is true.",
+						INTERNAL_GROUP, 
+						5,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.POLL_MAX_BATCH_BYTES, 
+						Type.LONG, 
+						SolaceConnectorConstants.DEFAULT_POLL_MAX_BATCH_BYTES, 
+						Range.atLeast(0),
+						ConfigDef.Importance.MEDIUM, 
+						"Maximum payload bytes (content plus attachment) of the messages returned by one task.poll(), in addition to polling.batch_size. "
+							+ "The first message of a batch is always returned even if it is larger. 0 means no limit.",
+						INTERNAL_GROUP, 
+						6,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.POLL_ADAPTIVE, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_POLL_ADAPTIVE, 
+						ConfigDef.Importance.LOW, 
+						"If true the batch size and short poll wait are adjusted after every task.poll() from the observed message arrival rate "
+							+ "and the time Kafka Connect takes to deliver each batch. polling.batch_size and polling.short_interval are the starting values, "
+							+ "bounded by polling.min_batch_size, polling.max_batch_size, polling.min_short_interval and polling.max_short_interval.",
+						INTERNAL_GROUP, 
+						7,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.POLL_MIN_BATCH_SIZE, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_POLL_MIN_BATCH_SIZE, 
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"Smallest batch size used when polling.adaptive is true.",
+						INTERNAL_GROUP, 
+						8,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.POLL_MAX_BATCH_SIZE, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_POLL_MAX_BATCH_SIZE, 
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"Largest batch size used when polling.adaptive is true.",
+						INTERNAL_GROUP, 
+						9,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.POLL_MIN_SHORT_INTERVAL, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_POLL_MIN_SHORT_INTERVAL, 
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"Shortest wait in milliseconds for a further message used when polling.adaptive is true.",
+						INTERNAL_GROUP, 
+						10,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.POLL_MAX_SHORT_INTERVAL, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_POLL_MAX_SHORT_INTERVAL, 
+						Range.atLeast(1),
+						ConfigDef.Importance.LOW, 
+						"Longest wait in milliseconds for a further message used when polling.adaptive is true.",
+						INTERNAL_GROUP, 
+						11,
+						Width.LONG,
+						null)
+				.define(SolaceConnectorConstants.POLL_LOW_LATENCY, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_POLL_LOW_LATENCY, 
+						ConfigDef.Importance.LOW, 
+						"If true each message is converted on the Solace API's I/O thread as it arrives (as with solace.messageCallbackOnReactor) "
+							+ "and task.poll() takes the whole batch collected so far, up to polling.batch_size records and polling.max_batch_bytes. "
+							+ "Takes precedence over polling.async, and polling.short_interval and polling.adaptive are not used. "
+							+ "Cannot be combined with solace.ha_checkpoint_topic, and with solace.ha_sentinel_queue requires solace.ha_standby_mode=idle.",
+						INTERNAL_GROUP, 
+						12,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.METRICS_LATENCY, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_METRICS_LATENCY, 
+						ConfigDef.Importance.LOW, 
+						"If true the latency of each message is measured at each stage from its sender timestamp to the record being written "
+							+ "to Kafka. The percentiles of every stage are published to JMX and logged once per metrics.latency.interval_ms.",
+						INTERNAL_GROUP, 
+						13,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.METRICS_LATENCY_INTERVAL, 
+						Type.INT, 
+						SolaceConnectorConstants.DEFAULT_METRICS_LATENCY_INTERVAL, 
+						Range.atLeast(1000),
+						ConfigDef.Importance.LOW, 
+						"Interval in milliseconds over which the latency percentiles are taken when metrics.latency is true.",
+						INTERNAL_GROUP, 
+						14,
+						Width.SHORT,
+						null)
+				.define(SolaceConnectorConstants.OFFSETS_RESUME, 
+						Type.BOOLEAN, 
+						SolaceConnectorConstants.DEFAULT_OFFSETS_RESUME, 
+						ConfigDef.Importance.MEDIUM, 
+						"If true the records from solace.queue all share one source partition, named after the queue, and on start the task "
+							+ "reads back the offset committed for it. Redelivered messages up to that offset were already written to Kafka, "
+							+ "so they are acknowledged and dropped. Requires solace.queue and a single consumer of it, "
+							+ "tasks.max=1 and solace.sessions_per_task=1.",
+						INTERNAL_GROUP, 
+						15,
+						Width.SHORT,
 						null);
 		
 		return defs;
@@ -166,6 +662,25 @@ public class SolaceConfigDef extends AbstractConfig
 		// TODO Auto-generated constructor stub
 	}
 	
+	/**
+	 * Split a comma separated list such as solace.topic into its trimmed, non-empty elements.
+	 * @param list
+	 * @return
+	 */
+	public static List<String> splitList(String list) {
+		List<String> elements = new ArrayList<String>();
+		if (list == null) {
+			return elements;
+		}
+		for (String element : list.split(",")) {
+			String trimmed = element.trim();
+			if (!trimmed.isEmpty()) {
+				elements.add(trimmed);
+			}
+		}
+		return elements;
+	}
+	
 	/**
 	 * Generate configuration documentation in RST format.
 	 * @param args
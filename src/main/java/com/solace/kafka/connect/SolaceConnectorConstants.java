@@ -10,6 +10,9 @@ public class SolaceConnectorConstants {
 	public static final String CONNECTOR_NAME = "solace_kafka_source";
 	public static final String CONNECTOR_VERSION = "0.1";
 	public static final String CONNECTOR_INSTANCE = "connector.instance";
+	// set by Kafka Connect
+	public static final String CONNECTOR_NAME_PROPERTY = "name";
+	public static final String VALUE_CONVERTER_PROPERTY = "value.converter";
 
 	public static final String SOLACE_VPN = "solace.msgVpn";
 	
@@ -22,6 +25,27 @@ public class SolaceConnectorConstants {
 	public static final String SOLACE_TOPIC = "solace.topic";
 	
 	public static final String SOLACE_HA_QUEUE = "solace.ha_sentinel_queue";
+	public static final String SOLACE_HA_STANDBY_MODE = "solace.ha_standby_mode";
+	public static final String DEFAULT_SOLACE_HA_STANDBY_MODE = "subscribed";
+	public static final String SOLACE_HA_CHECKPOINT_TOPIC = "solace.ha_checkpoint_topic";
+	public static final String SOLACE_HA_CHECKPOINT_INTERVAL = "solace.ha_checkpoint_interval";
+	public static final int DEFAULT_SOLACE_HA_CHECKPOINT_INTERVAL = 100;
+	public static final String SOLACE_HA_STANDBY_BUFFER_SIZE = "solace.ha_standby_buffer_size";
+	public static final int DEFAULT_SOLACE_HA_STANDBY_BUFFER_SIZE = 10000;
+	
+	public static final String SOLACE_SUBSCRIPTION_MODE = "solace.subscription_mode";
+	public static final String DEFAULT_SOLACE_SUBSCRIPTION_MODE = "partitioned";
+	
+	public static final String SOLACE_SHARED_SUBSCRIPTION_GROUP = "solace.shared_subscription_group";
+	public static final String SHARED_SUBSCRIPTION_PREFIX = "#share/";
+	
+	public static final String SOLACE_QUEUE = "solace.queue";
+	
+	public static final String SOLACE_ACK_BATCH_SIZE = "solace.ack_batch_size";
+	public static final int DEFAULT_SOLACE_ACK_BATCH_SIZE = 100;
+	
+	public static final String SOLACE_SESSIONS_PER_TASK = "solace.sessions_per_task";
+	public static final int DEFAULT_SOLACE_SESSIONS_PER_TASK = 1;
 	
 	public static final String SOLACE_RECONNECT_RETRIES = "solace.reconnectRetries";
 	public static final int DEFAULT_SOLACE_RECONNECT_RETRIES = 3;
@@ -32,8 +56,83 @@ public class SolaceConnectorConstants {
 	public static final String SOLACE_COMPRESSION_LEVEL = "solace.compressionLevel";
 	public static final int DEFAULT_SOLACE_COMPRESSION_LEVEL = 0;
 	
+	public static final String SOLACE_CONNECT_TIMEOUT = "solace.connectTimeoutInMillis";
+	public static final int DEFAULT_SOLACE_CONNECT_TIMEOUT = 30000;
+	
+	public static final String SOLACE_CONNECT_RETRIES_PER_HOST = "solace.connectRetriesPerHost";
+	public static final int DEFAULT_SOLACE_CONNECT_RETRIES_PER_HOST = 0;
+	
+	public static final String SOLACE_KEEP_ALIVE_INTERVAL = "solace.keepAliveIntervalInMillis";
+	public static final int DEFAULT_SOLACE_KEEP_ALIVE_INTERVAL = 3000;
+	
+	public static final String SOLACE_KEEP_ALIVE_LIMIT = "solace.keepAliveLimit";
+	public static final int DEFAULT_SOLACE_KEEP_ALIVE_LIMIT = 10;
+	
+	/**
+	 * Performance tuning, the defaults are those of the JCSMP API
+	 */
+	public static final String SOLACE_SOCKET_SEND_BUFFER = "solace.socketSendBuffer";
+	public static final int DEFAULT_SOLACE_SOCKET_SEND_BUFFER = 65536;
+	
+	public static final String SOLACE_SOCKET_RECEIVE_BUFFER = "solace.socketReceiveBuffer";
+	public static final int DEFAULT_SOLACE_SOCKET_RECEIVE_BUFFER = 65536;
+	
+	public static final String SOLACE_TCP_NO_DELAY = "solace.tcpNoDelay";
+	public static final boolean DEFAULT_SOLACE_TCP_NO_DELAY = true;
+	
+	public static final String SOLACE_SUB_ACK_WINDOW_SIZE = "solace.subAckWindowSize";
+	public static final int DEFAULT_SOLACE_SUB_ACK_WINDOW_SIZE = 255;
+	
+	public static final String SOLACE_REAPPLY_SUBSCRIPTIONS = "solace.reapplySubscriptions";
+	public static final boolean DEFAULT_SOLACE_REAPPLY_SUBSCRIPTIONS = false;
+	
+	public static final String SOLACE_MESSAGE_CALLBACK_ON_REACTOR = "solace.messageCallbackOnReactor";
+	public static final boolean DEFAULT_SOLACE_MESSAGE_CALLBACK_ON_REACTOR = false;
+	
+	public static final String OFFSETS_RESUME = "offsets.resume";
+	public static final boolean DEFAULT_OFFSETS_RESUME = false;
+	
+	public static final String METRICS_LATENCY = "metrics.latency";
+	public static final boolean DEFAULT_METRICS_LATENCY = false;
+	
+	public static final String METRICS_LATENCY_INTERVAL = "metrics.latency.interval_ms";
+	public static final int DEFAULT_METRICS_LATENCY_INTERVAL = 60000;
+	
 	public static final String KAFKA_TOPIC = "topic";
 	
+	public static final String KAFKA_TOPIC_ROUTES = "topic.routes";
+	
+	public static final String KAFKA_TOPIC_ROUTE_CACHE_SIZE = "topic.routes.cache_size";
+	public static final int DEFAULT_KAFKA_TOPIC_ROUTE_CACHE_SIZE = 10000;
+	
+	public static final String RECORD_MODE = "record.mode";
+	public static final String DEFAULT_RECORD_MODE = "struct";
+	
+	public static final String RECORD_FIELDS = "record.fields";
+	
+	public static final String RECORD_ZERO_COPY = "record.zero_copy";
+	public static final boolean DEFAULT_RECORD_ZERO_COPY = false;
+	
+	public static final String RECORD_KEY_CACHE_SIZE = "record.key_cache_size";
+	public static final int DEFAULT_RECORD_KEY_CACHE_SIZE = 10000;
+	
+	public static final String RECORD_KEY = "record.key";
+	public static final String DEFAULT_RECORD_KEY = "destination_sender";
+	
+	public static final String RECORD_KEY_PROPERTY = "record.key.property";
+	
+	public static final String RECORD_KEY_TOPIC_LEVEL = "record.key.topic_level";
+	public static final int DEFAULT_RECORD_KEY_TOPIC_LEVEL = 0;
+	
+	public static final String RECORD_PARTITIONS = "record.partitions";
+	public static final int DEFAULT_RECORD_PARTITIONS = 0;
+	
+	public static final String RECORD_TIMESTAMP = "record.timestamp";
+	public static final String DEFAULT_RECORD_TIMESTAMP = "producer";
+	
+	public static final String PAYLOAD_DECODERS = "payload.decoders";
+	public static final String PAYLOAD_CONTENT_TYPE_PROPERTY = "payload.content_type_property";
+	
 	public static final String LONG_POLL_INTERVAL = "polling.long_interval";
 	public static final int DEFAULT_LONG_POLL_INTERVAL = 1000;
 	
@@ -43,9 +142,37 @@ public class SolaceConnectorConstants {
 	public static final String POLL_BATCH_SIZE = "polling.batch_size";
 	public static final int DEFAULT_POLL_BATCH_SIZE = 100;
 	
+	public static final String POLL_ASYNC = "polling.async";
+	public static final boolean DEFAULT_POLL_ASYNC = false;
+	
+	public static final String POLL_ASYNC_BUFFER_SIZE = "polling.async_buffer_size";
+	public static final int DEFAULT_POLL_ASYNC_BUFFER_SIZE = 8192;
+	
+	public static final String POLL_MAX_BATCH_BYTES = "polling.max_batch_bytes";
+	public static final long DEFAULT_POLL_MAX_BATCH_BYTES = 0;
+	
+	public static final String POLL_ADAPTIVE = "polling.adaptive";
+	public static final boolean DEFAULT_POLL_ADAPTIVE = false;
+	
+	public static final String POLL_MIN_BATCH_SIZE = "polling.min_batch_size";
+	public static final int DEFAULT_POLL_MIN_BATCH_SIZE = 10;
+	
+	public static final String POLL_MAX_BATCH_SIZE = "polling.max_batch_size";
+	public static final int DEFAULT_POLL_MAX_BATCH_SIZE = 10000;
+	
+	public static final String POLL_MIN_SHORT_INTERVAL = "polling.min_short_interval";
+	public static final int DEFAULT_POLL_MIN_SHORT_INTERVAL = 1;
+	
+	public static final String POLL_MAX_SHORT_INTERVAL = "polling.max_short_interval";
+	public static final int DEFAULT_POLL_MAX_SHORT_INTERVAL = 50;
+	
+	public static final String POLL_LOW_LATENCY = "polling.low_latency";
+	public static final boolean DEFAULT_POLL_LOW_LATENCY = false;
+	
 
 	public static final String SCHEMA_NAME = "com.solace.kafka.message";
 	public static final String SCHEMA_MAP_NAME = "com.solace.kafka.map";
+	public static final String SCHEMA_DECODED_NAME = "com.solace.kafka.decoded";
 
 	public static final Integer SCHEMA_VERSION = 1;
 
@@ -79,6 +206,164 @@ public class SolaceConnectorConstants {
 	public static final String FIELD_DATA_TEXT = "DataText";
 	public static final String FIELD_DATA_BYTES = "DataBytes";
 	public static final String FIELD_DATA_MAP = "DataMap";
+	public static final String FIELD_DATA_DECODED = "DataDecoded";
+	
+	/**
+	 * How the topics in solace.topic are distributed between the tasks of the connector
+	 */
+	public static enum SubscriptionMode {
+		// Each task subscribes to its own share of the topics
+		PARTITIONED("partitioned"),
+		// Each task subscribes to all topics using shared subscriptions, the router load-balances between them
+		SHARED("shared"),
+		// Each task subscribes to all topics, use with solace.ha_sentinel_queue
+		REPLICATED("replicated");
+		
+		private String value;
+		
+		SubscriptionMode(String _val) {
+			this.value = _val; 
+		}
+		
+		public String getValue() {
+			return value;
+		}
+		
+		public static SubscriptionMode fromValue(String _val) {
+			for (SubscriptionMode mode : values()) {
+				if (mode.value.equalsIgnoreCase(_val)) {
+					return mode;
+				}
+			}
+			throw new IllegalArgumentException("Unknown subscription mode: "+_val);
+		}
+	}
+	
+	/**
+	 * What a task does with its subscriptions while it is the HA backup
+	 */
+	public static enum HAStandbyMode {
+		// Keep the subscriptions and consumer as they are, only the active member polls
+		SUBSCRIBED("subscribed"),
+		// Remove the topic subscriptions or stop the queue flow until the task becomes active
+		IDLE("idle");
+		
+		private String value;
+		
+		HAStandbyMode(String _val) {
+			this.value = _val; 
+		}
+		
+		public String getValue() {
+			return value;
+		}
+		
+		public static HAStandbyMode fromValue(String _val) {
+			for (HAStandbyMode mode : values()) {
+				if (mode.value.equalsIgnoreCase(_val)) {
+					return mode;
+				}
+			}
+			throw new IllegalArgumentException("Unknown HA standby mode: "+_val);
+		}
+	}
+	
+	/**
+	 * What the value of each Kafka record contains
+	 */
+	public static enum RecordMode {
+		// A Struct with the message header fields and payload
+		STRUCT("struct"),
+		// Just the payload bytes
+		RAW("raw");
+		
+		private String value;
+		
+		RecordMode(String _val) {
+			this.value = _val; 
+		}
+		
+		public String getValue() {
+			return value;
+		}
+		
+		public static RecordMode fromValue(String _val) {
+			for (RecordMode mode : values()) {
+				if (mode.value.equalsIgnoreCase(_val)) {
+					return mode;
+				}
+			}
+			throw new IllegalArgumentException("Unknown record mode: "+_val);
+		}
+	}
+	
+	/**
+	 * What the key of each Kafka record is taken from
+	 */
+	public static enum KeyStrategy {
+		// Destination name and sender id, the key used before strategies were selectable
+		DESTINATION_SENDER("destination_sender"),
+		// Destination name only
+		DESTINATION("destination"),
+		// One level of the destination topic
+		TOPIC_LEVEL("topic_level"),
+		// The message's correlation id
+		CORRELATION_ID("correlation_id"),
+		// A named user property of the message
+		USER_PROPERTY("user_property"),
+		// No key, records are spread round-robin
+		NONE("none");
+		
+		private String value;
+		
+		KeyStrategy(String _val) {
+			this.value = _val; 
+		}
+		
+		public String getValue() {
+			return value;
+		}
+		
+		public static KeyStrategy fromValue(String _val) {
+			for (KeyStrategy strategy : values()) {
+				if (strategy.value.equalsIgnoreCase(_val)) {
+					return strategy;
+				}
+			}
+			throw new IllegalArgumentException("Unknown record key strategy: "+_val);
+		}
+	}
+	
+	/**
+	 * Where the timestamp of each Kafka record comes from
+	 */
+	public static enum TimestampSource {
+		// Left to the producer, which uses the time the record is sent
+		PRODUCER("producer"),
+		// The sender timestamp, else the receive timestamp
+		SENDER("sender"),
+		// The time the message was received from the router
+		RECEIVE("receive");
+		
+		private String value;
+		
+		TimestampSource(String _val) {
+			this.value = _val; 
+		}
+		
+		public String getValue() {
+			return value;
+		}
+		
+		public static TimestampSource fromValue(String _val) {
+			for (TimestampSource source : values()) {
+				if (source.value.equalsIgnoreCase(_val)) {
+					return source;
+				}
+			}
+			throw new IllegalArgumentException("Unknown record timestamp: "+_val);
+		}
+	}
 	
 	public static enum DataType {
 		TEXT("text"),
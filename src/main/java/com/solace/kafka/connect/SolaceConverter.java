@@ -1,11 +1,19 @@
 package com.solace.kafka.connect;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.source.SourceRecord;
@@ -15,31 +23,139 @@ import org.slf4j.LoggerFactory;
 import com.solacesystems.jcsmp.BytesMessage;
 import com.solacesystems.jcsmp.BytesXMLMessage;
 import com.solacesystems.jcsmp.DeliveryMode;
-import com.solacesystems.jcsmp.Destination;
 import com.solacesystems.jcsmp.MapMessage;
+import com.solacesystems.jcsmp.SDTException;
 import com.solacesystems.jcsmp.SDTMap;
+import com.solacesystems.jcsmp.StreamMessage;
 import com.solacesystems.jcsmp.TextMessage;
 
 public class SolaceConverter{
 	
 	private static final Logger log = LoggerFactory.getLogger(SolaceConverter.class);
 	
-	private static Schema solaceKafkaSchema = getSchema();
+	/**
+	 * Source partition key of the records from a queue with offsets.resume
+	 */
+	static final String QUEUE_PARTITION_KEY = "solaceQueue";
+	/**
+	 * Source offset key of the message id which offsets.resume reads back
+	 */
+	static final String OFFSET_MESSAGE_ID_LONG = "MessageIdLong";
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
 
 	protected SolaceSourceTask parentTask;
 	
+	/**
+	 * The header fields selected by record.fields, with the matching fields of solaceKafkaSchema.
+	 * UserProperties is handled separately since its schema depends on the message.
+	 */
+	private final HeaderField[] headerFields;
+	private final Field[] headerSchemaFields;
+	private final boolean includeUserProperties;
+	
+	/**
+	 * Schema used when the message has no user properties and no map payload
+	 */
+	private final Schema solaceKafkaSchema;
+	private final Field dataTypeField;
+	private final Field dataTextField;
+	private final Field dataBytesField;
+	
+	/**
+	 * Message schemas containing the dynamic map schemas, by map signature
+	 */
+	private final ConcurrentHashMap<String, Schema> messageSchemas = new ConcurrentHashMap<String, Schema>();
+	private final SDTConverter sdtConverter = new SDTConverter();
+	/**
+	 * Pass binary payloads on as views of the attachment rather than copies
+	 */
+	private final boolean zeroCopy;
+	/**
+	 * Payload decoders by content type, null if none are configured
+	 */
+	private final PayloadDecoderRegistry decoders;
+	private final String contentTypeProperty;
+	/**
+	 * Decoders return one Schema instance per payload shape, numbered here for the message schema signature
+	 */
+	private final Map<Schema, Integer> decodedSchemaIds = new IdentityHashMap<Schema, Integer>();
+	/**
+	 * Record keys, source partitions and Kafka topics by destination and sender, null if record.key_cache_size is 0
+	 */
+	private final RecordKeyCache keyCache;
+	private final RecordKeyStrategy keyStrategy;
+	private final Schema keySchema;
+	private final SolaceConnectorConstants.TimestampSource timestampSource;
+	/**
+	 * Only set when metrics.latency is configured
+	 */
+	private final LatencyTracker latencyTracker;
+	/**
+	 * The source partition of every record, only set with offsets.resume
+	 */
+	private final Map<String, String> queuePartition;
+	
 	public SolaceConverter(SolaceSourceTask solaceSourceTask) {
 		parentTask = solaceSourceTask;
+		zeroCopy = parentTask.zeroCopyPayloads;
+		decoders = parentTask.payloadDecoderRegistry == null || parentTask.payloadDecoderRegistry.isEmpty() ? null : parentTask.payloadDecoderRegistry;
+		contentTypeProperty = parentTask.payloadContentTypeProperty;
+		keyStrategy = parentTask.recordKeyStrategy;
+		keySchema = keyStrategy.keySchema();
+		timestampSource = parentTask.recordTimestamp;
+		latencyTracker = parentTask.latencyTracker;
+		queuePartition = parentTask.resumeOffsets ? queuePartition(parentTask.solaceQueueName) : null;
+		keyCache = parentTask.recordKeyCacheSize > 0
+				? new RecordKeyCache(parentTask.topicRouter, parentTask.kafkaTopicName, keyStrategy, parentTask.recordKeyCacheSize) : null;
+		
+		List<HeaderField> selected = parentTask.recordFields;
+		if (selected == null) {
+			selected = Arrays.asList(HeaderField.values());
+		}
+		includeUserProperties = selected.contains(HeaderField.USER_PROPERTIES);
+		List<HeaderField> plainFields = new ArrayList<HeaderField>(selected);
+		// converted to a Struct of their own, see mapSolaceToKafka()
+		plainFields.remove(HeaderField.USER_PROPERTIES);
+		headerFields = plainFields.toArray(new HeaderField[plainFields.size()]);
+		solaceKafkaSchema = getSchema(headerFields, includeUserProperties, getMapSchema(), getMapSchema(),
+				decoders == null ? null : getDecodedSchema());
+		// The field positions are the same in every variant of the schema
+		headerSchemaFields = new Field[headerFields.length];
+		for (int i=0; i<headerFields.length; i++) {
+			headerSchemaFields[i] = solaceKafkaSchema.field(headerFields[i].getFieldName());
+		}
+		dataTypeField = solaceKafkaSchema.field(SolaceConnectorConstants.FIELD_DATA_TYPE);
+		dataTextField = solaceKafkaSchema.field(SolaceConnectorConstants.FIELD_DATA_TEXT);
+		dataBytesField = solaceKafkaSchema.field(SolaceConnectorConstants.FIELD_DATA_BYTES);
+	}
+	
+	public Schema getValueSchema() {
+		return solaceKafkaSchema;
 	}
 	
     private Map<String, String> offsetKey(String key) {
-        return Collections.singletonMap("solaceKey", key);
+        return Collections.singletonMap(RecordKeyCache.PARTITION_KEY, key);
     }
 
     private Map<String, String> offsetValue(String pos) {
         return Collections.singletonMap(SolaceConnectorConstants.FIELD_SEQUENCE_NUMBER, pos);
     }
 
+    private Map<String, Object> queueOffsetValue(BytesXMLMessage solaceMessage) {
+        Map<String, Object> offset = new HashMap<String, Object>(4);
+        offset.put(SolaceConnectorConstants.FIELD_SEQUENCE_NUMBER, solaceMessage.getMessageId());
+        offset.put(OFFSET_MESSAGE_ID_LONG, solaceMessage.getMessageIdLong());
+        return offset;
+    }
+
+    /**
+     * @return the source partition of the records from the queue with offsets.resume
+     */
+    static Map<String, String> queuePartition(String queueName) {
+        return Collections.singletonMap(QUEUE_PARTITION_KEY, queueName);
+    }
+
 
 	/**
 	 * Process messages received from Solace - map to Kafka format
@@ -49,58 +165,152 @@ public class SolaceConverter{
 		if (log.isDebugEnabled()) {
 			log.debug("Converting: "+solaceMessage.dump());
 		}
-		String key = solaceMessage.getDestination().getName()+"_"+ solaceMessage.getSenderId();
+		String destinationName = solaceMessage.getDestination().getName();
+		String senderId = solaceMessage.getSenderId();
+		Map<String, String> sourcePartition;
+		String kafkaTopic;
+		String key;
+		Integer kafkaPartition;
+		if (keyCache != null) {
+			RecordKeyCache.Keys keys = keyCache.lookup(destinationName, senderId);
+			sourcePartition = keys.getSourcePartition();
+			kafkaTopic = keys.getKafkaTopic();
+			key = keys.getRecordKey();
+			kafkaPartition = keys.getKafkaPartition();
+		}
+		else {
+			sourcePartition = offsetKey(RecordKeyCache.buildKey(destinationName, senderId));
+			kafkaTopic = parentTask.topicRouter == null ? parentTask.kafkaTopicName : parentTask.topicRouter.route(destinationName);
+			key = null;
+			kafkaPartition = null;
+		}
+		if (key == null) {
+			// Not interned, either the key depends on the message or the cache is off
+			key = keyStrategy.messageKey(solaceMessage);
+			kafkaPartition = keyStrategy.partition(key);
+		}
 		
-		Struct kafkaStruct = mapSolaceToKafka(solaceMessage);
-		SourceRecord kafkaSourceRecord = new SourceRecord(
-				offsetKey(key), //Map<String, ?> sourcePartition
-				offsetValue(solaceMessage.getMessageId()), //Map<String, ?> sourceOffset
-				parentTask.kafkaTopicName, //String topic
-				Schema.STRING_SCHEMA, //Schema keySchema
+		Schema valueSchema;
+		Object value;
+		SchemaAndValue decoded = decodePayload(solaceMessage);
+		if (parentTask.recordMode == SolaceConnectorConstants.RecordMode.RAW) {
+			if (decoded != null) {
+				valueSchema = decoded.schema();
+				value = decoded.value();
+			}
+			else {
+				valueSchema = Schema.OPTIONAL_BYTES_SCHEMA;
+				value = getPayload(solaceMessage);
+			}
+		}
+		else {
+			Struct struct = mapSolaceToKafka(solaceMessage, decoded);
+			// The schema depends on the shape of any maps in the message
+			valueSchema = struct.schema();
+			value = struct;
+		}
+		// Only Guaranteed messages need to be kept for acknowledgement
+		BytesXMLMessage ackMessage = solaceMessage.getDeliveryMode() == DeliveryMode.DIRECT ? null : solaceMessage;
+		SolaceSourceRecord kafkaSourceRecord = new SolaceSourceRecord(
+				ackMessage, //BytesXMLMessage solaceMessage
+				senderId, //String senderId
+				solaceMessage.getSequenceNumber(), //Long sequenceNumber
+				queuePartition != null ? queuePartition : sourcePartition, //Map<String, ?> sourcePartition
+				queuePartition != null ? queueOffsetValue(solaceMessage) : offsetValue(solaceMessage.getMessageId()), //Map<String, ?> sourceOffset
+				kafkaTopic, //String topic
+				kafkaPartition, //Integer partition
+				keySchema, //Schema keySchema
 				key, //Object key
-				solaceKafkaSchema, //Schema valueSchema
-	            kafkaStruct //Object value
+				valueSchema, //Schema valueSchema
+	            value, //Object value
+	            getTimestamp(solaceMessage) //Long timestamp
 	            );
 		
-		log.debug("Created SourceRecord: "+kafkaSourceRecord.toString());
+		if (latencyTracker != null) {
+			latencyTracker.converted(kafkaSourceRecord, solaceMessage.getSenderTimestamp(), solaceMessage.getReceiveTimestamp());
+		}
+		
+		log.debug("Created SourceRecord: {}", kafkaSourceRecord);
 		return kafkaSourceRecord;
 	}
 
-	private static Schema getSchema() {
+	/**
+	 * @return the Kafka record timestamp selected by record.timestamp, null to leave it to the producer
+	 */
+	private Long getTimestamp(BytesXMLMessage solaceMessage) {
+		if (timestampSource == SolaceConnectorConstants.TimestampSource.PRODUCER) {
+			return null;
+		}
+		if (timestampSource == SolaceConnectorConstants.TimestampSource.SENDER) {
+			Long senderTS = solaceMessage.getSenderTimestamp();
+			if (senderTS != null && senderTS >= 0) {
+				return senderTS;
+			}
+		}
+		// The API only stamps messages when the session generates receive timestamps
+		long receiveTS = solaceMessage.getReceiveTimestamp();
+		return receiveTS > 0 ? receiveTS : System.currentTimeMillis();
+	}
+
+	/**
+	 * Build the Struct schema for the selected header fields plus the payload fields. 
+	 * UserProperties always comes last.
+	 * @param decodedSchema schema of the DataDecoded field, null to leave the field out
+	 */
+	static Schema getSchema(HeaderField[] fields, boolean userProperties, Schema userPropertiesSchema, Schema dataMapSchema,
+			Schema decodedSchema) {
 		SchemaBuilder sb = SchemaBuilder.struct()
 				.name(SolaceConnectorConstants.SCHEMA_NAME)
-				.version(SolaceConnectorConstants.SCHEMA_VERSION)
-				.field(SolaceConnectorConstants.FIELD_APPLICATION_MESSAGE_ID, Schema.OPTIONAL_STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_APPLICATION_DELIVERY_MODE, Schema.STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_ATTACHMENT_CONTENT_LENGTH, Schema.OPTIONAL_INT32_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_CACHE_REQUEST_ID, Schema.OPTIONAL_INT64_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_CONSUMER_ID_LIST, Schema.OPTIONAL_STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_CONTENT_LENGTH, Schema.OPTIONAL_INT32_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_CORRELATION_ID, Schema.OPTIONAL_STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_DESTINATION, Schema.STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_EXPIRATION, Schema.OPTIONAL_INT64_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_HTTP_CONTENT_ENCODING, Schema.OPTIONAL_STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_HTTP_CONTENT_TYPE, Schema.OPTIONAL_STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_MESSAGE_ID, Schema.OPTIONAL_STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_MESSAGE_ID_LONG, Schema.OPTIONAL_INT64_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_RECEIVE_TIMESTAMP, Schema.OPTIONAL_INT64_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_REDELIVERED, Schema.OPTIONAL_BOOLEAN_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_REPLYTO, Schema.OPTIONAL_STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_SENDERID, Schema.OPTIONAL_STRING_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_SENDER_TIMESTAMP, Schema.OPTIONAL_INT64_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_SEQUENCE_NUMBER, Schema.OPTIONAL_INT64_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_USER_DATA, Schema.OPTIONAL_BYTES_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_DATA_TYPE, Schema.OPTIONAL_STRING_SCHEMA)
+				.version(SolaceConnectorConstants.SCHEMA_VERSION);
+		for (HeaderField field : fields) {
+			sb.field(field.getFieldName(), field.getSchema());
+		}
+		sb.field(SolaceConnectorConstants.FIELD_DATA_TYPE, Schema.OPTIONAL_STRING_SCHEMA)
 				.field(SolaceConnectorConstants.FIELD_DATA_TEXT, Schema.OPTIONAL_STRING_SCHEMA)
 				.field(SolaceConnectorConstants.FIELD_DATA_BYTES, Schema.OPTIONAL_BYTES_SCHEMA)
-				.field(SolaceConnectorConstants.FIELD_DATA_MAP, getMapSchema())
-				.field(SolaceConnectorConstants.FIELD_USER_PROPERTIES, getMapSchema());
+				.field(SolaceConnectorConstants.FIELD_DATA_MAP, dataMapSchema);
+		if (decodedSchema != null) {
+			sb.field(SolaceConnectorConstants.FIELD_DATA_DECODED, decodedSchema);
+		}
+		if (userProperties) {
+			sb.field(SolaceConnectorConstants.FIELD_USER_PROPERTIES, userPropertiesSchema);
+		}
 				
 		Schema solMessageSchema = sb.build();
 		return solMessageSchema;
 	}
 
-	private static Schema getMapSchema() {
+	/**
+	 * Find or build the message schema containing the given map Structs and decoded payload.
+	 * @param signature identifies the shapes of the maps and the decoded payload
+	 */
+	private Schema getMessageSchema(String signature, Struct userProperties, Struct dataMap, SchemaAndValue decoded) {
+		Schema schema = messageSchemas.get(signature);
+		if (schema == null) {
+			schema = getSchema(headerFields, includeUserProperties,
+					userProperties == null ? getMapSchema() : userProperties.schema(),
+					dataMap == null ? getMapSchema() : dataMap.schema(),
+					decoders == null ? null : decoded == null ? getDecodedSchema() : decoded.schema());
+			if (messageSchemas.size() >= SDTConverter.MAX_CACHED_SCHEMAS) {
+				messageSchemas.clear();
+			}
+			messageSchemas.put(signature, schema);
+		}
+		return schema;
+	}
+
+	/**
+	 * Placeholder schema of the DataDecoded field for payloads which were not decoded
+	 */
+	static Schema getDecodedSchema() {
+		SchemaBuilder sb = SchemaBuilder.struct();
+		sb.name(SolaceConnectorConstants.SCHEMA_DECODED_NAME);
+		sb.version(SolaceConnectorConstants.SCHEMA_VERSION);
+		sb.optional();
+		return sb.build();
+	}
+
+	static Schema getMapSchema() {
 		SchemaBuilder sb = SchemaBuilder.struct();
 		sb.name(SolaceConnectorConstants.SCHEMA_MAP_NAME);
 		sb.version(SolaceConnectorConstants.SCHEMA_VERSION);
@@ -109,96 +319,191 @@ public class SolaceConverter{
 	}
 
 	/**
-	 * Extract as much information as possible from the received message and place it in a Record suitable for Kafka use
-	 * 
-	 * TODO add user property, payload and attachment handling
+	 * Extract the selected header fields and the payload from the received message and place it in a Record suitable for Kafka use
 	 * 
 	 * @param solaceMessage
 	 * @return
 	 */
-	private Struct mapSolaceToKafka(BytesXMLMessage solaceMessage) {
+	private Struct mapSolaceToKafka(BytesXMLMessage solaceMessage, SchemaAndValue decoded) {
 		
-		Struct kafkaStruct = new Struct(solaceKafkaSchema);
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_APPLICATION_MESSAGE_ID, solaceMessage.getApplicationMessageId());
-		DeliveryMode deliveryMode = solaceMessage.getDeliveryMode();
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_APPLICATION_DELIVERY_MODE, deliveryMode.toString());
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_ATTACHMENT_CONTENT_LENGTH, solaceMessage.getAttachmentContentLength());
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_CACHE_REQUEST_ID, solaceMessage.getCacheRequestId());
-		List<Long> consumerIds = solaceMessage.getConsumerIdList();
-		if (consumerIds.size() > 0) {
-			
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_CONSUMER_ID_LIST, consumerIds.toArray().toString());			
-		}
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_CONTENT_LENGTH, solaceMessage.getContentLength());
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_CORRELATION_ID, solaceMessage.getCorrelationId());
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_DESTINATION, solaceMessage.getDestination().getName());
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_EXPIRATION, solaceMessage.getExpiration());
-		if (solaceMessage.getHTTPContentEncoding() != null) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_HTTP_CONTENT_ENCODING, solaceMessage.getHTTPContentEncoding());
-		}
-		if (solaceMessage.getHTTPContentType() != null) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_HTTP_CONTENT_TYPE, solaceMessage.getHTTPContentType());
-		}
-		// MessageId is meaningless for DIRECT messages
-		if (deliveryMode != DeliveryMode.DIRECT) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_MESSAGE_ID, solaceMessage.getMessageId());
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_MESSAGE_ID_LONG, solaceMessage.getMessageIdLong());
-		}
-		long receiveTS = solaceMessage.getReceiveTimestamp();
-		if (receiveTS > 0) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_RECEIVE_TIMESTAMP, receiveTS);
+		// Convert the maps first as they determine the schema
+		StringBuilder signature = null;
+		Struct userProperties = null;
+		if (includeUserProperties) {
+			SDTMap properties = (SDTMap) HeaderField.USER_PROPERTIES.extract(solaceMessage);
+			if (properties != null) {
+				signature = new StringBuilder();
+				userProperties = sdtConverter.toStruct(properties, signature);
+			}
 		}
-		kafkaStruct.put(SolaceConnectorConstants.FIELD_REDELIVERED, solaceMessage.getRedelivered());
-		Destination replyToDest = solaceMessage.getReplyTo();
-		if (replyToDest != null) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_REPLYTO, replyToDest.getName());
+		Struct dataMap = null;
+		if (solaceMessage instanceof MapMessage) {
+			SDTMap map = ((MapMessage) solaceMessage).getMap();
+			if (map != null) {
+				if (signature == null) {
+					signature = new StringBuilder();
+				}
+				signature.append('|');
+				dataMap = sdtConverter.toStruct(map, signature);
+			}
 		}
-		String senderId = solaceMessage.getSenderId();
-		if (replyToDest != null) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_SENDERID, senderId);
+		if (decoded != null) {
+			if (signature == null) {
+				signature = new StringBuilder();
+			}
+			signature.append('#').append(getDecodedSchemaId(decoded.schema()));
 		}
-		Long senderTS = solaceMessage.getSenderTimestamp();
-		if (senderTS != null) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_SENDER_TIMESTAMP, senderTS);
-		}
-		Long seqNo = solaceMessage.getSequenceNumber();
-		if (seqNo != null) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_SEQUENCE_NUMBER, seqNo);
-		}
-		byte[] userData = solaceMessage.getUserData();
-		if (userData != null && userData.length > 0) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_USER_DATA, userData);
+		Schema schema = signature == null ? solaceKafkaSchema : getMessageSchema(signature.toString(), userProperties, dataMap, decoded);
+		
+		Struct kafkaStruct = new Struct(schema);
+		for (int i=0; i<headerFields.length; i++) {
+			Object value = headerFields[i].extract(solaceMessage);
+			if (value != null) {
+				kafkaStruct.put(headerSchemaFields[i], value);
+			}
 		}
-		SDTMap userProperties = solaceMessage.getProperties();
-		if (userProperties != null && !userProperties.isEmpty()) {
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_USER_PROPERTIES, mapSDTMap(userProperties));
+		if (userProperties != null) {
+			kafkaStruct.put(SolaceConnectorConstants.FIELD_USER_PROPERTIES, userProperties);
 		}
 		
-		// Now deal with the payload.
-		if(solaceMessage instanceof TextMessage) {
+		// Now deal with the payload. A decoded payload replaces the text or bytes
+		if (decoded != null) {
+			kafkaStruct.put(dataTypeField, (solaceMessage instanceof TextMessage ?
+					SolaceConnectorConstants.DataType.TEXT : SolaceConnectorConstants.DataType.BYTES).getValue());
+			kafkaStruct.put(SolaceConnectorConstants.FIELD_DATA_DECODED, decoded.value());
+		}
+		else if(solaceMessage instanceof TextMessage) {
 			TextMessage tm = (TextMessage) solaceMessage;
 			String data = tm.getText();
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_DATA_TYPE, SolaceConnectorConstants.DataType.TEXT.getValue());
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_DATA_TEXT, data);
+			kafkaStruct.put(dataTypeField, SolaceConnectorConstants.DataType.TEXT.getValue());
+			kafkaStruct.put(dataTextField, data);
 		}
 		else if(solaceMessage instanceof MapMessage) {
-			MapMessage mm = (MapMessage) solaceMessage;
-			SDTMap dataMap = mm.getMap();
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_DATA_TYPE, SolaceConnectorConstants.DataType.MAP.getValue());
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_DATA_MAP, mapSDTMap(dataMap));
+			kafkaStruct.put(dataTypeField, SolaceConnectorConstants.DataType.MAP.getValue());
+			if (dataMap != null) {
+				kafkaStruct.put(SolaceConnectorConstants.FIELD_DATA_MAP, dataMap);
+			}
 		}
-		else if(solaceMessage instanceof BytesXMLMessage || solaceMessage instanceof BytesMessage) {
-			BytesMessage bm = (BytesMessage) solaceMessage;
-			byte[] data = bm.getData();
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_DATA_TYPE, SolaceConnectorConstants.DataType.BYTES.getValue());
-			kafkaStruct.put(SolaceConnectorConstants.FIELD_DATA_BYTES, data);
+		else if(solaceMessage instanceof BytesMessage) {
+			kafkaStruct.put(dataTypeField, SolaceConnectorConstants.DataType.BYTES.getValue());
+			if (zeroCopy && solaceMessage.hasAttachment()) {
+				kafkaStruct.put(dataBytesField, getAttachmentView(solaceMessage));
+			}
+			else {
+				kafkaStruct.put(dataBytesField, ((BytesMessage) solaceMessage).getData());
+			}
 		}
 		return kafkaStruct;
 	}
 
-	private Struct mapSDTMap(SDTMap dataMap) {
-		Struct mapStruct = new Struct(getMapSchema());
-		return mapStruct;
+	/**
+	 * Get just the payload of the message, without building a Struct.
+	 * 
+	 * @param solaceMessage
+	 * @return the payload as a byte[] or, with record.zero_copy, as a ByteBuffer. Null if the message has none
+	 */
+	protected Object getPayload(BytesXMLMessage solaceMessage) {
+		if (solaceMessage instanceof TextMessage) {
+			String text = ((TextMessage) solaceMessage).getText();
+			return text == null ? null : text.getBytes(UTF8);
+		}
+		// Bytes messages are the raw attachment, Map and Stream messages are passed on in their SDT encoded form
+		if (zeroCopy && solaceMessage.hasAttachment()) {
+			return getAttachmentView(solaceMessage);
+		}
+		if (solaceMessage instanceof BytesMessage) {
+			return ((BytesMessage) solaceMessage).getData();
+		}
+		if (solaceMessage.hasAttachment()) {
+			// the view starts at the beginning of the attachment whatever has been read from it before
+			ByteBuffer attachment = getAttachmentView(solaceMessage);
+			byte[] data = new byte[attachment.remaining()];
+			attachment.get(data);
+			return data;
+		}
+		if (solaceMessage.getContentLength() > 0) {
+			return solaceMessage.getBytes();
+		}
+		return null;
+	}
+
+	/**
+	 * The API returns a new ByteBuffer sharing the attachment's memory, positioned at the start of the
+	 * payload and limited to its length. Nothing is copied, and as the received message is not reused
+	 * the view stays valid for as long as the record holds it.
+	 */
+	private ByteBuffer getAttachmentView(BytesXMLMessage solaceMessage) {
+		return solaceMessage.getAttachmentByteBuffer();
+	}
+
+	/**
+	 * Run the payload of a Text or Bytes message through the decoder for its content type.
+	 * @return the decoded payload, or null if there is no decoder or it could not decode the payload
+	 */
+	private SchemaAndValue decodePayload(BytesXMLMessage solaceMessage) {
+		if (decoders == null || solaceMessage instanceof MapMessage || solaceMessage instanceof StreamMessage) {
+			return null;
+		}
+		String contentType = getContentType(solaceMessage);
+		PayloadDecoder decoder = decoders.get(contentType);
+		if (decoder == null) {
+			return null;
+		}
+		ByteBuffer payload;
+		if (solaceMessage instanceof TextMessage) {
+			String text = ((TextMessage) solaceMessage).getText();
+			payload = text == null ? null : ByteBuffer.wrap(text.getBytes(UTF8));
+		}
+		else {
+			// The decoder is done with the payload before we return, so a view is always safe here
+			payload = solaceMessage.hasAttachment() ? getAttachmentView(solaceMessage) : null;
+		}
+		if (payload == null) {
+			return null;
+		}
+		try {
+			return decoder.decode(contentType, payload);
+		} catch (RuntimeException e) {
+			log.warn("{} unable to decode {} payload on {}: {}", parentTask.instanceName, contentType,
+					solaceMessage.getDestination().getName(), e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * The content type is taken from the configured user property if the message has it, otherwise from the HTTP content type
+	 */
+	private String getContentType(BytesXMLMessage solaceMessage) {
+		if (contentTypeProperty != null) {
+			SDTMap properties = solaceMessage.getProperties();
+			if (properties != null) {
+				try {
+					String contentType = properties.getString(contentTypeProperty);
+					if (contentType != null) {
+						return contentType;
+					}
+				} catch (SDTException e) {
+					log.debug("{} content type property {} is not a string", parentTask.instanceName, contentTypeProperty);
+				}
+			}
+		}
+		return solaceMessage.getHTTPContentType();
+	}
+
+	private int getDecodedSchemaId(Schema schema) {
+		synchronized (decodedSchemaIds) {
+			Integer id = decodedSchemaIds.get(schema);
+			if (id == null) {
+				if (decodedSchemaIds.size() >= SDTConverter.MAX_CACHED_SCHEMAS) {
+					// the ids are part of the message schema signatures, so those have to go too
+					decodedSchemaIds.clear();
+					messageSchemas.clear();
+				}
+				id = decodedSchemaIds.size();
+				decodedSchemaIds.put(schema, id);
+			}
+			return id;
+		}
 	}
 
 }
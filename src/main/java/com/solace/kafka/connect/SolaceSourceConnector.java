@@ -10,6 +10,7 @@ import org.apache.kafka.common.utils.AppInfoParser;
 import org.apache.kafka.connect.connector.Task;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceConnector;
+import org.apache.kafka.connect.util.ConnectorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +21,7 @@ public class SolaceSourceConnector extends SourceConnector {
 		
 	private Map<String, String> connectorProperties;
 	protected String[] listenTopicNames;
+	protected SolaceConnectorConstants.SubscriptionMode subscriptionMode;
 		
 	@Override
 	public ConfigDef config() {
@@ -31,12 +33,26 @@ public class SolaceSourceConnector extends SourceConnector {
 		connectorProperties = propMap;
 
 		String topicName = propMap.get(SolaceConnectorConstants.SOLACE_TOPIC);
+		listenTopicNames = isSet(topicName) ? SolaceConfigDef.splitList(topicName).toArray(new String[0]) : new String[0];
 				
 		// TODO - validate the config here, using SolaceConfigDef?
-		if (topicName == null || topicName.isEmpty())
+		// A queue brings its own subscriptions, otherwise there must be at least one topic to divide between the tasks
+		if (listenTopicNames.length == 0 && !isSet(propMap.get(SolaceConnectorConstants.SOLACE_QUEUE)))
             throw new ConnectException("SolaceSourceConnector missing required parameter '"+SolaceConnectorConstants.SOLACE_TOPIC+"'");
 
-		log.info("Solace Kafka Source connector started. Listening to Solace topic: "+topicName);
+		String mode = propMap.get(SolaceConnectorConstants.SOLACE_SUBSCRIPTION_MODE);
+		try {
+			subscriptionMode = SolaceConnectorConstants.SubscriptionMode.fromValue(
+					mode == null ? SolaceConnectorConstants.DEFAULT_SOLACE_SUBSCRIPTION_MODE : mode);
+		} catch (IllegalArgumentException e) {
+			throw new ConnectException("SolaceSourceConnector invalid value for '"+SolaceConnectorConstants.SOLACE_SUBSCRIPTION_MODE+"': "+mode);
+		}
+		// HA replicas and queue consumers must all see the same configuration
+		if (isSet(propMap.get(SolaceConnectorConstants.SOLACE_HA_QUEUE)) || isSet(propMap.get(SolaceConnectorConstants.SOLACE_QUEUE))) {
+			subscriptionMode = SolaceConnectorConstants.SubscriptionMode.REPLICATED;
+		}
+
+		log.info("Solace Kafka Source connector started. Listening to Solace topic: "+topicName+" subscription mode: "+subscriptionMode.getValue());
 	}
 
 	@Override
@@ -48,20 +64,87 @@ public class SolaceSourceConnector extends SourceConnector {
 		return SolaceSourceTask.class;
 	}
 
+	/**
+	 * Build the configuration for each task. Unless every task should receive everything (REPLICATED) the
+	 * subscriptions are arranged so that each message is only delivered to one task:
+	 *  - PARTITIONED: the topics are divided between at most maxTasks tasks
+	 *  - SHARED: every task subscribes to every topic as a member of the same shared subscription group
+	 */
 	@Override
 	public List<Map<String, String>> taskConfigs(int maxTasks) {
 		ArrayList<Map<String, String>> configs = new ArrayList<Map<String, String>>();
-		
-	 	for (int i=0; i<maxTasks; i++)
+
+		if (maxTasks > 1 && Boolean.parseBoolean(connectorProperties.get(SolaceConnectorConstants.OFFSETS_RESUME))) {
+			// the tasks would share the queue's source partition, and each would drop messages committed by the others
+			throw new ConnectException("SolaceSourceConnector "+SolaceConnectorConstants.OFFSETS_RESUME
+					+" requires tasks.max=1, not "+maxTasks);
+		}
+
+		List<String> taskTopics = new ArrayList<String>();
+		switch (subscriptionMode) {
+		case PARTITIONED:
+			List<String> topics = new ArrayList<String>();
+			for (String topic : listenTopicNames) {
+				topics.add(topic);
+			}
+			int numGroups = Math.min(maxTasks, topics.size());
+			for (List<String> group : ConnectorUtils.groupPartitions(topics, numGroups)) {
+				taskTopics.add(join(group));
+			}
+			break;
+		case SHARED:
+			String shareName = connectorProperties.get(SolaceConnectorConstants.SOLACE_SHARED_SUBSCRIPTION_GROUP);
+			if (!isSet(shareName)) {
+				shareName = isSet(connectorProperties.get(SolaceConnectorConstants.CONNECTOR_NAME_PROPERTY))
+						? connectorProperties.get(SolaceConnectorConstants.CONNECTOR_NAME_PROPERTY) : SolaceConnectorConstants.CONNECTOR_NAME;
+			}
+			List<String> shared = new ArrayList<String>();
+			for (String topic : listenTopicNames) {
+				shared.add(SolaceConnectorConstants.SHARED_SUBSCRIPTION_PREFIX+shareName+"/"+topic);
+			}
+			String sharedTopics = join(shared);
+			for (int i=0; i<maxTasks; i++) {
+				taskTopics.add(sharedTopics);
+			}
+			break;
+		default:
+			for (int i=0; i<maxTasks; i++) {
+				taskTopics.add(connectorProperties.get(SolaceConnectorConstants.SOLACE_TOPIC));
+			}
+		}
+
+	 	for (int i=0; i<taskTopics.size(); i++)
 		{
 	 		Map<String, String> config = new HashMap<String, String>(connectorProperties);
 	 		config.put(SolaceConnectorConstants.CONNECTOR_INSTANCE, 
 	 				SolaceConnectorConstants.CONNECTOR_NAME+"_"+SolaceConnectorConstants.CONNECTOR_VERSION+"_"+i);
+	 		if (isSet(taskTopics.get(i))) {
+	 			config.put(SolaceConnectorConstants.SOLACE_TOPIC, taskTopics.get(i));
+	 		}
+	 		else {
+	 			// queue only
+	 			config.remove(SolaceConnectorConstants.SOLACE_TOPIC);
+	 		}
 		    configs.add(config);
 		}
 	    return configs;
 	}
 
+	private static boolean isSet(String value) {
+		return value != null && !value.isEmpty();
+	}
+
+	private static String join(List<String> elements) {
+		StringBuilder sb = new StringBuilder();
+		for (String element : elements) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(element);
+		}
+		return sb.toString();
+	}
+
 	@Override
 	public String version() {
 		return AppInfoParser.getVersion();
@@ -0,0 +1,94 @@
+package com.solace.kafka.connect;
+
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+
+/**
+ * A SourceRecord which remembers the Solace message it was created from. Kafka Connect hands the
+ * same instance back to {@link SolaceSourceTask#commitRecord(SourceRecord)} once the record has been
+ * written to Kafka, which is when a guaranteed message may be acknowledged to the router.
+ */
+public class SolaceSourceRecord extends SourceRecord {
+
+	private final BytesXMLMessage solaceMessage;
+	private final String senderId;
+	private final Long sequenceNumber;
+
+	// Set by the LatencyTracker, 0 when latencies are not tracked
+	private long latencyOrigin;
+	private long convertedNanos;
+	private long polledNanos;
+
+	public SolaceSourceRecord(BytesXMLMessage solaceMessage,
+			Map<String, ?> sourcePartition, Map<String, ?> sourceOffset,
+			String topic, Schema keySchema, Object key, Schema valueSchema, Object value) {
+		this(solaceMessage, null, null, sourcePartition, sourceOffset, topic, null, keySchema, key, valueSchema, value, null);
+	}
+
+	/**
+	 * @param senderId sender id of the message, recorded in the HA checkpoint once the record is committed
+	 * @param sequenceNumber sender's sequence number of the message, null if it has none
+	 * @param partition Kafka partition to write to, null to leave it to the producer
+	 * @param timestamp Kafka record timestamp, null to leave it to the producer
+	 */
+	public SolaceSourceRecord(BytesXMLMessage solaceMessage, String senderId, Long sequenceNumber,
+			Map<String, ?> sourcePartition, Map<String, ?> sourceOffset,
+			String topic, Integer partition, Schema keySchema, Object key, Schema valueSchema, Object value, Long timestamp) {
+		super(sourcePartition, sourceOffset, topic, partition, keySchema, key, valueSchema, value, timestamp);
+		this.solaceMessage = solaceMessage;
+		this.senderId = senderId;
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	/**
+	 * @return the message to acknowledge, or null for DIRECT messages which need no acknowledgement
+	 */
+	public BytesXMLMessage getSolaceMessage() {
+		return solaceMessage;
+	}
+
+	public String getSenderId() {
+		return senderId;
+	}
+
+	public Long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	/**
+	 * @return System.currentTimeMillis() the end to end latency is measured from
+	 */
+	long getLatencyOrigin() {
+		return latencyOrigin;
+	}
+
+	void setLatencyOrigin(long latencyOrigin) {
+		this.latencyOrigin = latencyOrigin;
+	}
+
+	/**
+	 * @return System.nanoTime() when the record was created
+	 */
+	long getConvertedNanos() {
+		return convertedNanos;
+	}
+
+	void setConvertedNanos(long convertedNanos) {
+		this.convertedNanos = convertedNanos;
+	}
+
+	/**
+	 * @return System.nanoTime() when poll() passed the record to Kafka Connect
+	 */
+	long getPolledNanos() {
+		return polledNanos;
+	}
+
+	void setPolledNanos(long polledNanos) {
+		this.polledNanos = polledNanos;
+	}
+}
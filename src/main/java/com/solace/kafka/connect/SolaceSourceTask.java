@@ -1,8 +1,13 @@
 package com.solace.kafka.connect;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigDef.Type;
@@ -14,6 +19,9 @@ import org.apache.kafka.common.config.types.Password;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.solacesystems.jcsmp.Consumer;
+import com.solacesystems.jcsmp.ConsumerFlowProperties;
+import com.solacesystems.jcsmp.DeliveryMode;
 import com.solacesystems.jcsmp.JCSMPException;
 import com.solacesystems.jcsmp.JCSMPFactory;
 import com.solacesystems.jcsmp.JCSMPProperties;
@@ -30,43 +38,140 @@ import com.solacesystems.jcsmp.EndpointProperties;
 import com.solacesystems.jcsmp.JCSMPChannelProperties;
 
 
-public class SolaceSourceTask extends SourceTask implements SessionEventHandler {
+public class SolaceSourceTask extends SourceTask implements SessionEventHandler, XMLMessageListener, HAStateListener {
 
 	private static final Logger log = LoggerFactory.getLogger(SolaceSourceTask.class);
 
+	/**
+	 * Longest a synchronous receive blocks in an HA group before checking whether this is still the active member,
+	 * since a blocked receive() cannot be woken
+	 */
+	private static final long HA_RECEIVE_SLICE_MILLIS = 50;
+
 	protected JCSMPSession session;
 	public JCSMPSession getSession() {
 		return session;
 	}	
-	protected Topic topic;
-	protected XMLMessageConsumer consumer;
+	/**
+	 * All of the task's sessions, the first being session. Only the first carries the HA sentinel.
+	 */
+	protected List<JCSMPSession> sessions;
+	protected int sessionsPerTask = SolaceConnectorConstants.DEFAULT_SOLACE_SESSIONS_PER_TASK;
+	protected List<Topic> topics;
+	/**
+	 * Either an XMLMessageConsumer for topic subscriptions or a FlowReceiver bound to solaceQueueName
+	 */
+	protected Consumer consumer;
+	/**
+	 * One consumer per entry in sessions, the first being consumer
+	 */
+	protected List<Consumer> consumers;
 
 	protected String instanceName;
+	protected String connectorName;
 
 	protected String smfHost;
 	protected String msgVpnName;
 	protected String clientUsername;
 	protected Password clientPassword;
 	protected String solaceTopicName;
+	protected String solaceQueueName;
+	protected int ackBatchSize = SolaceConnectorConstants.DEFAULT_SOLACE_ACK_BATCH_SIZE;
+	protected MessageAckBatcher ackBatcher;
 	protected String kafkaTopicName;
+	protected String kafkaTopicRoutes;
+	protected int kafkaTopicRouteCacheSize = SolaceConnectorConstants.DEFAULT_KAFKA_TOPIC_ROUTE_CACHE_SIZE;
+	/**
+	 * Only set when kafkaTopicRoutes is configured, otherwise every message goes to kafkaTopicName
+	 */
+	protected TopicRouter topicRouter;
+	protected SolaceConnectorConstants.RecordMode recordMode = SolaceConnectorConstants.RecordMode.STRUCT;
+	/**
+	 * Header fields to put in the Struct, null for all of them
+	 */
+	protected List<HeaderField> recordFields = null;
+	protected boolean zeroCopyPayloads = SolaceConnectorConstants.DEFAULT_RECORD_ZERO_COPY;
+	static final List<String> ZERO_COPY_UNSUPPORTED_CONVERTERS = Arrays.asList(
+			"org.apache.kafka.connect.json.JsonConverter",
+			"org.apache.kafka.connect.converters.ByteArrayConverter",
+			"org.apache.kafka.connect.storage.StringConverter");
+	protected int recordKeyCacheSize = SolaceConnectorConstants.DEFAULT_RECORD_KEY_CACHE_SIZE;
+	protected SolaceConnectorConstants.TimestampSource recordTimestamp = SolaceConnectorConstants.TimestampSource.PRODUCER;
+	protected RecordKeyStrategy recordKeyStrategy = new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.DESTINATION_SENDER,
+			null, SolaceConnectorConstants.DEFAULT_RECORD_KEY_TOPIC_LEVEL, SolaceConnectorConstants.DEFAULT_RECORD_PARTITIONS);
+	protected String payloadDecoders;
+	protected String payloadContentTypeProperty;
+	/**
+	 * Only set when payloadDecoders is configured
+	 */
+	protected PayloadDecoderRegistry payloadDecoderRegistry;
 	protected int longPollInterval = SolaceConnectorConstants.DEFAULT_LONG_POLL_INTERVAL;
 	protected int shortPollInterval = SolaceConnectorConstants.DEFAULT_SHORT_POLL_INTERVAL;
 	protected int kafkaBufferSize = SolaceConnectorConstants.DEFAULT_POLL_BATCH_SIZE;
+	protected boolean asyncPolling = SolaceConnectorConstants.DEFAULT_POLL_ASYNC;
+	protected int asyncBufferSize = SolaceConnectorConstants.DEFAULT_POLL_ASYNC_BUFFER_SIZE;
+	/**
+	 * Payload bytes one poll may return, 0 for no limit
+	 */
+	protected long maxBatchBytes = SolaceConnectorConstants.DEFAULT_POLL_MAX_BATCH_BYTES;
+	protected boolean adaptivePolling = SolaceConnectorConstants.DEFAULT_POLL_ADAPTIVE;
+	protected int minBatchSize = SolaceConnectorConstants.DEFAULT_POLL_MIN_BATCH_SIZE;
+	protected int maxBatchSize = SolaceConnectorConstants.DEFAULT_POLL_MAX_BATCH_SIZE;
+	protected int minShortPollInterval = SolaceConnectorConstants.DEFAULT_POLL_MIN_SHORT_INTERVAL;
+	protected int maxShortPollInterval = SolaceConnectorConstants.DEFAULT_POLL_MAX_SHORT_INTERVAL;
+	/**
+	 * Only set when adaptivePolling is configured, it then updates kafkaBufferSize and shortPollInterval after every poll
+	 */
+	protected AdaptivePollController pollController;
+
+	/**
+	 * Filled by the JCSMP dispatcher threads when asyncPolling is set, drained in poll()
+	 */
+	protected volatile MessageRingBuffer<BytesXMLMessage> messageBuffer;
+
+	protected boolean lowLatencyPolling = SolaceConnectorConstants.DEFAULT_POLL_LOW_LATENCY;
+	/**
+	 * Filled with converted records by the JCSMP I/O threads when lowLatencyPolling is set, taken by poll()
+	 */
+	protected volatile RecordBatchBuffer recordBatches;
+	// The consumers are stopped while recordBatches holds more than it can pass on, by the polling thread or an
+	// I/O thread. Only the polling thread restarts them, and only once they are fully stopped
+	private static final int CONSUMERS_RUNNING = 0;
+	private static final int CONSUMERS_STOPPING = 1;
+	private static final int CONSUMERS_PAUSED = 2;
+	private static final int CONSUMERS_RESUMING = 3;
+	private final AtomicInteger pauseState = new AtomicInteger(CONSUMERS_RUNNING);
+	// A conversion which failed on an API thread, thrown from the next poll()
+	private volatile RuntimeException callbackFailure;
 
 	protected SolaceConverter converter;
 
 	protected int reconnectRetries;
 
-	protected int connectTimeoutInMillis;
+	protected int connectTimeoutInMillis = SolaceConnectorConstants.DEFAULT_SOLACE_CONNECT_TIMEOUT;
+
+	protected int connectRetriesPerHost = SolaceConnectorConstants.DEFAULT_SOLACE_CONNECT_RETRIES_PER_HOST;
 
-	protected int connectRetriesPerHost;
+	protected int keepAliveIntervalInMillis = SolaceConnectorConstants.DEFAULT_SOLACE_KEEP_ALIVE_INTERVAL;
 
-	protected int keepAliveIntervalInMillis;
+	protected int keepAliveLimit = SolaceConnectorConstants.DEFAULT_SOLACE_KEEP_ALIVE_LIMIT;
 
 	protected int reconnectRetryWaitInMillis;
 
 	protected int compressionLevel;
 
+	protected int socketSendBuffer = SolaceConnectorConstants.DEFAULT_SOLACE_SOCKET_SEND_BUFFER;
+
+	protected int socketReceiveBuffer = SolaceConnectorConstants.DEFAULT_SOLACE_SOCKET_RECEIVE_BUFFER;
+
+	protected boolean tcpNoDelay = SolaceConnectorConstants.DEFAULT_SOLACE_TCP_NO_DELAY;
+
+	protected int subAckWindowSize = SolaceConnectorConstants.DEFAULT_SOLACE_SUB_ACK_WINDOW_SIZE;
+
+	protected boolean reapplySubscriptions = SolaceConnectorConstants.DEFAULT_SOLACE_REAPPLY_SUBSCRIPTIONS;
+
+	protected boolean messageCallbackOnReactor = SolaceConnectorConstants.DEFAULT_SOLACE_MESSAGE_CALLBACK_ON_REACTOR;
+
 	protected String haSentinelQueueName = null;
 
 	public String getHASentinelQueueName() {
@@ -75,6 +180,57 @@ public class SolaceSourceTask extends SourceTask implements SessionEventHandler
 
 	protected HASentinel haSentinel = null;
 
+	protected SolaceConnectorConstants.HAStandbyMode haStandbyMode = SolaceConnectorConstants.HAStandbyMode.SUBSCRIBED;
+
+	/**
+	 * Whether the subscriptions are in place and the consumer started. Only changed on the polling
+	 * thread, since the API does not allow blocking calls such as addSubscription() from its callbacks.
+	 */
+	protected boolean consuming;
+
+	protected String haCheckpointTopic;
+	protected int haCheckpointInterval = SolaceConnectorConstants.DEFAULT_SOLACE_HA_CHECKPOINT_INTERVAL;
+	protected int haStandbyBufferSize = SolaceConnectorConstants.DEFAULT_SOLACE_HA_STANDBY_BUFFER_SIZE;
+	/**
+	 * Progress of this task, only set when haCheckpointTopic is configured
+	 */
+	protected HACheckpoint checkpoint;
+	/**
+	 * The most recent messages received while backup, passed on first after taking over. Only set when
+	 * checkpointing with HAStandbyMode.SUBSCRIBED.
+	 */
+	protected ArrayDeque<BytesXMLMessage> standbyBuffer;
+
+	// HA state as seen by the polling thread
+	private boolean wasActive;
+	private boolean takeoverPending;
+	private long lastCheckpointPublished;
+	// The predecessor's checkpoint, used to drop duplicates until a batch contains none
+	private HACheckpoint takeoverCheckpoint;
+	private int pollDuplicates;
+	private long takeoverDuplicates;
+
+	protected boolean resumeOffsets = SolaceConnectorConstants.DEFAULT_OFFSETS_RESUME;
+	/**
+	 * Redelivered messages up to this message id were written to Kafka before the task started, null if there is no committed offset
+	 */
+	private volatile Long resumeMessageId;
+	private final AtomicLong resumeDuplicates = new AtomicLong();
+	private volatile boolean resumeLogged;
+
+	protected SolaceSourceTaskMetrics metrics;
+	protected boolean latencyTracking = SolaceConnectorConstants.DEFAULT_METRICS_LATENCY;
+	protected int latencyInterval = SolaceConnectorConstants.DEFAULT_METRICS_LATENCY_INTERVAL;
+	/**
+	 * Only set when latencyTracking is configured
+	 */
+	protected LatencyTracker latencyTracker;
+
+	// Accumulated over one poll() for the metrics, only used by the polling thread
+	private long pollBytes;
+	private long pollBlockedNanos;
+	private long pollConversionNanos;
+
 	@Override
 	public String version() {
 		return AppInfoParser.getVersion();
@@ -84,46 +240,584 @@ public class SolaceSourceTask extends SourceTask implements SessionEventHandler
 	 * This is where the main work is done. Grab a bunch of messages from the Solace topic and put in 
 	 * a list which will be consumed by Kafka.
 	 * 
-	 * Uses the Solace JCSMP API in synchronous mode with a combination of short and long polling. 
+	 * By default uses the Solace JCSMP API in synchronous mode with a combination of short and long polling. 
 	 *  - When no messages are available this method blocks for the longPollInterval.
 	 *  - When messages are available we try to assemble kafkaBufferSize records together to pass to Kafka, 
 	 * allowing max shortPollInterval between consecutive messages.
+	 * 
+	 * When asyncPolling is set the messages have already been pushed into messageBuffer by the API, 
+	 * so we wait at most longPollInterval for the first one and then take everything available.
+	 * 
+	 * Either way a batch ends early once its payloads add up to maxBatchBytes. A synchronous receive cannot
+	 * be undone, so in that mode the last message may take the batch over the limit.
+	 * 
+	 * When lowLatencyPolling is set the API's I/O threads have also converted the messages into recordBatches,
+	 * and poll() takes the batch collected so far as a whole.
+	 * 
+	 * When adaptivePolling is set pollController resizes kafkaBufferSize and shortPollInterval after each poll.
+	 * 
+	 * An HA backup returns nothing. It waits up to longPollInterval for haSentinel to report it active and then
+	 * polls straight away. An active member which is told it is now the backup stops waiting for messages and
+	 * returns what it has, straight away when asyncPolling is set and within HA_RECEIVE_SLICE_MILLIS otherwise. With HAStandbyMode.IDLE it also drops its subscriptions while it is the backup.
+	 * When checkpointing, a subscribed backup keeps the latest messages in standbyBuffer, and after taking over
+	 * the messages covered by the predecessor's checkpoint are dropped.
 	 */
 	@Override
 	public List<SourceRecord> poll() throws InterruptedException {
 		log.debug(instanceName+" in poll()");
 
 		ArrayList<SourceRecord> records = new ArrayList<SourceRecord>();
-		if(haSentinel != null && haSentinel.isActiveMember() || haSentinel == null) {
+		if (haSentinel != null && !haSentinel.isActiveMember()) {
+			wasActive = false;
+			if (consuming && haStandbyMode == SolaceConnectorConstants.HAStandbyMode.IDLE) {
+				stopConsuming();
+			}
+			log.debug("{} poll() not active ",instanceName);
+			long wait = longPollInterval;
+			if (standbyBuffer != null && consuming) {
+				// come back soon to keep the consumer drained
+				bufferStandby();
+				wait = shortPollInterval;
+			}
+			if (!haSentinel.awaitActive(wait)) {
+				return records;
+			}
+		}
+		if (!consuming) {
+			startConsuming();
+		}
+		if (haSentinel != null && !wasActive) {
+			takeOver();
+		}
+		if (checkpoint != null) {
+			publishCheckpoint(false);
+		}
 
-			try {
-				BytesXMLMessage msg = consumer.receive(longPollInterval);
-				if (msg == null)
-					return records;
+		if (pollController != null) {
+			pollController.pollStarted(System.nanoTime());
+		}
+		pollBytes = 0;
+		pollBlockedNanos = 0;
+		pollConversionNanos = 0;
+		pollDuplicates = 0;
+		if (standbyBuffer != null && !standbyBuffer.isEmpty()) {
+			pollStandbyBuffer(records);
+		}
+		else if (recordBatches != null) {
+			records = pollBatch();
+		}
+		else if (asyncPolling) {
+			pollAsync(records);
+		}
+		else {
+			pollSync(records);
+		}
+		if (takeoverCheckpoint != null && pollDuplicates == 0 && !records.isEmpty()
+				&& (standbyBuffer == null || standbyBuffer.isEmpty())) {
+			log.info("{} dropped {} messages already written by {}", instanceName, takeoverDuplicates, takeoverCheckpoint.getInstance());
+			takeoverCheckpoint = null;
+		}
+		if (takeoverPending && !records.isEmpty()) {
+			takeoverPending = false;
+			haSentinel.takeoverCompleted();
+		}
+		if (metrics != null) {
+			metrics.recordPoll(records.size(), pollBytes, pollBlockedNanos, pollConversionNanos);
+		}
+		if (checkpoint != null) {
+			// the checkpoint must stay below the records still on their way to Kafka
+			for (SourceRecord record : records) {
+				if (record instanceof SolaceSourceRecord) {
+					checkpoint.polled(((SolaceSourceRecord) record).getSenderId(), ((SolaceSourceRecord) record).getSequenceNumber());
+				}
+			}
+		}
+		if (latencyTracker != null) {
+			stampPolled(records);
+		}
+		if (pollController != null) {
+			pollController.pollCompleted(records.size(), System.nanoTime());
+			kafkaBufferSize = pollController.getBatchSize();
+			shortPollInterval = pollController.getShortInterval();
+		}
+		log.debug("{} poll() found {} records",instanceName,records.size());
+		return records;
+	}
 
+	/**
+	 * Read the offset last committed for the queue, the id of the last message written to Kafka.
+	 */
+	private void readCommittedOffset() {
+		if (context == null) {
+			log.warn("{} has no task context, not reading committed offsets", instanceName);
+			return;
+		}
+		Map<String, Object> offset = context.offsetStorageReader().offset(SolaceConverter.queuePartition(solaceQueueName));
+		Object messageId = offset == null ? null : offset.get(SolaceConverter.OFFSET_MESSAGE_ID_LONG);
+		if (messageId == null) {
+			log.info("{} has no committed offset for queue {}", instanceName, solaceQueueName);
+			return;
+		}
+		try {
+			// the offset store may hand numbers back as Integer, or as the String they were written as
+			resumeMessageId = messageId instanceof Number ? ((Number) messageId).longValue() : Long.parseLong(messageId.toString());
+		} catch (NumberFormatException e) {
+			throw new ConnectException("SolaceSourceTask invalid committed offset for queue "+solaceQueueName+": "+offset, e);
+		}
+		log.info("{} resuming queue {} after message id {}", instanceName, solaceQueueName, resumeMessageId);
+	}
+
+	/**
+	 * Stamp the records with the time they are passed to Kafka Connect, and end the latency interval if it is over.
+	 */
+	private void stampPolled(List<SourceRecord> records) {
+		long now = System.nanoTime();
+		for (SourceRecord record : records) {
+			if (record instanceof SolaceSourceRecord) {
+				((SolaceSourceRecord) record).setPolledNanos(now);
+			}
+		}
+		latencyTracker.rotate(System.currentTimeMillis());
+	}
+
+	/**
+	 * Becoming the active member: carry on from the predecessor's checkpoint, and drop the messages it
+	 * covers from the standby buffer and the consumer until they are past it.
+	 */
+	private void takeOver() {
+		wasActive = true;
+		takeoverPending = true;
+		HACheckpoint previous = haSentinel.getReceivedCheckpoint();
+		if (previous != null && checkpoint != null) {
+			log.info("{} taking over from {} at {}", instanceName, previous.getInstance(), previous);
+			checkpoint.merge(previous);
+			takeoverCheckpoint = previous;
+			takeoverDuplicates = 0;
+		}
+		if (standbyBuffer != null) {
+			bufferStandby();
+			log.info("{} passing on {} messages received while backup", instanceName, standbyBuffer.size());
+		}
+	}
+
+	/**
+	 * Publish the checkpoint if it has changed and haCheckpointInterval has passed, or straight away if forced.
+	 */
+	private void publishCheckpoint(boolean force) {
+		long now = System.currentTimeMillis();
+		if (!checkpoint.isDirty() || (!force && now - lastCheckpointPublished < haCheckpointInterval)) {
+			return;
+		}
+		try {
+			haSentinel.publishCheckpoint(checkpoint);
+			lastCheckpointPublished = now;
+		} catch (JCSMPException e) {
+			log.warn("{} failed to publish checkpoint: {}", instanceName, e.getMessage());
+		}
+	}
+
+	/**
+	 * Move whatever the consumer has received into standbyBuffer, dropping the oldest messages once it is full.
+	 */
+	private void bufferStandby() {
+		try {
+			BytesXMLMessage msg;
+			while ((msg = asyncPolling ? messageBuffer.poll() : consumer.receiveNoWait()) != null) {
+				standbyBuffer.add(msg);
+				if (standbyBuffer.size() > haStandbyBufferSize) {
+					standbyBuffer.poll();
+				}
+			}
+		} catch (JCSMPException e) {
+			log.warn("{} failed to receive while backup: {}", instanceName, e.getMessage());
+		}
+	}
+
+	/**
+	 * Pass on the messages buffered while backup, before anything newer from the consumer.
+	 */
+	private void pollStandbyBuffer(List<SourceRecord> records) {
+		long start = System.nanoTime();
+		BytesXMLMessage msg;
+		while (records.size() < kafkaBufferSize && !batchBytesReached() && (msg = standbyBuffer.poll()) != null) {
+			if (!isDuplicate(msg)) {
 				records.add(converter.convertMessage(msg));
+				pollBytes += msg.getContentLength() + msg.getAttachmentContentLength();
+			}
+		}
+		pollConversionNanos += System.nanoTime() - start;
+	}
 
-				//Now fast poll as long as we keep getting messages
-				int i=0;
-				while(i < kafkaBufferSize-1) {
-					i++;
-					msg = consumer.receive(shortPollInterval);
-					if (msg == null) break;
-					records.add(converter.convertMessage(msg));
+	/**
+	 * @return true if the message is being redelivered after it was written to Kafka by a previous run of the task,
+	 * according to the offset committed for the queue. The duplicate is acknowledged straight away.
+	 * Called on the polling thread, and on the API's threads with lowLatencyPolling.
+	 */
+	private boolean isCommittedBeforeStart(BytesXMLMessage msg) {
+		Long committed = resumeMessageId;
+		if (committed == null) {
+			return false;
+		}
+		if (!msg.getRedelivered()) {
+			if (!resumeLogged) {
+				resumeLogged = true;
+				log.info("{} dropped {} redelivered messages written to Kafka before the restart", instanceName, resumeDuplicates.get());
+			}
+			return false;
+		}
+		if (msg.getMessageIdLong() > committed) {
+			return false;
+		}
+		msg.ackMessage();
+		resumeDuplicates.incrementAndGet();
+		return true;
+	}
 
+	/**
+	 * @return true if the message was already written to Kafka by the member this one took over from.
+	 * A guaranteed duplicate is acknowledged straight away.
+	 */
+	private boolean isDuplicate(BytesXMLMessage msg) {
+		if (isCommittedBeforeStart(msg)) {
+			return true;
+		}
+		if (takeoverCheckpoint == null || !takeoverCheckpoint.covers(msg)) {
+			return false;
+		}
+		if (msg.getDeliveryMode() != DeliveryMode.DIRECT) {
+			msg.ackMessage();
+		}
+		pollDuplicates++;
+		takeoverDuplicates++;
+		return true;
+	}
+
+	/**
+	 * Add the topic subscriptions (there are none to add when bound to a queue) and start the consumers.
+	 */
+	protected void startConsuming() {
+		try {
+			if (solaceQueueName == null && topics != null) {
+				for (int i = 0; i < topics.size(); i++) {
+					sessionFor(i).addSubscription(topics.get(i));
 				}
-			} catch (JCSMPException e) {
-				e.printStackTrace();
 			}
-			log.info("{} poll() found {} records",instanceName,records.size());
-			return records;
+			for (Consumer c : consumers) {
+				c.start();
+			}
+		} catch (JCSMPException e) {
+			throw new ConnectException("SolaceSourceTask failed to start listener.", e);
 		}
-		else  {
-			log.debug("{} poll() not active ",instanceName);
-			Thread.sleep(longPollInterval);
-			return records;
+		consuming = true;
+		pauseState.set(CONSUMERS_RUNNING);
+		log.info("{} consuming", instanceName);
+	}
+
+	/**
+	 * Remove the topic subscriptions and stop the consumers, so that a backup receives nothing.
+	 * Messages on a queue stay there for the active member.
+	 */
+	protected void stopConsuming() {
+		try {
+			for (Consumer c : consumers) {
+				c.stop();
+			}
+			if (solaceQueueName == null && topics != null) {
+				for (int i = 0; i < topics.size(); i++) {
+					sessionFor(i).removeSubscription(topics.get(i));
+				}
+			}
+		} catch (JCSMPException e) {
+			throw new ConnectException("SolaceSourceTask failed to stop listener.", e);
+		}
+		consuming = false;
+		log.info("{} idle while backup", instanceName);
+	}
+
+	/**
+	 * Each topic is subscribed on a single session, so its messages arrive on one dispatcher thread in order.
+	 */
+	private JCSMPSession sessionFor(int topicIndex) {
+		return sessions.get(topicIndex % sessions.size());
+	}
+
+	protected void pollSync(List<SourceRecord> records) {
+		try {
+			long start = System.nanoTime();
+			BytesXMLMessage msg = receiveWhileActive(longPollInterval);
+			long received = System.nanoTime();
+			pollBlockedNanos += received - start;
+			if (msg == null)
+				return;
+
+			long converted = convert(msg, records, received);
+
+			//Now fast poll as long as we keep getting messages
+			int i=0;
+			while(i < kafkaBufferSize-1 && !batchBytesReached() && isActive()) {
+				i++;
+				msg = consumer.receive(shortPollInterval);
+				received = System.nanoTime();
+				pollBlockedNanos += received - converted;
+				if (msg == null) break;
+				converted = convert(msg, records, received);
+
+			}
+		} catch (JCSMPException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Wait for a message, giving up early if this task stops being the active member of its HA group.
+	 */
+	private BytesXMLMessage receiveWhileActive(long timeoutMillis) throws JCSMPException {
+		if (haSentinel == null) {
+			return consumer.receive((int) timeoutMillis);
+		}
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		long remaining = timeoutMillis;
+		BytesXMLMessage msg = null;
+		while (msg == null && remaining > 0 && isActive()) {
+			msg = consumer.receive((int) Math.min(remaining, HA_RECEIVE_SLICE_MILLIS));
+			remaining = deadline - System.currentTimeMillis();
 		}
+		return msg;
+	}
 
+	/**
+	 * @return true unless this task is in an HA group and is not its active member
+	 */
+	private boolean isActive() {
+		return haSentinel == null || haSentinel.isActiveMember();
+	}
+
+	/**
+	 * Called by haSentinel on the API's callback thread. When this task stops being the active member it wakes
+	 * a poll() waiting for messages, which then sees the new state and hands over promptly. A backup waits in
+	 * haSentinel.awaitActive(), which is released by the sentinel itself.
+	 */
+	@Override
+	public void onStateChange(HASentinel.State previous, HASentinel.State current) {
+		if (previous == HASentinel.State.ACTIVE) {
+			MessageRingBuffer<BytesXMLMessage> buffer = messageBuffer;
+			if (buffer != null) {
+				buffer.wakeup();
+			}
+			RecordBatchBuffer batches = recordBatches;
+			if (batches != null) {
+				batches.wakeup();
+			}
+		}
+	}
+
+	/**
+	 * Kafka has written the record, so a Guaranteed message can now be acknowledged. The acknowledgement
+	 * itself is deferred until a batch of ackBatchSize messages has been collected.
+	 */
+	@Override
+	public void commitRecord(SourceRecord record) throws InterruptedException {
+		if (checkpoint != null && record instanceof SolaceSourceRecord) {
+			SolaceSourceRecord solaceRecord = (SolaceSourceRecord) record;
+			checkpoint.committed(solaceRecord.getSenderId(), solaceRecord.getSequenceNumber());
+		}
+		if (latencyTracker != null && record instanceof SolaceSourceRecord) {
+			latencyTracker.committed((SolaceSourceRecord) record);
+		}
+		if (ackBatcher != null && record instanceof SolaceSourceRecord) {
+			BytesXMLMessage msg = ((SolaceSourceRecord)record).getSolaceMessage();
+			if (msg != null) {
+				ackBatcher.committed(msg);
+			}
+		}
+	}
+
+	/**
+	 * Acknowledge any remaining committed messages when Kafka Connect commits the task's offsets.
+	 */
+	@Override
+	public void commit() throws InterruptedException {
+		if (ackBatcher != null) {
+			ackBatcher.flush();
+		}
+	}
+
+	protected void pollAsync(List<SourceRecord> records) throws InterruptedException {
+		long start = System.nanoTime();
+		boolean available = messageBuffer.await(longPollInterval);
+		long received = System.nanoTime();
+		pollBlockedNanos += received - start;
+		if (!available || !isActive())
+			return;
+
+		if (maxBatchBytes > 0) {
+			// Look at each message before taking it so that the batch stays within the byte limit
+			BytesXMLMessage msg;
+			while (records.size() < kafkaBufferSize && (msg = messageBuffer.peek()) != null) {
+				int size = msg.getContentLength() + msg.getAttachmentContentLength();
+				if (!records.isEmpty() && pollBytes + size > maxBatchBytes) {
+					break;
+				}
+				messageBuffer.poll();
+				if (!isDuplicate(msg)) {
+					records.add(converter.convertMessage(msg));
+					pollBytes += size;
+				}
+			}
+		}
+		else {
+			// Convert straight out of the buffer, without collecting the messages first
+			BytesXMLMessage msg;
+			while (records.size() < kafkaBufferSize && (msg = messageBuffer.poll()) != null) {
+				if (!isDuplicate(msg)) {
+					records.add(converter.convertMessage(msg));
+					pollBytes += msg.getContentLength() + msg.getAttachmentContentLength();
+				}
+			}
+		}
+		pollConversionNanos += System.nanoTime() - received;
+	}
+
+	/**
+	 * Take the records converted on the API's threads. A task which is no longer the active member leaves them in place.
+	 */
+	protected ArrayList<SourceRecord> pollBatch() throws InterruptedException {
+		long start = System.nanoTime();
+		boolean available = recordBatches.await(longPollInterval);
+		pollBlockedNanos += System.nanoTime() - start;
+		RuntimeException failure = callbackFailure;
+		if (failure != null) {
+			throw new ConnectException(instanceName+" failed to convert a message", failure);
+		}
+		ArrayList<SourceRecord> batch;
+		if (available && isActive()) {
+			batch = recordBatches.take();
+			pollBytes += recordBatches.getTakenBytes();
+			pollConversionNanos += recordBatches.getTakenConversionNanos();
+		}
+		else {
+			batch = new ArrayList<SourceRecord>(0);
+		}
+		// a full batch left behind means the router sends faster than Kafka takes the records,
+		// an empty buffer must restart consumers stopped by a callback while the last batch was taken
+		if (consuming) {
+			if (recordBatches.isFull()) {
+				pauseConsumers();
+			}
+			else if (pauseState.get() == CONSUMERS_PAUSED) {
+				resumeConsumers();
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Stop the consumers, so that a backlog of converted records pushes back on the router without holding up
+	 * the API's I/O thread. Called by the polling thread, or on the I/O thread once recordBatches is past its limit.
+	 * stop() only stops the delivery to this consumer, so it may be called from the message callback.
+	 */
+	private void pauseConsumers() {
+		if (!pauseState.compareAndSet(CONSUMERS_RUNNING, CONSUMERS_STOPPING)) {
+			return;
+		}
+		for (Consumer c : consumers) {
+			c.stop();
+		}
+		pauseState.set(CONSUMERS_PAUSED);
+		log.debug("{} paused consumers", instanceName);
+	}
+
+	/**
+	 * Restart the consumers stopped by pauseConsumers(). Only called by the polling thread.
+	 */
+	private void resumeConsumers() {
+		if (!pauseState.compareAndSet(CONSUMERS_PAUSED, CONSUMERS_RESUMING)) {
+			return;
+		}
+		try {
+			for (Consumer c : consumers) {
+				c.start();
+			}
+		} catch (JCSMPException e) {
+			throw new ConnectException("SolaceSourceTask failed to restart listener.", e);
+		}
+		// only now, so a callback past the limit cannot stop a consumer before it has been restarted
+		pauseState.set(CONSUMERS_RUNNING);
+		log.debug("{} resumed consumers", instanceName);
+		if (recordBatches.isOverLimit()) {
+			// the callbacks went past the limit while the consumers were restarting
+			pauseConsumers();
+		}
+	}
+
+	/**
+	 * @return true while the consumers are stopped, or being stopped or restarted, because recordBatches is full
+	 */
+	boolean isConsumersPaused() {
+		return pauseState.get() != CONSUMERS_RUNNING;
+	}
+
+	/**
+	 * @return true once the messages received by this poll have used up maxBatchBytes
+	 */
+	private boolean batchBytesReached() {
+		return maxBatchBytes > 0 && pollBytes >= maxBatchBytes;
+	}
+
+	/**
+	 * Convert a message received by pollSync() and add it to the batch.
+	 * @param received System.nanoTime() when the message was received
+	 * @return System.nanoTime() once the message has been converted
+	 */
+	private long convert(BytesXMLMessage msg, List<SourceRecord> records, long received) {
+		if (!isDuplicate(msg)) {
+			records.add(converter.convertMessage(msg));
+			pollBytes += msg.getContentLength() + msg.getAttachmentContentLength();
+		}
+		long converted = System.nanoTime();
+		pollConversionNanos += converted - received;
+		return converted;
+	}
+
+	/**
+	 * Called by the JCSMP dispatcher threads when asyncPolling is set, one per session, or by the I/O
+	 * threads when lowLatencyPolling is set.
+	 */
+	@Override
+	public void onReceive(BytesXMLMessage msg) {
+		try {
+			RecordBatchBuffer batches = recordBatches;
+			if (batches != null) {
+				if (isCommittedBeforeStart(msg)) {
+					return;
+				}
+				long start = System.nanoTime();
+				SourceRecord record;
+				try {
+					record = converter.convertMessage(msg);
+				} catch (RuntimeException e) {
+					// the API would only log it, so hand it to the polling thread
+					callbackFailure = e;
+					batches.wakeup();
+					return;
+				}
+				if (batches.add(record, msg.getContentLength() + msg.getAttachmentContentLength(), System.nanoTime() - start)) {
+					// poll() is not keeping up and may not be called for a while, so stop the consumers from here
+					pauseConsumers();
+				}
+			}
+			else {
+				messageBuffer.put(msg);
+			}
+		} catch (InterruptedException e) {
+			log.warn("{} interrupted while buffering message, discarding it", instanceName);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void onException(JCSMPException e) {
+		log.error(instanceName+" consumer exception", e);
 	}
 
 	@Override
@@ -131,10 +825,84 @@ public class SolaceSourceTask extends SourceTask implements SessionEventHandler
 
 		setParameters(propMap);
 
+		if (lowLatencyPolling && haSentinelQueueName != null && haStandbyMode == SolaceConnectorConstants.HAStandbyMode.SUBSCRIBED) {
+			// a subscribed backup would convert everything it receives into batches which it never takes
+			throw new ConnectException("SolaceSourceTask "+SolaceConnectorConstants.POLL_LOW_LATENCY+" requires "
+					+SolaceConnectorConstants.SOLACE_HA_STANDBY_MODE+"="+SolaceConnectorConstants.HAStandbyMode.IDLE.getValue()
+					+" with "+SolaceConnectorConstants.SOLACE_HA_QUEUE);
+		}
+		if (lowLatencyPolling && haCheckpointTopic != null) {
+			// duplicates are only recognised before conversion, on the polling thread
+			throw new ConnectException("SolaceSourceTask "+SolaceConnectorConstants.POLL_LOW_LATENCY
+					+" cannot be combined with "+SolaceConnectorConstants.SOLACE_HA_CHECKPOINT_TOPIC);
+		}
+		if (zeroCopyPayloads) {
+			checkZeroCopyConverter(propMap.get(SolaceConnectorConstants.VALUE_CONVERTER_PROPERTY));
+		}
+		if (resumeOffsets) {
+			if (solaceQueueName == null) {
+				// direct messages are never redelivered, and their source partitions are not known in advance
+				throw new ConnectException("SolaceSourceTask "+SolaceConnectorConstants.OFFSETS_RESUME
+						+" requires "+SolaceConnectorConstants.SOLACE_QUEUE);
+			}
+			if (sessionsPerTask > 1) {
+				// one flow per session, all sharing the queue's source partition
+				throw new ConnectException("SolaceSourceTask "+SolaceConnectorConstants.OFFSETS_RESUME
+						+" requires "+SolaceConnectorConstants.SOLACE_SESSIONS_PER_TASK+"=1");
+			}
+			readCommittedOffset();
+		}
+		if (sessionsPerTask > 1 && !asyncPolling && !lowLatencyPolling) {
+			// a synchronous receive() can only wait on one consumer
+			log.info("{} receiving asynchronously from {} sessions", instanceName, sessionsPerTask);
+			asyncPolling = true;
+		}
+
+		if (adaptivePolling && lowLatencyPolling) {
+			// there is no wait to adapt, the batch is whatever arrived since the last poll
+			log.info("{} ignoring {} with {}", instanceName, SolaceConnectorConstants.POLL_ADAPTIVE, SolaceConnectorConstants.POLL_LOW_LATENCY);
+			adaptivePolling = false;
+		}
+		if (adaptivePolling) {
+			try {
+				pollController = new AdaptivePollController(minBatchSize, maxBatchSize, kafkaBufferSize,
+						minShortPollInterval, maxShortPollInterval, shortPollInterval);
+			} catch (IllegalArgumentException e) {
+				throw new ConnectException("SolaceSourceTask invalid "+SolaceConnectorConstants.POLL_ADAPTIVE+" bounds", e);
+			}
+			kafkaBufferSize = pollController.getBatchSize();
+			shortPollInterval = pollController.getShortInterval();
+		}
+
+		metrics = new SolaceSourceTaskMetrics(connectorName, instanceName, adaptivePolling ? maxBatchSize : kafkaBufferSize);
+		if (pollController != null) {
+			metrics.addAdaptivePolling(pollController);
+		}
+		if (latencyTracking) {
+			latencyTracker = new LatencyTracker(instanceName, latencyInterval);
+			metrics.addLatency(latencyTracker);
+		}
+
 		log.info("Solace Kafka Source connector started. Will connect to router at url:"
 				+smfHost+" vpn:"+msgVpnName+" user:"+clientUsername+" pass:"+clientPassword
 				+" Solace topic:"+solaceTopicName+" Kafka topic:"+kafkaTopicName);
 
+		if (kafkaTopicRoutes != null) {
+			try {
+				topicRouter = TopicRouter.fromRoutes(kafkaTopicRoutes, kafkaTopicName, kafkaTopicRouteCacheSize);
+			} catch (IllegalArgumentException e) {
+				throw new ConnectException("SolaceSourceTask invalid "+SolaceConnectorConstants.KAFKA_TOPIC_ROUTES, e);
+			}
+			log.info("{} routing to {} Kafka topics", instanceName, topicRouter.size());
+		}
+		if (payloadDecoders != null) {
+			try {
+				payloadDecoderRegistry = PayloadDecoderRegistry.fromConfig(payloadDecoders, propMap);
+			} catch (IllegalArgumentException e) {
+				throw new ConnectException("SolaceSourceTask invalid "+SolaceConnectorConstants.PAYLOAD_DECODERS, e);
+			}
+		}
+
 		// Now start the subscribers
 		try {
 			connect();
@@ -143,20 +911,83 @@ public class SolaceSourceTask extends SourceTask implements SessionEventHandler
 			e.printStackTrace();
 			throw new ConnectException("SolaceSourceTask failed to connect.", e);
 		}
+		if (haSentinel != null) {
+			metrics.addHAState(haSentinel);
+			if (haCheckpointTopic != null) {
+				checkpoint = new HACheckpoint();
+				if (haStandbyMode == SolaceConnectorConstants.HAStandbyMode.SUBSCRIBED && haStandbyBufferSize > 0) {
+					standbyBuffer = new ArrayDeque<BytesXMLMessage>();
+				}
+			}
+		}
 
-		// Consume messages synchronously
+		// Consume messages synchronously unless configured to buffer them asynchronously
 		converter = new SolaceConverter(this);
 		try {
 			if (consumer == null) {
-				consumer = session.getMessageConsumer((XMLMessageListener)null);
-				session.addSubscription(topic);
+				XMLMessageListener listener = null;
+				if (lowLatencyPolling) {
+					recordBatches = new RecordBatchBuffer(kafkaBufferSize, maxBatchBytes);
+					listener = this;
+				}
+				else if (asyncPolling) {
+					messageBuffer = new MessageRingBuffer<BytesXMLMessage>(asyncBufferSize);
+					listener = this;
+				}
+				consumers = new ArrayList<Consumer>(sessions.size());
+				for (JCSMPSession s : sessions) {
+					if (solaceQueueName != null) {
+						consumers.add(createQueueFlow(s, listener));
+					}
+					else {
+						consumers.add(s.getMessageConsumer(listener));
+					}
+				}
+				consumer = consumers.get(0);
 			}
-			consumer.start();
 		} catch (JCSMPException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 			throw new ConnectException("SolaceSourceTask failed to start listener.", e);
 		}
+		// An idle backup leaves it to poll() to start consuming once it becomes active
+		if (haSentinel == null || haStandbyMode == SolaceConnectorConstants.HAStandbyMode.SUBSCRIBED
+				|| haSentinel.isActiveMember()) {
+			startConsuming();
+		}
+	}
+
+	/**
+	 * Bind to the configured Queue in client acknowledge mode, so that messages stay on the router
+	 * until their records have been committed to Kafka. Each message is acknowledged on the flow it came from.
+	 */
+	protected Consumer createQueueFlow(JCSMPSession flowSession, XMLMessageListener listener) throws JCSMPException {
+		Queue queue = JCSMPFactory.onlyInstance().createQueue(solaceQueueName);
+		ConsumerFlowProperties flowProps = new ConsumerFlowProperties();
+		flowProps.setEndpoint(queue);
+		flowProps.setAckMode(JCSMPProperties.SUPPORTED_MESSAGE_ACK_CLIENT);
+		if (ackBatcher == null) {
+			ackBatcher = new MessageAckBatcher(ackBatchSize);
+		}
+		log.info("{} binding to Solace queue {}", instanceName, solaceQueueName);
+		return flowSession.createFlow(listener, flowProps);
+	}
+
+	/**
+	 * A zero copy payload is a ByteBuffer view, which only some value converters write correctly. Those shipped with
+	 * Kafka do not: JsonConverter writes the whole backing array and fails on a direct buffer, ByteArrayConverter only
+	 * accepts byte[] and StringConverter writes the buffer's description. The worker's default converter is not known
+	 * here, so the connector configuration must name the converter.
+	 */
+	static void checkZeroCopyConverter(String valueConverter) {
+		if (valueConverter == null || valueConverter.trim().isEmpty()) {
+			throw new ConnectException("SolaceSourceTask "+SolaceConnectorConstants.RECORD_ZERO_COPY+" requires "
+					+SolaceConnectorConstants.VALUE_CONVERTER_PROPERTY+" in the connector configuration");
+		}
+		if (ZERO_COPY_UNSUPPORTED_CONVERTERS.contains(valueConverter.trim())) {
+			throw new ConnectException("SolaceSourceTask "+SolaceConnectorConstants.RECORD_ZERO_COPY+" cannot be used with "
+					+valueConverter.trim()+", which does not serialise a ByteBuffer from its position to its limit");
+		}
 	}
 
 	protected void setParameters(Map<String, String> propMap)
@@ -165,32 +996,123 @@ public class SolaceSourceTask extends SourceTask implements SessionEventHandler
 		SolaceConfigDef conf = new SolaceConfigDef(SolaceConfigDef.defaultConfig(), propMap);
 
 		instanceName = conf.getString(SolaceConnectorConstants.CONNECTOR_INSTANCE);
+		// instance names are the same in every connector, so the metrics tell the connectors apart by name
+		connectorName = propMap.get(SolaceConnectorConstants.CONNECTOR_NAME_PROPERTY);
+		if (connectorName == null || connectorName.isEmpty()) {
+			connectorName = SolaceConnectorConstants.CONNECTOR_NAME;
+		}
 
 		smfHost = conf.getString(SolaceConnectorConstants.SOLACE_URL);
 		msgVpnName  = conf.getString(SolaceConnectorConstants.SOLACE_VPN);
 		clientUsername = conf.getString(SolaceConnectorConstants.SOLACE_USERNAME);
 		clientPassword = conf.getPassword(SolaceConnectorConstants.SOLACE_PASSWORD);
 		kafkaTopicName = conf.getString(SolaceConnectorConstants.KAFKA_TOPIC);
+		kafkaTopicRoutes = conf.getString(SolaceConnectorConstants.KAFKA_TOPIC_ROUTES);
+		kafkaTopicRouteCacheSize = conf.getInt(SolaceConnectorConstants.KAFKA_TOPIC_ROUTE_CACHE_SIZE);
 		solaceTopicName = conf.getString(SolaceConnectorConstants.SOLACE_TOPIC);
+		solaceQueueName = conf.getString(SolaceConnectorConstants.SOLACE_QUEUE);
+		ackBatchSize = conf.getInt(SolaceConnectorConstants.SOLACE_ACK_BATCH_SIZE);
+		sessionsPerTask = conf.getInt(SolaceConnectorConstants.SOLACE_SESSIONS_PER_TASK);
+		recordMode = SolaceConnectorConstants.RecordMode.fromValue(conf.getString(SolaceConnectorConstants.RECORD_MODE));
+		String fields = conf.getString(SolaceConnectorConstants.RECORD_FIELDS);
+		if (fields != null) {
+			// EnumSet keeps the schema field order independent of the configured order
+			EnumSet<HeaderField> selected = EnumSet.noneOf(HeaderField.class);
+			try {
+				for (String field : SolaceConfigDef.splitList(fields)) {
+					selected.add(HeaderField.fromFieldName(field));
+				}
+			} catch (IllegalArgumentException e) {
+				throw new ConnectException("SolaceSourceTask invalid "+SolaceConnectorConstants.RECORD_FIELDS, e);
+			}
+			recordFields = new ArrayList<HeaderField>(selected);
+		}
+		zeroCopyPayloads = conf.getBoolean(SolaceConnectorConstants.RECORD_ZERO_COPY);
+		recordKeyCacheSize = conf.getInt(SolaceConnectorConstants.RECORD_KEY_CACHE_SIZE);
+		resumeOffsets = conf.getBoolean(SolaceConnectorConstants.OFFSETS_RESUME);
+		latencyTracking = conf.getBoolean(SolaceConnectorConstants.METRICS_LATENCY);
+		latencyInterval = conf.getInt(SolaceConnectorConstants.METRICS_LATENCY_INTERVAL);
+		recordTimestamp = SolaceConnectorConstants.TimestampSource.fromValue(conf.getString(SolaceConnectorConstants.RECORD_TIMESTAMP));
+		try {
+			recordKeyStrategy = new RecordKeyStrategy(
+					SolaceConnectorConstants.KeyStrategy.fromValue(conf.getString(SolaceConnectorConstants.RECORD_KEY)),
+					conf.getString(SolaceConnectorConstants.RECORD_KEY_PROPERTY),
+					conf.getInt(SolaceConnectorConstants.RECORD_KEY_TOPIC_LEVEL),
+					conf.getInt(SolaceConnectorConstants.RECORD_PARTITIONS));
+		} catch (IllegalArgumentException e) {
+			throw new ConnectException("SolaceSourceTask invalid "+SolaceConnectorConstants.RECORD_KEY, e);
+		}
+		payloadDecoders = conf.getString(SolaceConnectorConstants.PAYLOAD_DECODERS);
+		payloadContentTypeProperty = conf.getString(SolaceConnectorConstants.PAYLOAD_CONTENT_TYPE_PROPERTY);
 		longPollInterval = conf.getInt(SolaceConnectorConstants.LONG_POLL_INTERVAL);
 		shortPollInterval = conf.getInt(SolaceConnectorConstants.SHORT_POLL_INTERVAL);
 		kafkaBufferSize = conf.getInt(SolaceConnectorConstants.POLL_BATCH_SIZE);
+		asyncPolling = conf.getBoolean(SolaceConnectorConstants.POLL_ASYNC);
+		asyncBufferSize = conf.getInt(SolaceConnectorConstants.POLL_ASYNC_BUFFER_SIZE);
+		maxBatchBytes = conf.getLong(SolaceConnectorConstants.POLL_MAX_BATCH_BYTES);
+		adaptivePolling = conf.getBoolean(SolaceConnectorConstants.POLL_ADAPTIVE);
+		minBatchSize = conf.getInt(SolaceConnectorConstants.POLL_MIN_BATCH_SIZE);
+		maxBatchSize = conf.getInt(SolaceConnectorConstants.POLL_MAX_BATCH_SIZE);
+		minShortPollInterval = conf.getInt(SolaceConnectorConstants.POLL_MIN_SHORT_INTERVAL);
+		maxShortPollInterval = conf.getInt(SolaceConnectorConstants.POLL_MAX_SHORT_INTERVAL);
+		lowLatencyPolling = conf.getBoolean(SolaceConnectorConstants.POLL_LOW_LATENCY);
 		reconnectRetries =  conf.getInt(SolaceConnectorConstants.SOLACE_RECONNECT_RETRIES);
 		reconnectRetryWaitInMillis = conf.getInt(SolaceConnectorConstants.SOLACE_RECONNECT_RETRY_WAIT);
+		compressionLevel = conf.getInt(SolaceConnectorConstants.SOLACE_COMPRESSION_LEVEL);
+		connectTimeoutInMillis = conf.getInt(SolaceConnectorConstants.SOLACE_CONNECT_TIMEOUT);
+		connectRetriesPerHost = conf.getInt(SolaceConnectorConstants.SOLACE_CONNECT_RETRIES_PER_HOST);
+		keepAliveIntervalInMillis = conf.getInt(SolaceConnectorConstants.SOLACE_KEEP_ALIVE_INTERVAL);
+		keepAliveLimit = conf.getInt(SolaceConnectorConstants.SOLACE_KEEP_ALIVE_LIMIT);
+		socketSendBuffer = conf.getInt(SolaceConnectorConstants.SOLACE_SOCKET_SEND_BUFFER);
+		socketReceiveBuffer = conf.getInt(SolaceConnectorConstants.SOLACE_SOCKET_RECEIVE_BUFFER);
+		tcpNoDelay = conf.getBoolean(SolaceConnectorConstants.SOLACE_TCP_NO_DELAY);
+		subAckWindowSize = conf.getInt(SolaceConnectorConstants.SOLACE_SUB_ACK_WINDOW_SIZE);
+		reapplySubscriptions = conf.getBoolean(SolaceConnectorConstants.SOLACE_REAPPLY_SUBSCRIPTIONS);
+		messageCallbackOnReactor = conf.getBoolean(SolaceConnectorConstants.SOLACE_MESSAGE_CALLBACK_ON_REACTOR);
 
 		haSentinelQueueName = conf.getString(SolaceConnectorConstants.SOLACE_HA_QUEUE);
+		haStandbyMode = SolaceConnectorConstants.HAStandbyMode.fromValue(conf.getString(SolaceConnectorConstants.SOLACE_HA_STANDBY_MODE));
+		haCheckpointTopic = conf.getString(SolaceConnectorConstants.SOLACE_HA_CHECKPOINT_TOPIC);
+		haCheckpointInterval = conf.getInt(SolaceConnectorConstants.SOLACE_HA_CHECKPOINT_INTERVAL);
+		haStandbyBufferSize = conf.getInt(SolaceConnectorConstants.SOLACE_HA_STANDBY_BUFFER_SIZE);
 	}
 
 	@Override
 	public void stop() {
-		if (consumer != null)
+		if (ackBatcher != null)
+		{
+			ackBatcher.flush();
+		}
+		if (checkpoint != null && haSentinel.isActiveMember())
+		{
+			// Leave the final position for whoever takes over
+			publishCheckpoint(true);
+		}
+		if (consumers != null)
+		{
+			// Unacknowledged messages are redelivered to the next consumer of the queue
+			for (Consumer c : consumers) {
+				c.close();
+			}
+		}
+		else if (consumer != null)
 		{
 			consumer.close();
 		}
-		if (session != null) 
+		if (sessions != null) 
+		{
+			for (JCSMPSession s : sessions) {
+				s.closeSession();
+			}
+		}
+		else if (session != null) 
 		{
 			session.closeSession();
 		}
+		if (metrics != null)
+		{
+			metrics.close();
+		}
 	}
 
 	public void connect() throws JCSMPException {
@@ -204,6 +1126,13 @@ public class SolaceSourceTask extends SourceTask implements SessionEventHandler
 		}
 		properties.setProperty(JCSMPProperties.APPLICATION_DESCRIPTION, 
 				SolaceConnectorConstants.CONNECTOR_NAME+" Version "+SolaceConnectorConstants.CONNECTOR_VERSION);
+		properties.setProperty(JCSMPProperties.SUB_ACK_WINDOW_SIZE, subAckWindowSize);
+		properties.setProperty(JCSMPProperties.REAPPLY_SUBSCRIPTIONS, reapplySubscriptions);
+		// Record timestamps other than the producer's and latency tracking may need the receive time
+		properties.setProperty(JCSMPProperties.GENERATE_RCV_TIMESTAMPS,
+				recordTimestamp != SolaceConnectorConstants.TimestampSource.PRODUCER || latencyTracking);
+		// Low latency mode converts on the I/O thread, saving the handoff to the dispatcher thread
+		properties.setProperty(JCSMPProperties.MESSAGE_CALLBACK_ON_REACTOR, messageCallbackOnReactor || lowLatencyPolling);
 
 		// Settings for automatic reconnection to Solace Router
 		JCSMPChannelProperties channelProps = (JCSMPChannelProperties) properties.getProperty(JCSMPProperties.CLIENT_CHANNEL_PROPERTIES);
@@ -212,24 +1141,50 @@ public class SolaceSourceTask extends SourceTask implements SessionEventHandler
 		channelProps.setConnectTimeoutInMillis(connectTimeoutInMillis);
 		channelProps.setConnectRetriesPerHost(connectRetriesPerHost);
 		channelProps.setKeepAliveIntervalInMillis(keepAliveIntervalInMillis);
+		channelProps.setKeepAliveLimit(keepAliveLimit);
+		channelProps.setCompressionLevel(compressionLevel);
+
+		// Socket settings
+		channelProps.setSendBuffer(socketSendBuffer);
+		channelProps.setReceiveBuffer(socketReceiveBuffer);
+		channelProps.setTcpNoDelay(tcpNoDelay);
 
 		properties.setProperty(JCSMPProperties.CLIENT_CHANNEL_PROPERTIES, channelProps);
 
 
 		log.info("Connecting to Solace Message Router...");
-		topic = JCSMPFactory.onlyInstance().createTopic(solaceTopicName);
-		session = JCSMPFactory.onlyInstance().createSession(properties, null, this);
-		session.connect();		
+		topics = new ArrayList<Topic>();
+		for (String topicName : SolaceConfigDef.splitList(solaceTopicName)) {
+			topics.add(JCSMPFactory.onlyInstance().createTopic(topicName));
+		}
+		sessions = new ArrayList<JCSMPSession>(sessionsPerTask);
+		for (int i = 0; i < sessionsPerTask; i++) {
+			JCSMPSession s = createSession(properties);
+			s.connect();
+			sessions.add(s);
+		}
+		session = sessions.get(0);
 		log.info("Connection succeeded!");
+		if (sessionsPerTask > 1 && solaceQueueName == null && topics.size() < sessionsPerTask) {
+			log.warn("{} has {} topics for {} sessions, some sessions will receive nothing", instanceName, topics.size(), sessionsPerTask);
+		}
 
 		if (haSentinelQueueName != null)
 		{
-			haSentinel = new HASentinel(instanceName, session, haSentinelQueueName);
+			haSentinel = new HASentinel(instanceName, session, haSentinelQueueName, haCheckpointTopic);
+			haSentinel.addStateListener(this);
 			haSentinel.start();
 		}
 
 	}
 
+	/**
+	 * Create the session connect() uses. Tests override this to run the task without a message router.
+	 */
+	protected JCSMPSession createSession(JCSMPProperties properties) throws JCSMPException {
+		return JCSMPFactory.onlyInstance().createSession(properties, null, this);
+	}
+
 	@Override
 	public void handleEvent(SessionEventArgs arg0) {
 		log.info("Received event on Session:"+arg0.getResponseCode()+" "+arg0.getInfo());
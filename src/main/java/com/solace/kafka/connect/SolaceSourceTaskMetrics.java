@@ -0,0 +1,218 @@
+package com.solace.kafka.connect;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.JmxReporter;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.Measurable;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.MetricsReporter;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Percentile;
+import org.apache.kafka.common.metrics.stats.Percentiles;
+import org.apache.kafka.common.metrics.stats.Percentiles.BucketSizing;
+import org.apache.kafka.common.metrics.stats.Rate;
+import org.apache.kafka.common.metrics.stats.Total;
+import org.apache.kafka.common.utils.Time;
+
+/**
+ * Metrics for one SolaceSourceTask, published as JMX MBeans named
+ * kafka.connect.solace:type=solace-source-task-metrics,connector=&lt;connector name&gt;,instance=&lt;connector instance&gt;.
+ * The instance names are numbered the same way in every connector, so the connector name keeps the
+ * tasks of several connectors in one worker apart.
+ *
+ * The task accumulates its counters over a whole poll() and records them here once per poll, so
+ * the cost of the synchronized Sensor updates does not grow with the message rate.
+ */
+public class SolaceSourceTaskMetrics {
+
+	public static final String JMX_PREFIX = "kafka.connect.solace";
+	public static final String GROUP = "solace-source-task-metrics";
+	public static final String CONNECTOR_TAG = "connector";
+	public static final String INSTANCE_TAG = "instance";
+
+	private static final int PERCENTILES_SIZE_BYTES = 4096;
+
+	private final Metrics metrics;
+	private final Map<String, String> tags;
+	private final Sensor messagesReceived;
+	private final Sensor bytesReceived;
+	private final Sensor recordsPerPoll;
+	private final Sensor receiveBlockedTime;
+	private final Sensor conversionTime;
+
+	/**
+	 * @param connectorName name of the connector the task belongs to
+	 * @param instanceName identifies the task within the connector
+	 * @param maxBatchSize largest number of records one poll can return, the upper bound of the records per poll histogram
+	 */
+	public SolaceSourceTaskMetrics(String connectorName, String instanceName, int maxBatchSize) {
+		this(connectorName, instanceName, maxBatchSize, Collections.<MetricsReporter>singletonList(new JmxReporter(JMX_PREFIX)));
+	}
+
+	SolaceSourceTaskMetrics(String connectorName, String instanceName, int maxBatchSize, List<MetricsReporter> reporters) {
+		metrics = new Metrics(new MetricConfig(), reporters, Time.SYSTEM);
+		tags = new LinkedHashMap<String, String>();
+		tags.put(CONNECTOR_TAG, connectorName);
+		tags.put(INSTANCE_TAG, instanceName);
+
+		messagesReceived = metrics.sensor(instanceName+".messages-received");
+		messagesReceived.add(name("messages-received-rate", "Messages received from Solace per second"), new Rate());
+		messagesReceived.add(name("messages-received-total", "Messages received from Solace"), new Total());
+
+		bytesReceived = metrics.sensor(instanceName+".bytes-received");
+		bytesReceived.add(name("bytes-received-rate", "Payload bytes received from Solace per second"), new Rate());
+		bytesReceived.add(name("bytes-received-total", "Payload bytes received from Solace"), new Total());
+
+		recordsPerPoll = metrics.sensor(instanceName+".records-per-poll");
+		recordsPerPoll.add(name("records-per-poll-avg", "Average number of records returned by poll()"), new Avg());
+		recordsPerPoll.add(name("records-per-poll-max", "Largest number of records returned by poll()"), new Max());
+		recordsPerPoll.add(new Percentiles(PERCENTILES_SIZE_BYTES, Math.max(maxBatchSize, 1), BucketSizing.LINEAR,
+				new Percentile(name("records-per-poll-p50", "Median number of records returned by poll()"), 50),
+				new Percentile(name("records-per-poll-p95", "95th percentile of the records returned by poll()"), 95),
+				new Percentile(name("records-per-poll-p99", "99th percentile of the records returned by poll()"), 99)));
+
+		receiveBlockedTime = metrics.sensor(instanceName+".receive-blocked-time");
+		receiveBlockedTime.add(name("receive-blocked-time-avg-ms", "Average time per poll() spent waiting for messages"), new Avg());
+		receiveBlockedTime.add(name("receive-blocked-time-max-ms", "Longest time in one poll() spent waiting for messages"), new Max());
+		receiveBlockedTime.add(name("receive-blocked-ratio", "Fraction of the time spent waiting for messages"), new Rate(TimeUnit.MILLISECONDS));
+
+		conversionTime = metrics.sensor(instanceName+".conversion-time");
+		conversionTime.add(name("conversion-time-avg-us", "Average time to convert one message into a record"), new Avg());
+		conversionTime.add(name("conversion-time-max-us", "Largest average conversion time of the messages in one poll()"), new Max());
+	}
+
+	private MetricName name(String name, String description) {
+		return metrics.metricName(name, GROUP, description, tags);
+	}
+
+	/**
+	 * Record the outcome of one poll().
+	 * @param records number of records returned
+	 * @param bytes payload bytes of the messages received
+	 * @param blockedNanos time spent waiting for messages
+	 * @param conversionNanos time spent converting the messages
+	 */
+	public void recordPoll(int records, long bytes, long blockedNanos, long conversionNanos) {
+		long now = Time.SYSTEM.milliseconds();
+		recordsPerPoll.record(records, now);
+		receiveBlockedTime.record(blockedNanos / 1000000.0, now);
+		if (records > 0) {
+			messagesReceived.record(records, now);
+			bytesReceived.record(bytes, now);
+			conversionTime.record(conversionNanos / 1000.0 / records, now);
+		}
+	}
+
+	/**
+	 * Publish the HA state of the task, 1 while it is the active member and 0 while it is a backup,
+	 * and how long the last takeover took.
+	 */
+	public void addHAState(final HASentinel sentinel) {
+		metrics.addMetric(name("ha-active", "1 if the task is the active member of its HA group, 0 if it is a backup"),
+				new Measurable() {
+					@Override
+					public double measure(MetricConfig config, long now) {
+						return sentinel.isActiveMember() ? 1 : 0;
+					}
+				});
+		metrics.addMetric(name("ha-takeover-time-ms", "Time from becoming active to passing the first records to Kafka at the last takeover"),
+				new Measurable() {
+					@Override
+					public double measure(MetricConfig config, long now) {
+						return sentinel.getTakeoverMillis();
+					}
+				});
+		metrics.addMetric(name("ha-checkpoint-age-ms", "Age of the previous active member's checkpoint at the last takeover"),
+				new Measurable() {
+					@Override
+					public double measure(MetricConfig config, long now) {
+						return sentinel.getCheckpointAgeMillis();
+					}
+				});
+	}
+
+	/**
+	 * Publish the batch size and short poll wait chosen by adaptive polling.
+	 */
+	public void addAdaptivePolling(final AdaptivePollController controller) {
+		metrics.addMetric(name("adaptive-batch-size", "Batch size the next poll() will use"),
+				new Measurable() {
+					@Override
+					public double measure(MetricConfig config, long now) {
+						return controller.getBatchSize();
+					}
+				});
+		metrics.addMetric(name("adaptive-short-interval-ms", "Wait for a further message the next poll() will use"),
+				new Measurable() {
+					@Override
+					public double measure(MetricConfig config, long now) {
+						return controller.getShortInterval();
+					}
+				});
+		metrics.addMetric(name("poll-gap-avg-ms", "Smoothed time between poll() returning and being called again"),
+				new Measurable() {
+					@Override
+					public double measure(MetricConfig config, long now) {
+						return controller.getPollGapMillis();
+					}
+				});
+	}
+
+	/**
+	 * Publish the latency percentiles of each stage over the last interval which ended.
+	 */
+	public void addLatency(final LatencyTracker tracker) {
+		for (final LatencyTracker.Stage stage : LatencyTracker.Stage.values()) {
+			String prefix = "latency-"+stage.getValue();
+			addLatencyPercentile(tracker, stage, prefix+"-p50-us", "Median "+stage.getValue()+" latency", 50);
+			addLatencyPercentile(tracker, stage, prefix+"-p99-us", "99th percentile of the "+stage.getValue()+" latency", 99);
+			addLatencyPercentile(tracker, stage, prefix+"-p999-us", "99.9th percentile of the "+stage.getValue()+" latency", 99.9);
+			metrics.addMetric(name(prefix+"-max-us", "Largest "+stage.getValue()+" latency in the last interval"),
+					new Measurable() {
+						@Override
+						public double measure(MetricConfig config, long now) {
+							return tracker.getLastInterval(stage).max();
+						}
+					});
+			metrics.addMetric(name(prefix+"-count", "Messages measured for the "+stage.getValue()+" latency in the last interval"),
+					new Measurable() {
+						@Override
+						public double measure(MetricConfig config, long now) {
+							return tracker.getLastInterval(stage).getCount();
+						}
+					});
+		}
+	}
+
+	private void addLatencyPercentile(final LatencyTracker tracker, final LatencyTracker.Stage stage, String name,
+			String description, final double percentile) {
+		metrics.addMetric(name(name, description+" in the last interval"),
+				new Measurable() {
+					@Override
+					public double measure(MetricConfig config, long now) {
+						return tracker.getLastInterval(stage).percentile(percentile);
+					}
+				});
+	}
+
+	/**
+	 * @return the current value of the named metric, or NaN if there is no such metric
+	 */
+	public double value(String name) {
+		KafkaMetric metric = metrics.metric(metrics.metricName(name, GROUP, tags));
+		return metric == null ? Double.NaN : metric.value();
+	}
+
+	public void close() {
+		metrics.close();
+	}
+}
@@ -0,0 +1,146 @@
+package com.solace.kafka.connect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds Structs and arrays from structured data whose schema is only known from the data itself,
+ * such as SDT maps and JSON documents.
+ *
+ * Structs get one optional field per key, in the sorted order of the keys. Arrays whose elements all have
+ * the same shape get that element type, otherwise the elements are passed on as text. The same publisher
+ * nearly always sends data of the same shape, so each generated schema is cached under a signature made of
+ * its key names and value types, and repeated shapes share one Schema instance.
+ *
+ * @param <V> the type of the raw values
+ */
+public abstract class StructSchemaConverter<V> {
+
+	private static final Logger log = LoggerFactory.getLogger(StructSchemaConverter.class);
+
+	/**
+	 * Upper bound on the number of cached schemas, the cache is emptied when it is reached
+	 */
+	public static final int MAX_CACHED_SCHEMAS = 1024;
+
+	static final Schema STRING_ARRAY_SCHEMA = SchemaBuilder.array(Schema.OPTIONAL_STRING_SCHEMA).optional().build();
+
+	private final ConcurrentHashMap<String, Schema> schemaCache = new ConcurrentHashMap<String, Schema>();
+
+	/**
+	 * Convert a single raw value, setting its schema in schemaOut[index] and appending its type to the signature.
+	 */
+	protected abstract Object convertValue(V raw, StringBuilder signature, Schema[] schemaOut, int index);
+
+	/**
+	 * @return the value as text, for arrays of mixed elements
+	 */
+	protected abstract String toText(V raw);
+
+	/**
+	 * Build a Struct from the values of the sorted keys. Null values are left out.
+	 * @param signature the shape of the Struct is appended to this, so that callers can cache schemas which contain it
+	 */
+	protected Struct buildStruct(String[] keys, List<V> raws, StringBuilder signature) {
+		Object[] values = new Object[keys.length];
+		Schema[] schemas = new Schema[keys.length];
+		int start = signature.length();
+		signature.append('{');
+		for (int i = 0; i < keys.length; i++) {
+			V raw = raws.get(i);
+			if (raw == null) {
+				continue;
+			}
+			signature.append(keys[i].length()).append(keys[i]).append('=');
+			values[i] = convertValue(raw, signature, schemas, i);
+			signature.append(';');
+		}
+		signature.append('}');
+
+		String key = signature.substring(start);
+		Schema schema = schemaCache.get(key);
+		if (schema == null) {
+			SchemaBuilder sb = SchemaBuilder.struct().optional();
+			for (int i = 0; i < keys.length; i++) {
+				if (schemas[i] != null) {
+					sb.field(keys[i], schemas[i]);
+				}
+			}
+			schema = cache(key, sb.build());
+		}
+
+		Struct struct = new Struct(schema);
+		for (int i = 0; i < keys.length; i++) {
+			if (values[i] != null) {
+				struct.put(keys[i], values[i]);
+			}
+		}
+		return struct;
+	}
+
+	/**
+	 * Build an array from the elements, setting its schema in schemaOut[index]. Null elements stay null.
+	 */
+	protected List<Object> buildList(List<V> raws, StringBuilder signature, Schema[] schemaOut, int index) {
+		List<Object> elements = new ArrayList<Object>(raws.size());
+		StringBuilder elementSignature = new StringBuilder();
+		String commonSignature = null;
+		boolean mixed = false;
+		Schema[] elementSchema = new Schema[1];
+
+		for (V raw : raws) {
+			if (raw == null) {
+				elements.add(null);
+				continue;
+			}
+			elementSignature.setLength(0);
+			elements.add(convertValue(raw, elementSignature, elementSchema, 0));
+			String sig = elementSignature.toString();
+			if (commonSignature == null) {
+				commonSignature = sig;
+			}
+			else if (!commonSignature.equals(sig)) {
+				mixed = true;
+			}
+		}
+
+		if (mixed || commonSignature == null) {
+			for (int i = 0; i < raws.size(); i++) {
+				V raw = raws.get(i);
+				elements.set(i, raw == null ? null : toText(raw));
+			}
+			signature.append("[S]");
+			schemaOut[index] = STRING_ARRAY_SCHEMA;
+			return elements;
+		}
+
+		String key = "[" + commonSignature + "]";
+		signature.append(key);
+		Schema schema = schemaCache.get(key);
+		if (schema == null) {
+			schema = cache(key, SchemaBuilder.array(elementSchema[0]).optional().build());
+		}
+		schemaOut[index] = schema;
+		return elements;
+	}
+
+	private Schema cache(String key, Schema schema) {
+		if (schemaCache.size() >= MAX_CACHED_SCHEMAS) {
+			log.info("{} schema cache full, clearing {} entries", getClass().getSimpleName(), schemaCache.size());
+			schemaCache.clear();
+		}
+		Schema existing = schemaCache.putIfAbsent(key, schema);
+		return existing == null ? schema : existing;
+	}
+
+	public int getCachedSchemaCount() {
+		return schemaCache.size();
+	}
+}
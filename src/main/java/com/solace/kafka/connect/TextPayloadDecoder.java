@@ -0,0 +1,68 @@
+package com.solace.kafka.connect;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+
+/**
+ * Decodes the payload as a string, using the charset parameter of the content type or UTF-8.
+ * Useful for publishers such as REST or MQTT clients which send text as a binary payload.
+ */
+public class TextPayloadDecoder implements PayloadDecoder {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String CHARSET_PARAMETER = "charset=";
+
+	/**
+	 * Upper bound on the number of cached charset names, the cache is emptied when it is reached
+	 */
+	static final int MAX_CACHED_CHARSETS = 64;
+
+	// keyed by the lower case charset name, so any number of content types with the same charset share one entry
+	private final ConcurrentHashMap<String, Charset> charsets = new ConcurrentHashMap<String, Charset>();
+
+	@Override
+	public void configure(Map<String, ?> configs) {
+	}
+
+	@Override
+	public SchemaAndValue decode(String contentType, ByteBuffer payload) {
+		return new SchemaAndValue(Schema.OPTIONAL_STRING_SCHEMA, charset(contentType).decode(payload).toString());
+	}
+
+	private Charset charset(String contentType) {
+		if (contentType == null) {
+			return UTF8;
+		}
+		int start = contentType.toLowerCase(Locale.ROOT).indexOf(CHARSET_PARAMETER);
+		if (start < 0) {
+			return UTF8;
+		}
+		start += CHARSET_PARAMETER.length();
+		int end = contentType.indexOf(';', start);
+		String name = (end < 0 ? contentType.substring(start) : contentType.substring(start, end)).trim().replace("\"", "").toLowerCase(Locale.ROOT);
+		Charset charset = charsets.get(name);
+		if (charset == null) {
+			try {
+				charset = Charset.forName(name);
+			} catch (IllegalArgumentException e) {
+				// unknown or malformed charset, stay with UTF-8
+				charset = UTF8;
+			}
+			if (charsets.size() >= MAX_CACHED_CHARSETS) {
+				charsets.clear();
+			}
+			charsets.put(name, charset);
+		}
+		return charset;
+	}
+
+	int cachedCharsetCount() {
+		return charsets.size();
+	}
+}
@@ -0,0 +1,184 @@
+package com.solace.kafka.connect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps Solace destination names to Kafka topics using a table of Solace topic patterns.
+ *
+ * The patterns follow Solace wildcard rules:
+ *  - '*' on its own matches exactly one level, 'abc*' matches one level starting with 'abc'
+ *  - '>' as the last level matches one or more further levels
+ *
+ * The patterns are compiled into a trie of topic levels, so resolving a destination costs one
+ * walk down the trie rather than a scan of every pattern. When several patterns match, the one
+ * declared first wins. Resolved destinations are kept in a bounded LRU cache since the same
+ * destinations tend to repeat.
+ */
+public class TopicRouter {
+
+	private static final String LEVEL_SEPARATOR = "/";
+	private static final String ANY_LEVEL = "*";
+	private static final String ANY_REMAINING = ">";
+	private static final int NO_ROUTE = Integer.MAX_VALUE;
+
+	private static class Node {
+		Map<String, Node> literals = new HashMap<String, Node>();
+		Node anyLevel;
+		List<String> prefixes = new ArrayList<String>();
+		List<Node> prefixNodes = new ArrayList<Node>();
+		// route index of a pattern ending at this node
+		int terminalRoute = NO_ROUTE;
+		// route index of a pattern ending with '>' below this node
+		int remainingRoute = NO_ROUTE;
+	}
+
+	private final Node root = new Node();
+	private final List<String> kafkaTopics = new ArrayList<String>();
+	private final String defaultTopic;
+	private final Map<String, String> cache;
+
+	/**
+	 * @param defaultTopic Kafka topic for destinations which match no pattern
+	 * @param cacheSize maximum number of resolved destinations to remember
+	 */
+	public TopicRouter(String defaultTopic, final int cacheSize) {
+		this.defaultTopic = defaultTopic;
+		this.cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Build a router from a comma separated list of pattern:kafkaTopic entries, eg "prices/>:prices,orders/eu*:eu_orders".
+	 * Kafka topic names cannot contain ':' so the last ':' in each entry separates the pattern from the topic.
+	 */
+	public static TopicRouter fromRoutes(String routes, String defaultTopic, int cacheSize) {
+		TopicRouter router = new TopicRouter(defaultTopic, cacheSize);
+		for (String route : SolaceConfigDef.splitList(routes)) {
+			int split = route.lastIndexOf(':');
+			if (split <= 0 || split == route.length()-1) {
+				throw new IllegalArgumentException("Topic route must be of the form <solace pattern>:<kafka topic>: "+route);
+			}
+			router.addRoute(route.substring(0, split).trim(), route.substring(split+1).trim());
+		}
+		return router;
+	}
+
+	public void addRoute(String solacePattern, String kafkaTopic) {
+		int routeIndex = kafkaTopics.size();
+		kafkaTopics.add(kafkaTopic);
+		synchronized (cache) {
+			cache.clear();
+		}
+
+		String[] levels = solacePattern.split(LEVEL_SEPARATOR, -1);
+		Node node = root;
+		for (int i = 0; i < levels.length; i++) {
+			String level = levels[i];
+			if (i == levels.length-1 && level.equals(ANY_REMAINING)) {
+				node.remainingRoute = Math.min(node.remainingRoute, routeIndex);
+				return;
+			}
+			node = child(node, level);
+		}
+		node.terminalRoute = Math.min(node.terminalRoute, routeIndex);
+	}
+
+	private static Node child(Node node, String level) {
+		if (level.equals(ANY_LEVEL)) {
+			if (node.anyLevel == null) {
+				node.anyLevel = new Node();
+			}
+			return node.anyLevel;
+		}
+		if (level.endsWith(ANY_LEVEL)) {
+			String prefix = level.substring(0, level.length()-1);
+			int index = node.prefixes.indexOf(prefix);
+			if (index < 0) {
+				node.prefixes.add(prefix);
+				node.prefixNodes.add(new Node());
+				index = node.prefixes.size()-1;
+			}
+			return node.prefixNodes.get(index);
+		}
+		Node next = node.literals.get(level);
+		if (next == null) {
+			next = new Node();
+			node.literals.put(level, next);
+		}
+		return next;
+	}
+
+	/**
+	 * @return the Kafka topic for the destination, or the default topic if no pattern matches
+	 */
+	public String route(String destination) {
+		String kafkaTopic;
+		synchronized (cache) {
+			kafkaTopic = cache.get(destination);
+		}
+		if (kafkaTopic != null) {
+			return kafkaTopic;
+		}
+
+		int routeIndex = match(root, destination.split(LEVEL_SEPARATOR, -1), 0);
+		kafkaTopic = routeIndex == NO_ROUTE ? defaultTopic : kafkaTopics.get(routeIndex);
+		synchronized (cache) {
+			cache.put(destination, kafkaTopic);
+		}
+		return kafkaTopic;
+	}
+
+	private static int match(Node node, String[] levels, int depth) {
+		if (depth == levels.length) {
+			return node.terminalRoute;
+		}
+		// '>' needs at least one more level, which we have
+		int best = node.remainingRoute;
+		String level = levels[depth];
+
+		Node next = node.literals.get(level);
+		if (next != null) {
+			best = Math.min(best, match(next, levels, depth+1));
+		}
+		if (node.anyLevel != null) {
+			best = Math.min(best, match(node.anyLevel, levels, depth+1));
+		}
+		for (int i = 0; i < node.prefixes.size(); i++) {
+			if (level.startsWith(node.prefixes.get(i))) {
+				best = Math.min(best, match(node.prefixNodes.get(i), levels, depth+1));
+			}
+		}
+		return best;
+	}
+
+	public int size() {
+		return kafkaTopics.size();
+	}
+
+	/**
+	 * @return the number of resolved destinations currently cached
+	 */
+	int cachedCount() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * @return true if the destination's Kafka topic is cached, without counting as a use of the entry
+	 */
+	boolean isCached(String destination) {
+		synchronized (cache) {
+			return cache.containsKey(destination);
+		}
+	}
+}
@@ -83,6 +83,7 @@ public class FTMgr {
      * @throws JCSMPException In the event of any failures in connecting to Solace or binding to the cluster.
      */
     public void startStateful(String ftClusterName, String outputSubscription, final FTEventListener listener) throws JCSMPException {
+        this.listener = listener;
         // Everyone starts out as slave, Solace doesn't event for listeners initially bound as backup
         listener.onBackup();
         connection.bindExclusiveWithState(
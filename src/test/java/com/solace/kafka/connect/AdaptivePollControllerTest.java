@@ -0,0 +1,80 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AdaptivePollControllerTest {
+
+	private static final long MS = 1000000L;
+
+	private long now = 1000 * MS;
+
+	/**
+	 * Simulate a poll which takes pollMillis and returns records, followed by gapMillis in Kafka Connect
+	 */
+	private void poll(AdaptivePollController controller, int records, long pollMillis, long gapMillis) {
+		controller.pollStarted(now);
+		now += pollMillis * MS;
+		controller.pollCompleted(records, now);
+		now += gapMillis * MS;
+	}
+
+	@Test
+	public void testGrowsUnderLoad() {
+		AdaptivePollController controller = new AdaptivePollController(10, 10000, 100, 1, 50, 10);
+		// 50k msg/s, every poll fills its batch
+		for (int i = 0; i < 20; i++) {
+			int batch = controller.getBatchSize();
+			poll(controller, batch, Math.max(batch / 50, 1), 1);
+		}
+		assertEquals(10000, controller.getBatchSize());
+		assertEquals(1, controller.getShortInterval());
+	}
+
+	@Test
+	public void testShrinksWhenQuiet() {
+		AdaptivePollController controller = new AdaptivePollController(10, 10000, 5000, 1, 50, 10);
+		// long polls which time out empty
+		for (int i = 0; i < 20; i++) {
+			poll(controller, 0, 1000, 1);
+		}
+		assertEquals(10, controller.getBatchSize());
+		assertEquals(1, controller.getShortInterval());
+		assertEquals(0, controller.getArrivalRate(), 0.001);
+	}
+
+	@Test
+	public void testModerateRate() {
+		AdaptivePollController controller = new AdaptivePollController(10, 10000, 100, 1, 50, 10);
+		// 200 msg/s: 20 messages in each 100ms cycle
+		for (int i = 0; i < 50; i++) {
+			poll(controller, 20, 95, 5);
+		}
+		assertEquals(200, controller.getArrivalRate(), 1);
+		assertEquals(40, controller.getBatchSize(), 1);
+		// 5ms between messages
+		assertEquals(10, controller.getShortInterval());
+	}
+
+	@Test
+	public void testBackpressureGrowsBatch() {
+		AdaptivePollController fast = new AdaptivePollController(10, 10000, 100, 1, 50, 10);
+		AdaptivePollController slow = new AdaptivePollController(10, 10000, 100, 1, 50, 10);
+		// the same 1000 msg/s arrival rate, but the producer takes 4 times longer to accept each batch
+		for (int i = 0; i < 50; i++) {
+			poll(fast, 50, 25, 25);
+		}
+		for (int i = 0; i < 50; i++) {
+			poll(slow, 200, 40, 160);
+		}
+		assertEquals(25, fast.getPollGapMillis(), 0.1);
+		assertEquals(160, slow.getPollGapMillis(), 0.1);
+		assertTrue(slow.getBatchSize() > 2 * fast.getBatchSize());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBounds() {
+		new AdaptivePollController(100, 10, 50, 1, 50, 10);
+	}
+}
@@ -0,0 +1,108 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.TextMessage;
+
+public class HACheckpointTest {
+
+	private static BytesXMLMessage message(String senderId, Long sequenceNumber) {
+		TextMessage msg = JCSMPFactory.onlyInstance().createMessage(TextMessage.class);
+		msg.setSenderId(senderId);
+		if (sequenceNumber != null) {
+			msg.setSequenceNumber(sequenceNumber);
+		}
+		return msg;
+	}
+
+	@Test
+	public void testCommitted() {
+		HACheckpoint checkpoint = new HACheckpoint();
+		assertTrue(checkpoint.isEmpty());
+		assertFalse(checkpoint.isDirty());
+
+		checkpoint.committed("a", 5L);
+		// records may be committed out of order
+		checkpoint.committed("a", 3L);
+		checkpoint.committed(null, 7L);
+		checkpoint.committed("b", null);
+		assertTrue(checkpoint.isDirty());
+
+		assertTrue(checkpoint.covers(message("a", 5L)));
+		assertTrue(checkpoint.covers(message("a", 1L)));
+		assertFalse(checkpoint.covers(message("a", 6L)));
+		assertTrue(checkpoint.covers(message(null, 7L)));
+		assertFalse(checkpoint.covers(message("b", 1L)));
+		assertFalse(checkpoint.covers(message("a", null)));
+	}
+
+	@Test
+	public void testOutOfOrderCommits() throws Exception {
+		HACheckpoint checkpoint = new HACheckpoint();
+		for (long i = 1; i <= 5; i++) {
+			checkpoint.polled("a", i);
+		}
+		checkpoint.polled("b", 1L);
+
+		// records on different Kafka partitions, 5 is written before 3 and 4
+		checkpoint.committed("a", 1L);
+		checkpoint.committed("a", 2L);
+		checkpoint.committed("a", 5L);
+		assertTrue(checkpoint.covers(message("a", 2L)));
+		assertFalse(checkpoint.covers(message("a", 3L)));
+		assertFalse(checkpoint.covers(message("a", 5L)));
+		assertFalse(checkpoint.covers(message("b", 1L)));
+
+		// a member taking over now must pass on 3 and 4 again
+		HACheckpoint received = HACheckpoint.fromMessage(checkpoint.toMessage("task_0"));
+		assertTrue(received.covers(message("a", 2L)));
+		assertFalse(received.covers(message("a", 3L)));
+		assertFalse(received.covers(message("a", 4L)));
+		assertFalse(received.isEmpty());
+
+		checkpoint.committed("a", 4L);
+		assertFalse(checkpoint.covers(message("a", 3L)));
+		checkpoint.committed("a", 3L);
+		assertTrue(checkpoint.covers(message("a", 5L)));
+		assertFalse(checkpoint.covers(message("a", 6L)));
+
+		// messages polled after the commits hold the checkpoint back only once they are in flight
+		checkpoint.polled("a", 6L);
+		checkpoint.polled("a", 7L);
+		checkpoint.committed("a", 7L);
+		assertTrue(checkpoint.covers(message("a", 5L)));
+		assertFalse(checkpoint.covers(message("a", 6L)));
+		assertFalse(checkpoint.covers(message("a", 7L)));
+	}
+
+	@Test
+	public void testMessageRoundTrip() throws Exception {
+		HACheckpoint checkpoint = new HACheckpoint();
+		checkpoint.committed("a", 5L);
+		checkpoint.committed("b", 10L);
+		long before = System.currentTimeMillis();
+		BytesXMLMessage msg = checkpoint.toMessage("task_0");
+		assertFalse(checkpoint.isDirty());
+
+		HACheckpoint received = HACheckpoint.fromMessage(msg);
+		assertEquals("task_0", received.getInstance());
+		assertTrue(received.getTimestamp() >= before);
+		assertTrue(received.covers(message("a", 5L)));
+		assertFalse(received.covers(message("b", 11L)));
+
+		HACheckpoint local = new HACheckpoint();
+		local.committed("b", 12L);
+		local.merge(received);
+		assertTrue(local.covers(message("a", 5L)));
+		assertTrue(local.covers(message("b", 12L)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotACheckpoint() {
+		HACheckpoint.fromMessage(message("a", 1L));
+	}
+}
@@ -4,6 +4,10 @@ import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -87,6 +91,42 @@ public class HASentinelTest {
 		}
 	}
 
+	/**
+	 * Check the state transitions and listener callbacks, driving the FT events directly
+	 */
+	@Test
+	public void testStateListener() throws Exception {
+		final HASentinel sentinel = new HASentinel("listener", null, "unused");
+		final List<String> changes = Collections.synchronizedList(new ArrayList<String>());
+		sentinel.addStateListener(new HAStateListener() {
+			@Override
+			public void onStateChange(HASentinel.State previous, HASentinel.State current) {
+				changes.add(previous+"->"+current);
+			}
+		});
+		assertEquals(HASentinel.State.STARTING, sentinel.getState());
+
+		sentinel.onBackup();
+		// repeated events are not passed on
+		sentinel.onBackup();
+		assertFalse(sentinel.awaitActive(10));
+
+		new Thread() {
+			@Override
+			public void run() {
+				try { Thread.sleep(100); } catch(InterruptedException e) {}
+				sentinel.onActive(null);
+			}
+		}.start();
+		long start = System.currentTimeMillis();
+		assertTrue(sentinel.awaitActive(5000));
+		assertTrue(System.currentTimeMillis() - start < 4000);
+		assertTrue(sentinel.isActiveMember());
+
+		sentinel.onBackup();
+		assertEquals(Arrays.asList("STARTING->BACKUP", "BACKUP->ACTIVE", "ACTIVE->BACKUP"), changes);
+	}
+
 	/**
 	 * Start 2 instances of the sentinel. The first one to start should become active, when it stops the next becomes active.
 	 * @throws Exception 
@@ -0,0 +1,962 @@
+package com.solace.kafka.connect;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.solacesystems.jcsmp.Browser;
+import com.solacesystems.jcsmp.BrowserProperties;
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.ClosedFacilityException;
+import com.solacesystems.jcsmp.ConsumerFlowProperties;
+import com.solacesystems.jcsmp.DeliveryMode;
+import com.solacesystems.jcsmp.Destination;
+import com.solacesystems.jcsmp.Endpoint;
+import com.solacesystems.jcsmp.EndpointProperties;
+import com.solacesystems.jcsmp.FlowEvent;
+import com.solacesystems.jcsmp.FlowEventArgs;
+import com.solacesystems.jcsmp.FlowEventHandler;
+import com.solacesystems.jcsmp.FlowReceiver;
+import com.solacesystems.jcsmp.JCSMPException;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.JCSMPInterruptedException;
+import com.solacesystems.jcsmp.JCSMPProperties;
+import com.solacesystems.jcsmp.JCSMPSession;
+import com.solacesystems.jcsmp.Queue;
+import com.solacesystems.jcsmp.TextMessage;
+import com.solacesystems.jcsmp.Topic;
+import com.solacesystems.jcsmp.XMLMessageConsumer;
+import com.solacesystems.jcsmp.XMLMessageListener;
+import com.solacesystems.jcsmp.XMLMessageProducer;
+
+/**
+ * An in-process stand-in for a Solace message router, so that the task and the HA sentinel can be
+ * load, soak and failover tested without a router.
+ *
+ * It implements the part of the JCSMP API the connector uses:
+ *  - sessions with topic subscriptions, including wildcards and #share/ shared subscriptions
+ *  - a synchronous or asynchronous XMLMessageConsumer per session
+ *  - queues with topic subscriptions and client or auto acknowledged flows. Unacknowledged messages
+ *    are redelivered when their flow closes
+ *  - exclusive queues with active flow indication, where the next flow becomes active when the active
+ *    one closes, and last value queues which are only browsed
+ *  - a producer which publishes back into the broker
+ * Asynchronous deliveries and flow events run on one dispatcher thread per session, like the API's
+ * context thread. Everything else throws UnsupportedOperationException.
+ *
+ * Messages are published with publish() or at a fixed rate with startPublisher().
+ */
+public class InMemorySolaceBroker {
+
+	private static final String SHARE_PREFIX = SolaceConnectorConstants.SHARED_SUBSCRIPTION_PREFIX;
+
+	private final List<SessionHandler> sessions = new CopyOnWriteArrayList<SessionHandler>();
+	private final ConcurrentHashMap<String, InMemoryQueue> queues = new ConcurrentHashMap<String, InMemoryQueue>();
+	private final ConcurrentHashMap<String, TopicRouter> matchers = new ConcurrentHashMap<String, TopicRouter>();
+	private final AtomicLong nextMessageId = new AtomicLong(1);
+	private final AtomicInteger nextSharedMember = new AtomicInteger();
+	private final AtomicInteger sessionCount = new AtomicInteger();
+	private final AtomicLong published = new AtomicLong();
+
+	/**
+	 * Creates messages for a publisher
+	 */
+	public interface MessageSource {
+		BytesXMLMessage create(long sequence);
+	}
+
+	/**
+	 * @return a new, unconnected session
+	 */
+	public JCSMPSession createSession() {
+		SessionHandler handler = new SessionHandler("session" + sessionCount.incrementAndGet());
+		handler.proxy = (JCSMPSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { JCSMPSession.class }, handler);
+		return handler.proxy;
+	}
+
+	/**
+	 * Deliver the message to every session and queue subscribed to the topic.
+	 */
+	public void publish(String topic, BytesXMLMessage msg) {
+		published.incrementAndGet();
+		Topic destination = JCSMPFactory.onlyInstance().createTopic(topic);
+		long received = System.currentTimeMillis();
+		BytesXMLMessage direct = null;
+		Map<String, List<SessionHandler>> shareGroups = null;
+
+		for (SessionHandler session : sessions) {
+			if (!session.connected || session.consumer == null) {
+				continue;
+			}
+			boolean matched = false;
+			for (String subscription : session.subscriptions) {
+				if (subscription.startsWith(SHARE_PREFIX)) {
+					int groupEnd = subscription.indexOf('/', SHARE_PREFIX.length());
+					if (matches(subscription.substring(groupEnd+1), topic)) {
+						if (shareGroups == null) {
+							shareGroups = new HashMap<String, List<SessionHandler>>();
+						}
+						String group = subscription.substring(0, groupEnd);
+						List<SessionHandler> members = shareGroups.get(group);
+						if (members == null) {
+							members = new ArrayList<SessionHandler>();
+							shareGroups.put(group, members);
+						}
+						members.add(session);
+					}
+				}
+				else if (matches(subscription, topic)) {
+					matched = true;
+				}
+			}
+			if (matched) {
+				if (direct == null) {
+					direct = wrap(msg, new MessageState(destination, received, 0, null));
+				}
+				session.consumer.deliver(direct);
+			}
+		}
+		if (shareGroups != null) {
+			for (List<SessionHandler> members : shareGroups.values()) {
+				if (direct == null) {
+					direct = wrap(msg, new MessageState(destination, received, 0, null));
+				}
+				members.get((nextSharedMember.getAndIncrement() & Integer.MAX_VALUE) % members.size()).consumer.deliver(direct);
+			}
+		}
+
+		for (InMemoryQueue queue : queues.values()) {
+			for (String subscription : queue.subscriptions) {
+				if (matches(subscription, topic)) {
+					queue.enqueue(msg, destination);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Spool the message on the queue, as if it had been published to the queue itself.
+	 */
+	public void sendToQueue(String queueName, BytesXMLMessage msg) {
+		published.incrementAndGet();
+		InMemoryQueue queue = queue(queueName);
+		queue.enqueue(msg, JCSMPFactory.onlyInstance().createQueue(queueName));
+	}
+
+	/**
+	 * @return the queue, which is created if it does not exist yet
+	 */
+	public InMemoryQueue queue(String name) {
+		InMemoryQueue queue = queues.get(name);
+		if (queue == null) {
+			InMemoryQueue created = new InMemoryQueue(name);
+			queue = queues.putIfAbsent(name, created);
+			if (queue == null) {
+				queue = created;
+			}
+		}
+		return queue;
+	}
+
+	/**
+	 * @return the topic subscriptions of a session created by this broker
+	 */
+	public Set<String> getSubscriptions(JCSMPSession session) {
+		return Collections.unmodifiableSet(((SessionHandler) Proxy.getInvocationHandler(session)).subscriptions);
+	}
+
+	public long getPublishedCount() {
+		return published.get();
+	}
+
+	/**
+	 * Publish count messages to the topic from a background thread.
+	 * @param ratePerSecond messages per second, or 0 to publish as fast as possible
+	 * @param count number of messages to publish, or Long.MAX_VALUE to carry on until stopped
+	 */
+	public Publisher startPublisher(String topic, double ratePerSecond, long count, MessageSource source) {
+		Publisher publisher = new Publisher(topic, ratePerSecond, count, source);
+		publisher.start();
+		return publisher;
+	}
+
+	/**
+	 * A text message containing the sequence number
+	 */
+	public static MessageSource textMessages() {
+		return new MessageSource() {
+			@Override
+			public BytesXMLMessage create(long sequence) {
+				TextMessage msg = JCSMPFactory.onlyInstance().createMessage(TextMessage.class);
+				msg.setText("message " + sequence);
+				msg.setSequenceNumber(sequence);
+				return msg;
+			}
+		};
+	}
+
+	public class Publisher extends Thread {
+		private final String topic;
+		private final double ratePerSecond;
+		private final long count;
+		private final MessageSource source;
+		private final AtomicLong sent = new AtomicLong();
+		private volatile boolean running = true;
+
+		Publisher(String topic, double ratePerSecond, long count, MessageSource source) {
+			super("InMemorySolaceBroker publisher " + topic);
+			setDaemon(true);
+			this.topic = topic;
+			this.ratePerSecond = ratePerSecond;
+			this.count = count;
+			this.source = source;
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			for (long i = 0; i < count && running; i++) {
+				if (ratePerSecond > 0) {
+					// schedule from the start time so that pauses do not lower the overall rate
+					long due = start + (long) (i * 1000000000L / ratePerSecond);
+					long wait;
+					while ((wait = due - System.nanoTime()) > 0 && running) {
+						LockSupport.parkNanos(wait);
+					}
+				}
+				publish(topic, source.create(i));
+				sent.incrementAndGet();
+			}
+		}
+
+		public long getSentCount() {
+			return sent.get();
+		}
+
+		public void stopPublishing() throws InterruptedException {
+			running = false;
+			join();
+		}
+	}
+
+	boolean matches(String subscription, String topic) {
+		TopicRouter matcher = matchers.get(subscription);
+		if (matcher == null) {
+			matcher = new TopicRouter(null, 1024);
+			matcher.addRoute(subscription, subscription);
+			matchers.put(subscription, matcher);
+		}
+		return matcher.route(topic) != null;
+	}
+
+	/**
+	 * What a delivered message reports beyond the published message's own content
+	 */
+	static class MessageState {
+		final Destination destination;
+		final long receiveTimestamp;
+		final long messageId;
+		final boolean redelivered;
+		volatile QueueFlow flow;
+
+		MessageState(Destination destination, long receiveTimestamp, long messageId, QueueFlow flow) {
+			this(destination, receiveTimestamp, messageId, flow, false);
+		}
+
+		MessageState(Destination destination, long receiveTimestamp, long messageId, QueueFlow flow, boolean redelivered) {
+			this.destination = destination;
+			this.receiveTimestamp = receiveTimestamp;
+			this.messageId = messageId;
+			this.flow = flow;
+			this.redelivered = redelivered;
+		}
+	}
+
+	/**
+	 * Wrap a published message so that it reports the delivery information a received message would have
+	 */
+	static BytesXMLMessage wrap(final BytesXMLMessage msg, final MessageState state) {
+		Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+		for (Class<?> c = msg.getClass(); c != null; c = c.getSuperclass()) {
+			for (Class<?> i : c.getInterfaces()) {
+				interfaces.add(i);
+			}
+		}
+		return (BytesXMLMessage) Proxy.newProxyInstance(InMemorySolaceBroker.class.getClassLoader(),
+				interfaces.toArray(new Class<?>[interfaces.size()]),
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (args == null || args.length == 0) {
+							String name = method.getName();
+							boolean guaranteed = state.messageId > 0;
+							if (name.equals("getDestination")) {
+								return state.destination;
+							}
+							if (name.equals("getReceiveTimestamp")) {
+								return state.receiveTimestamp;
+							}
+							if (name.equals("getDeliveryMode")) {
+								return guaranteed ? DeliveryMode.PERSISTENT : DeliveryMode.DIRECT;
+							}
+							if (guaranteed) {
+								if (name.equals("getMessageId")) {
+									return Long.toString(state.messageId);
+								}
+								if (name.equals("getMessageIdLong") || name.equals("getAckMessageId")) {
+									return state.messageId;
+								}
+								if (name.equals("getRedelivered")) {
+									return state.redelivered;
+								}
+								if (name.equals("ackMessage")) {
+									QueueFlow flow = state.flow;
+									if (flow != null) {
+										flow.ack(state.messageId);
+									}
+									return null;
+								}
+							}
+							if (name.equals("hashCode")) {
+								return System.identityHashCode(proxy);
+							}
+						}
+						else if (method.getName().equals("equals") && args.length == 1) {
+							return proxy == args[0];
+						}
+						try {
+							return method.invoke(msg, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+
+	/**
+	 * A queue, with its topic subscriptions and bound flows
+	 */
+	public class InMemoryQueue {
+		private final String name;
+		private final Set<String> subscriptions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		private final Deque<Object[]> pending = new ArrayDeque<Object[]>();
+		private final List<QueueFlow> flows = new ArrayList<QueueFlow>();
+		private boolean exclusive;
+		private boolean lastValue;
+		private int nextFlow;
+
+		InMemoryQueue(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public synchronized void setExclusive(boolean exclusive) {
+			this.exclusive = exclusive;
+		}
+
+		/**
+		 * A last value queue only keeps the most recent message
+		 */
+		public synchronized void setLastValue(boolean lastValue) {
+			this.lastValue = lastValue;
+		}
+
+		public void addSubscription(String topic) {
+			subscriptions.add(topic);
+		}
+
+		public void removeSubscription(String topic) {
+			subscriptions.remove(topic);
+		}
+
+		/**
+		 * @return messages spooled but not yet acknowledged, whether delivered or not
+		 */
+		public synchronized int getSpooledCount() {
+			int count = pending.size();
+			for (QueueFlow flow : flows) {
+				count += flow.getOutstandingCount();
+			}
+			return count;
+		}
+
+		public synchronized int getFlowCount() {
+			return flows.size();
+		}
+
+		/**
+		 * @return the flow receiving messages from an exclusive queue, null if there is none
+		 */
+		public synchronized FlowReceiver getActiveFlow() {
+			return flows.isEmpty() ? null : flows.get(0).proxy;
+		}
+
+		synchronized void enqueue(BytesXMLMessage msg, Destination destination) {
+			if (lastValue) {
+				pending.clear();
+			}
+			pending.add(new Object[] { msg, destination, nextMessageId.getAndIncrement(), Boolean.FALSE });
+			deliverPending();
+		}
+
+		/**
+		 * The last value in a last value queue, as a browser would see it
+		 */
+		synchronized BytesXMLMessage peek() {
+			Object[] entry = pending.peekLast();
+			return entry == null ? null : wrap((BytesXMLMessage) entry[0],
+					new MessageState((Destination) entry[1], System.currentTimeMillis(), (Long) entry[2], null));
+		}
+
+		synchronized void bind(QueueFlow flow) {
+			flows.add(flow);
+			if (exclusive && flows.size() == 1) {
+				flow.activate();
+			}
+			deliverPending();
+		}
+
+		synchronized void unbind(QueueFlow flow, List<Object[]> unacknowledged) {
+			boolean wasActive = !flows.isEmpty() && flows.get(0) == flow;
+			flows.remove(flow);
+			// unacknowledged messages go back to the front of the queue, in their original order
+			for (int i = unacknowledged.size()-1; i >= 0; i--) {
+				Object[] entry = unacknowledged.get(i);
+				entry[3] = Boolean.TRUE;
+				pending.addFirst(entry);
+			}
+			if (exclusive && wasActive && !flows.isEmpty()) {
+				flows.get(0).activate();
+			}
+			deliverPending();
+		}
+
+		synchronized void deliverPending() {
+			// a last value queue holds on to its message for the next browser
+			while (!lastValue && !pending.isEmpty() && !flows.isEmpty()) {
+				QueueFlow target;
+				if (exclusive) {
+					target = flows.get(0);
+				}
+				else {
+					target = flows.get(nextFlow++ % flows.size());
+				}
+				target.deliver(pending.poll());
+			}
+		}
+	}
+
+	/**
+	 * A JCSMPSession, answering the calls the connector makes
+	 */
+	class SessionHandler implements InvocationHandler {
+		final String name;
+		final Set<String> subscriptions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final List<QueueFlow> flows = new CopyOnWriteArrayList<QueueFlow>();
+		JCSMPSession proxy;
+		volatile boolean connected;
+		volatile boolean closed;
+		volatile DirectConsumer consumer;
+		private ExecutorService dispatcher;
+
+		SessionHandler(String name) {
+			this.name = name;
+		}
+
+		synchronized void dispatch(Runnable task) {
+			if (dispatcher == null) {
+				dispatcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "InMemorySolaceBroker dispatcher " + name);
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			}
+			if (!dispatcher.isShutdown()) {
+				dispatcher.execute(task);
+			}
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String m = method.getName();
+			if (m.equals("equals")) {
+				return proxy == args[0];
+			}
+			if (m.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			if (m.equals("toString")) {
+				return "InMemorySolaceBroker " + name;
+			}
+			if (m.equals("getSessionName")) {
+				return name;
+			}
+			if (m.equals("isClosed")) {
+				return closed;
+			}
+			if (m.equals("isCapable")) {
+				return true;
+			}
+			if (m.equals("getCapability") || m.equals("getProperty")) {
+				return null;
+			}
+			if (m.equals("logSessionStats") || m.equals("logFlowInfo")) {
+				return null;
+			}
+			if (m.equals("closeSession")) {
+				close();
+				return null;
+			}
+			if (closed) {
+				throw new ClosedFacilityException("Session " + name + " is closed");
+			}
+			if (m.equals("connect")) {
+				connected = true;
+				if (!sessions.contains(this)) {
+					sessions.add(this);
+				}
+				return null;
+			}
+			if (m.equals("getMessageConsumer")) {
+				XMLMessageListener listener = find(args, XMLMessageListener.class);
+				consumer = new DirectConsumer(this, listener);
+				return consumer;
+			}
+			if (m.equals("addSubscription") || m.equals("removeSubscription")) {
+				boolean add = m.equals("addSubscription");
+				if (args[0] instanceof Endpoint) {
+					InMemoryQueue queue = queue(((Endpoint) args[0]).getName());
+					String topic = subscriptionName(args[1]);
+					if (add) {
+						queue.addSubscription(topic);
+					}
+					else {
+						queue.removeSubscription(topic);
+					}
+				}
+				else if (add) {
+					subscriptions.add(subscriptionName(args[0]));
+				}
+				else {
+					subscriptions.remove(subscriptionName(args[0]));
+				}
+				return null;
+			}
+			if (m.equals("provision")) {
+				InMemoryQueue queue = queue(((Endpoint) args[0]).getName());
+				EndpointProperties props = (EndpointProperties) args[1];
+				if (props != null) {
+					queue.setExclusive(props.getAccessType() != null && props.getAccessType() == EndpointProperties.ACCESSTYPE_EXCLUSIVE);
+					queue.setLastValue(props.getQuota() != null && props.getQuota() == 0);
+				}
+				return null;
+			}
+			if (m.equals("deprovision")) {
+				queues.remove(((Endpoint) args[0]).getName());
+				return null;
+			}
+			if (m.equals("createFlow") && args[1] instanceof ConsumerFlowProperties) {
+				ConsumerFlowProperties props = (ConsumerFlowProperties) args[1];
+				FlowEventHandler handler = args.length > 3 ? (FlowEventHandler) args[3] : null;
+				QueueFlow flow = new QueueFlow(this, queue(props.getEndpoint().getName()), (XMLMessageListener) args[0], props, handler);
+				flows.add(flow);
+				flow.queue.bind(flow);
+				return flow.proxy;
+			}
+			if (m.equals("createBrowser")) {
+				return browser(queue(((BrowserProperties) args[0]).getEndpoint().getName()));
+			}
+			if (m.equals("getMessageProducer")) {
+				return producer();
+			}
+			throw new UnsupportedOperationException("InMemorySolaceBroker does not support JCSMPSession." + m);
+		}
+
+		void close() {
+			closed = true;
+			connected = false;
+			sessions.remove(this);
+			if (consumer != null) {
+				consumer.close();
+			}
+			for (QueueFlow flow : flows) {
+				flow.close();
+			}
+			synchronized (this) {
+				if (dispatcher != null) {
+					dispatcher.shutdown();
+				}
+			}
+		}
+
+		private Browser browser(final InMemoryQueue queue) {
+			return (Browser) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { Browser.class },
+					new InvocationHandler() {
+						private boolean read;
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							String m = method.getName();
+							if (m.startsWith("getNext")) {
+								if (read) {
+									return null;
+								}
+								read = true;
+								return queue.peek();
+							}
+							if (m.equals("hasMore")) {
+								return !read && queue.peek() != null;
+							}
+							return null;
+						}
+					});
+		}
+
+		private XMLMessageProducer producer() {
+			return (XMLMessageProducer) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { XMLMessageProducer.class },
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							String m = method.getName();
+							if (m.equals("send") && args.length == 2) {
+								Destination destination = (Destination) args[1];
+								if (destination instanceof Queue) {
+									sendToQueue(destination.getName(), (BytesXMLMessage) args[0]);
+								}
+								else {
+									publish(destination.getName(), (BytesXMLMessage) args[0]);
+								}
+								return null;
+							}
+							if (m.equals("close")) {
+								return null;
+							}
+							if (m.equals("isClosed")) {
+								return closed;
+							}
+							throw new UnsupportedOperationException("InMemorySolaceBroker does not support XMLMessageProducer." + m);
+						}
+					});
+		}
+	}
+
+	private static String subscriptionName(Object subscription) {
+		if (subscription instanceof Destination) {
+			return ((Destination) subscription).getName();
+		}
+		throw new UnsupportedOperationException("InMemorySolaceBroker only supports topic subscriptions, not " + subscription);
+	}
+
+	private static <T> T find(Object[] args, Class<T> type) {
+		if (args != null) {
+			for (Object arg : args) {
+				if (type.isInstance(arg)) {
+					return type.cast(arg);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Messages waiting to be received, either by receive() or by a listener on the session's dispatcher thread
+	 */
+	abstract static class Inbox {
+		final SessionHandler session;
+		final XMLMessageListener listener;
+		final LinkedBlockingQueue<BytesXMLMessage> inbox = new LinkedBlockingQueue<BytesXMLMessage>();
+		volatile boolean started;
+		volatile boolean closed;
+
+		private final Runnable drain = new Runnable() {
+			@Override
+			public void run() {
+				BytesXMLMessage msg;
+				while (started && !closed && (msg = inbox.poll()) != null) {
+					received(msg);
+					listener.onReceive(msg);
+				}
+			}
+		};
+
+		Inbox(SessionHandler session, XMLMessageListener listener) {
+			this.session = session;
+			this.listener = listener;
+		}
+
+		void put(BytesXMLMessage msg) {
+			if (closed) {
+				return;
+			}
+			inbox.add(msg);
+			if (listener != null && started) {
+				session.dispatch(drain);
+			}
+		}
+
+		/**
+		 * Called as the application receives the message
+		 */
+		void received(BytesXMLMessage msg) {
+		}
+
+		public BytesXMLMessage receive(int timeoutInMillis) throws JCSMPException {
+			if (timeoutInMillis <= 0) {
+				return receiveNoWait();
+			}
+			checkReceive();
+			try {
+				BytesXMLMessage msg = inbox.poll(timeoutInMillis, TimeUnit.MILLISECONDS);
+				if (msg != null) {
+					received(msg);
+				}
+				return msg;
+			} catch (InterruptedException e) {
+				throw new JCSMPInterruptedException("receive interrupted", e);
+			}
+		}
+
+		public BytesXMLMessage receive() throws JCSMPException {
+			checkReceive();
+			try {
+				BytesXMLMessage msg = inbox.take();
+				received(msg);
+				return msg;
+			} catch (InterruptedException e) {
+				throw new JCSMPInterruptedException("receive interrupted", e);
+			}
+		}
+
+		public BytesXMLMessage receiveNoWait() throws JCSMPException {
+			checkReceive();
+			BytesXMLMessage msg = inbox.poll();
+			if (msg != null) {
+				received(msg);
+			}
+			return msg;
+		}
+
+		private void checkReceive() throws JCSMPException {
+			if (closed) {
+				throw new ClosedFacilityException("Consumer is closed");
+			}
+			if (listener != null) {
+				throw new JCSMPException("Consumer is asynchronous");
+			}
+		}
+
+		public void start() {
+			started = true;
+			if (listener != null) {
+				session.dispatch(drain);
+			}
+		}
+
+		public void startSync() {
+			start();
+		}
+
+		public void stop() {
+			started = false;
+		}
+
+		public void stopSync() {
+			stop();
+		}
+
+		public boolean stopSyncStart() {
+			stop();
+			return true;
+		}
+
+		public void stopSyncWait() {
+		}
+
+		public void closeSync() {
+			close();
+		}
+
+		public void closeSync(boolean b) {
+			close();
+		}
+
+		public abstract void close();
+
+		// deprecated in XMLMessageConsumer, the listener is given when the consumer is created
+		@Deprecated
+		public void setMessageListener(XMLMessageListener listener) {
+			throw new UnsupportedOperationException("InMemorySolaceBroker does not support changing the listener");
+		}
+
+		public XMLMessageListener getMessageListener() {
+			return listener;
+		}
+	}
+
+	/**
+	 * The session's consumer of direct messages
+	 */
+	static class DirectConsumer extends Inbox implements XMLMessageConsumer {
+
+		DirectConsumer(SessionHandler session, XMLMessageListener listener) {
+			super(session, listener);
+		}
+
+		void deliver(BytesXMLMessage msg) {
+			put(msg);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			inbox.clear();
+			if (session.consumer == this) {
+				session.consumer = null;
+			}
+		}
+	}
+
+	/**
+	 * A flow from a queue. Messages stay outstanding until acknowledged, and go back to the queue when the flow closes.
+	 */
+	class QueueFlow extends Inbox {
+		final InMemoryQueue queue;
+		final FlowEventHandler handler;
+		final boolean activeFlowIndication;
+		final boolean clientAck;
+		final FlowReceiver proxy;
+		// message id to queue entry, for messages delivered to this flow and not yet acknowledged
+		private final Map<Long, Object[]> outstanding = new LinkedHashMap<Long, Object[]>();
+
+		QueueFlow(SessionHandler session, InMemoryQueue queue, XMLMessageListener listener, ConsumerFlowProperties props, FlowEventHandler handler) {
+			super(session, listener);
+			this.queue = queue;
+			this.handler = handler;
+			this.activeFlowIndication = props.isActiveFlowIndication();
+			this.clientAck = JCSMPProperties.SUPPORTED_MESSAGE_ACK_CLIENT.equals(props.getAckMode());
+			this.started = props.isStartState();
+			final QueueFlow self = this;
+			this.proxy = (FlowReceiver) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { FlowReceiver.class },
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+							String m = method.getName();
+							if (m.equals("getEndpoint")) {
+								return JCSMPFactory.onlyInstance().createQueue(self.queue.getName());
+							}
+							if (m.equals("getDestination") || m.equals("getSubscription")) {
+								return null;
+							}
+							if (m.equals("logFlowInfo")) {
+								return null;
+							}
+							if (m.equals("close")) {
+								self.close();
+								return null;
+							}
+							if (m.equals("equals")) {
+								return p == args[0];
+							}
+							if (m.equals("hashCode")) {
+								return System.identityHashCode(p);
+							}
+							if (m.equals("toString")) {
+								return "InMemorySolaceBroker flow on " + self.queue.getName();
+							}
+							try {
+								return Inbox.class.getMethod(m, method.getParameterTypes()).invoke(self, args);
+							} catch (InvocationTargetException e) {
+								throw e.getCause();
+							}
+						}
+					});
+		}
+
+		void deliver(Object[] entry) {
+			long id = (Long) entry[2];
+			MessageState state = new MessageState((Destination) entry[1], System.currentTimeMillis(), id, this, (Boolean) entry[3]);
+			synchronized (outstanding) {
+				outstanding.put(id, entry);
+			}
+			put(wrap((BytesXMLMessage) entry[0], state));
+		}
+
+		@Override
+		void received(BytesXMLMessage msg) {
+			if (!clientAck) {
+				ack(msg.getAckMessageId());
+			}
+		}
+
+		void ack(long messageId) {
+			synchronized (outstanding) {
+				outstanding.remove(messageId);
+			}
+		}
+
+		int getOutstandingCount() {
+			synchronized (outstanding) {
+				return outstanding.size();
+			}
+		}
+
+		void activate() {
+			if (activeFlowIndication && handler != null) {
+				final QueueFlow self = this;
+				session.dispatch(new Runnable() {
+					@Override
+					public void run() {
+						handler.handleEvent(self.proxy, new FlowEventArgs(FlowEvent.FLOW_ACTIVE, null, null, 0) {});
+					}
+				});
+			}
+		}
+
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			inbox.clear();
+			List<Object[]> unacknowledged;
+			synchronized (outstanding) {
+				unacknowledged = new ArrayList<Object[]>(outstanding.values());
+				outstanding.clear();
+			}
+			session.flows.remove(this);
+			queue.unbind(this, unacknowledged);
+		}
+	}
+}
@@ -0,0 +1,563 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTaskContext;
+import org.apache.kafka.connect.storage.OffsetStorageReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.solacesystems.jcsmp.BytesMessage;
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.JCSMPChannelProperties;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.JCSMPProperties;
+import com.solacesystems.jcsmp.JCSMPSession;
+
+/**
+ * Runs SolaceSourceTask against InMemorySolaceBroker, so the consume, acknowledge and failover paths
+ * are exercised without a message router.
+ */
+public class InMemorySolaceBrokerTest {
+
+	private InMemorySolaceBroker broker;
+	private List<SolaceSourceTask> tasks = new ArrayList<SolaceSourceTask>();
+
+	/**
+	 * A task which connects to the in-memory broker
+	 */
+	class InMemoryTask extends SolaceSourceTask {
+		@Override
+		protected JCSMPSession createSession(JCSMPProperties properties) {
+			return broker.createSession();
+		}
+	}
+
+	@Before
+	public void setup() {
+		broker = new InMemorySolaceBroker();
+	}
+
+	@After
+	public void tearDown() {
+		for (SolaceSourceTask task : tasks) {
+			task.stop();
+		}
+	}
+
+	private Map<String, String> config() {
+		Map<String, String> config = new HashMap<String, String>();
+		config.put(SolaceConnectorConstants.SOLACE_URL, "tcp://localhost:55555");
+		config.put(SolaceConnectorConstants.SOLACE_TOPIC, "prices/>");
+		config.put(SolaceConnectorConstants.KAFKA_TOPIC, "prices");
+		config.put(SolaceConnectorConstants.LONG_POLL_INTERVAL, "100");
+		return config;
+	}
+
+	private SolaceSourceTask startTask(Map<String, String> config) {
+		SolaceSourceTask task = new InMemoryTask();
+		tasks.add(task);
+		task.start(config);
+		return task;
+	}
+
+	/**
+	 * Poll until at least count records have been returned, or the timeout expires
+	 */
+	private List<SourceRecord> pollFor(SolaceSourceTask task, int count, long timeoutMillis) throws InterruptedException {
+		List<SourceRecord> records = new ArrayList<SourceRecord>();
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (records.size() < count && System.currentTimeMillis() < deadline) {
+			records.addAll(task.poll());
+		}
+		return records;
+	}
+
+	@Test
+	public void testDirectSubscription() throws Exception {
+		SolaceSourceTask task = startTask(config());
+		broker.publish("orders/1", InMemorySolaceBroker.textMessages().create(0));
+		broker.startPublisher("prices/eur", 0, 500, InMemorySolaceBroker.textMessages()).join();
+
+		List<SourceRecord> records = pollFor(task, 500, 5000);
+		assertEquals(500, records.size());
+		assertEquals("prices", records.get(0).topic());
+		assertTrue(records.get(0).sourcePartition().get("solaceKey").toString().startsWith("prices/eur"));
+		assertEquals(0, task.poll().size());
+	}
+
+	@Test
+	public void testMultipleSessions() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_TOPIC, "prices/a,prices/b,prices/c,prices/d");
+		config.put(SolaceConnectorConstants.SOLACE_SESSIONS_PER_TASK, "4");
+		SolaceSourceTask task = startTask(config);
+		assertTrue(task.asyncPolling);
+		assertEquals(4, task.sessions.size());
+		for (JCSMPSession session : task.sessions) {
+			assertEquals(1, broker.getSubscriptions(session).size());
+		}
+
+		String[] topics = { "prices/a", "prices/b", "prices/c", "prices/d" };
+		List<InMemorySolaceBroker.Publisher> publishers = new ArrayList<InMemorySolaceBroker.Publisher>();
+		for (String topic : topics) {
+			publishers.add(broker.startPublisher(topic, 0, 2000, InMemorySolaceBroker.textMessages()));
+		}
+		List<SourceRecord> records = pollFor(task, 8000, 10000);
+		for (InMemorySolaceBroker.Publisher publisher : publishers) {
+			publisher.join();
+		}
+		assertEquals(8000, records.size());
+		// each topic's messages keep their order even though the sessions interleave
+		Map<String, Long> next = new HashMap<String, Long>();
+		for (SourceRecord record : records) {
+			String topic = record.sourcePartition().get("solaceKey").toString();
+			Long expected = next.containsKey(topic) ? next.get(topic) : 0L;
+			assertEquals(expected, ((SolaceSourceRecord) record).getSequenceNumber());
+			next.put(topic, expected + 1);
+		}
+		assertEquals(4, next.size());
+	}
+
+	@Test
+	public void testLowLatencyPolling() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.POLL_LOW_LATENCY, "true");
+		config.put(SolaceConnectorConstants.POLL_BATCH_SIZE, "50");
+		SolaceSourceTask task = startTask(config);
+		assertNotNull(task.recordBatches);
+		assertNull(task.messageBuffer);
+
+		// the publisher is never held up, however far the task is behind
+		broker.startPublisher("prices/eur", 0, 1000, InMemorySolaceBroker.textMessages()).join();
+		// without a poll() the I/O thread stops the consumers itself, before the buffer grows past its limit
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!task.isConsumersPaused() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		assertTrue(task.isConsumersPaused());
+		assertEquals(RecordBatchBuffer.DEFAULT_MAX_BATCHES + 1, task.recordBatches.batchCount());
+
+		List<SourceRecord> records = new ArrayList<SourceRecord>();
+		while (records.size() < 1000 && System.currentTimeMillis() < deadline) {
+			List<SourceRecord> batch = task.poll();
+			assertTrue(batch.size() <= 50);
+			records.addAll(batch);
+		}
+		assertEquals(1000, records.size());
+		// and they are started again once it has been passed on
+		assertFalse(task.isConsumersPaused());
+		for (int i = 0; i < records.size(); i++) {
+			assertEquals(Long.valueOf(i), ((SolaceSourceRecord) records.get(i)).getSequenceNumber());
+		}
+	}
+
+	@Test
+	public void testSessionTuning() throws Exception {
+		final List<JCSMPProperties> created = new ArrayList<JCSMPProperties>();
+		SolaceSourceTask task = new InMemoryTask() {
+			@Override
+			protected JCSMPSession createSession(JCSMPProperties properties) {
+				created.add(properties);
+				return super.createSession(properties);
+			}
+		};
+		tasks.add(task);
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_SOCKET_RECEIVE_BUFFER, "1048576");
+		config.put(SolaceConnectorConstants.SOLACE_TCP_NO_DELAY, "false");
+		config.put(SolaceConnectorConstants.SOLACE_COMPRESSION_LEVEL, "6");
+		config.put(SolaceConnectorConstants.SOLACE_SUB_ACK_WINDOW_SIZE, "64");
+		config.put(SolaceConnectorConstants.SOLACE_MESSAGE_CALLBACK_ON_REACTOR, "true");
+		task.start(config);
+
+		assertEquals(1, created.size());
+		JCSMPProperties properties = created.get(0);
+		JCSMPChannelProperties channel = (JCSMPChannelProperties) properties.getProperty(JCSMPProperties.CLIENT_CHANNEL_PROPERTIES);
+		assertEquals(1048576, channel.getReceiveBuffer());
+		assertEquals(SolaceConnectorConstants.DEFAULT_SOLACE_SOCKET_SEND_BUFFER, channel.getSendBuffer());
+		assertFalse(channel.isTcpNoDelay());
+		assertEquals(6, channel.getCompressionLevel());
+		// unset options keep the API's defaults rather than 0
+		assertEquals(SolaceConnectorConstants.DEFAULT_SOLACE_CONNECT_TIMEOUT, channel.getConnectTimeoutInMillis());
+		assertEquals(SolaceConnectorConstants.DEFAULT_SOLACE_KEEP_ALIVE_INTERVAL, channel.getKeepAliveIntervalInMillis());
+		assertEquals(64, properties.getIntegerProperty(JCSMPProperties.SUB_ACK_WINDOW_SIZE).intValue());
+		assertTrue(properties.getBooleanProperty(JCSMPProperties.MESSAGE_CALLBACK_ON_REACTOR));
+		assertFalse(properties.getBooleanProperty(JCSMPProperties.REAPPLY_SUBSCRIPTIONS));
+		assertFalse(properties.getBooleanProperty(JCSMPProperties.GENERATE_RCV_TIMESTAMPS));
+	}
+
+	@Test
+	public void testAsyncQueueAcknowledgement() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_QUEUE, "kafka");
+		config.put(SolaceConnectorConstants.POLL_ASYNC, "true");
+		config.put(SolaceConnectorConstants.SOLACE_ACK_BATCH_SIZE, "2");
+		SolaceSourceTask task = startTask(config);
+		for (int i = 0; i < 10; i++) {
+			broker.sendToQueue("kafka", InMemorySolaceBroker.textMessages().create(i));
+		}
+
+		List<SourceRecord> records = pollFor(task, 10, 5000);
+		assertEquals(10, records.size());
+		for (int i = 0; i < 6; i++) {
+			task.commitRecord(records.get(i));
+		}
+		task.commit();
+		assertEquals(4, broker.queue("kafka").getSpooledCount());
+
+		// the unacknowledged messages go to the next consumer of the queue
+		task.stop();
+		tasks.remove(task);
+		SolaceSourceTask next = startTask(config);
+		records = pollFor(next, 4, 5000);
+		assertEquals(4, records.size());
+		assertEquals(Long.valueOf(6), ((SolaceSourceRecord) records.get(0)).getSolaceMessage().getSequenceNumber());
+		assertTrue(((SolaceSourceRecord) records.get(0)).getSolaceMessage().getRedelivered());
+	}
+
+	@Test
+	public void testResumeFromCommittedOffset() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_QUEUE, "kafka");
+		config.put(SolaceConnectorConstants.POLL_ASYNC, "true");
+		config.put(SolaceConnectorConstants.SOLACE_ACK_BATCH_SIZE, "100");
+		config.put(SolaceConnectorConstants.OFFSETS_RESUME, "true");
+		SolaceSourceTask task = startTask(config);
+		for (int i = 0; i < 10; i++) {
+			broker.sendToQueue("kafka", InMemorySolaceBroker.textMessages().create(i));
+		}
+
+		List<SourceRecord> records = pollFor(task, 10, 5000);
+		assertEquals(10, records.size());
+		assertEquals(SolaceConverter.queuePartition("kafka"), records.get(0).sourcePartition());
+		// six records are written to Kafka and their offset committed, but the task stops before acknowledging them
+		final Map<String, Object> committed = new HashMap<String, Object>(records.get(5).sourceOffset());
+		task.stop();
+		tasks.remove(task);
+		assertEquals(10, broker.queue("kafka").getSpooledCount());
+
+		SolaceSourceTask next = new InMemoryTask();
+		tasks.add(next);
+		next.initialize(new SourceTaskContext() {
+			@Override
+			public OffsetStorageReader offsetStorageReader() {
+				return new OffsetStorageReader() {
+					@Override
+					public <T> Map<String, Object> offset(Map<String, T> partition) {
+						return partition.equals(SolaceConverter.queuePartition("kafka")) ? committed : null;
+					}
+
+					@Override
+					public <T> Map<Map<String, T>, Map<String, Object>> offsets(Collection<Map<String, T>> partitions) {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		});
+		next.start(config);
+		records = pollFor(next, 4, 5000);
+		assertEquals(4, records.size());
+		assertEquals(Long.valueOf(6), ((SolaceSourceRecord) records.get(0)).getSolaceMessage().getSequenceNumber());
+		// the duplicates were acknowledged
+		assertEquals(4, broker.queue("kafka").getSpooledCount());
+	}
+
+	@Test(expected = ConnectException.class)
+	public void testResumeNeedsOneSession() {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_QUEUE, "kafka");
+		config.put(SolaceConnectorConstants.SOLACE_SESSIONS_PER_TASK, "2");
+		config.put(SolaceConnectorConstants.OFFSETS_RESUME, "true");
+		startTask(config);
+	}
+
+	@Test(expected = ConnectException.class)
+	public void testResumeNeedsQueue() {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.OFFSETS_RESUME, "true");
+		startTask(config);
+	}
+
+	@Test
+	public void testHAFailover() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_HA_QUEUE, "ha_sentinel");
+		SolaceSourceTask active = startTask(config);
+		SolaceSourceTask backup = startTask(config);
+		waitFor(active.haSentinel, true, 5000);
+		assertFalse(backup.haSentinel.isActiveMember());
+
+		InMemorySolaceBroker.Publisher publisher = broker.startPublisher("prices/eur", 1000, Long.MAX_VALUE, InMemorySolaceBroker.textMessages());
+		try {
+			assertFalse(pollFor(active, 10, 5000).isEmpty());
+			assertTrue(backup.poll().isEmpty());
+
+			long start = System.nanoTime();
+			active.stop();
+			tasks.remove(active);
+			waitFor(backup.haSentinel, true, 5000);
+			long takeoverMillis = (System.nanoTime() - start) / 1000000;
+			assertTrue("takeover took "+takeoverMillis+"ms", takeoverMillis < 1000);
+			assertFalse(pollFor(backup, 10, 5000).isEmpty());
+		} finally {
+			publisher.stopPublishing();
+		}
+	}
+
+	/**
+	 * A role change reaches a poll() which is waiting for messages straight away, in both polling modes
+	 */
+	@Test
+	public void testHAStateChangeWakesPoll() throws Exception {
+		for (String async : new String[] { "true", "false" }) {
+			Map<String, String> config = config();
+			config.put(SolaceConnectorConstants.SOLACE_HA_QUEUE, "ha_sentinel_"+async);
+			config.put(SolaceConnectorConstants.POLL_ASYNC, async);
+			config.put(SolaceConnectorConstants.LONG_POLL_INTERVAL, "5000");
+			final SolaceSourceTask task = startTask(config);
+			waitFor(task.haSentinel, true, 5000);
+			assertTrue(pollFor(task, 1, 200).isEmpty());
+
+			// told it is now the backup while waiting for a message
+			changeStateLater(task, false);
+			long start = System.nanoTime();
+			assertTrue(task.poll().isEmpty());
+			long pollMillis = (System.nanoTime() - start) / 1000000;
+			assertTrue("async="+async+" poll took "+pollMillis+"ms", pollMillis < 1000);
+			assertEquals(HASentinel.State.BACKUP, task.haSentinel.getState());
+
+			// and active again while waiting to become active
+			changeStateLater(task, true);
+			start = System.nanoTime();
+			List<SourceRecord> records = task.poll();
+			pollMillis = (System.nanoTime() - start) / 1000000;
+			assertEquals(1, records.size());
+			assertTrue("async="+async+" poll took "+pollMillis+"ms", pollMillis < 1000);
+
+			task.stop();
+			tasks.remove(task);
+		}
+	}
+
+	/**
+	 * Deliver the FT event for the task after 200ms, followed by a message if it becomes active
+	 */
+	private void changeStateLater(final SolaceSourceTask task, final boolean active) {
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+				}
+				if (active) {
+					task.haSentinel.onActive(null);
+					broker.publish("prices/eur", InMemorySolaceBroker.textMessages().create(1));
+				}
+				else {
+					task.haSentinel.onBackup();
+				}
+			}
+		}.start();
+	}
+
+	@Test
+	public void testHALowLatency() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_HA_QUEUE, "ha_sentinel");
+		config.put(SolaceConnectorConstants.POLL_LOW_LATENCY, "true");
+		config.put(SolaceConnectorConstants.POLL_BATCH_SIZE, "50");
+		try {
+			// a subscribed backup would collect records it never passes on
+			startTask(config);
+			fail("polling.low_latency accepted with a subscribed standby");
+		} catch (ConnectException e) {
+			assertTrue(e.getMessage().contains(SolaceConnectorConstants.SOLACE_HA_STANDBY_MODE));
+		}
+
+		config.put(SolaceConnectorConstants.SOLACE_HA_STANDBY_MODE, "idle");
+		SolaceSourceTask active = startTask(config);
+		SolaceSourceTask backup = startTask(config);
+		waitFor(active.haSentinel, true, 5000);
+		// the active member subscribes in its first poll
+		assertTrue(active.poll().isEmpty());
+
+		broker.startPublisher("prices/eur", 0, 1000, InMemorySolaceBroker.textMessages()).join();
+		assertEquals(1000, pollFor(active, 1000, 5000).size());
+		// the idle backup has no consumers running, so nothing is converted for it
+		assertTrue(backup.poll().isEmpty());
+		assertEquals(0, backup.recordBatches.batchCount());
+	}
+
+	@Test
+	public void testHAIdleStandby() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_HA_QUEUE, "ha_sentinel");
+		config.put(SolaceConnectorConstants.SOLACE_HA_STANDBY_MODE, "idle");
+		// takeover must not wait for the long poll interval to expire
+		config.put(SolaceConnectorConstants.LONG_POLL_INTERVAL, "5000");
+		SolaceSourceTask active = startTask(config);
+		SolaceSourceTask backup = startTask(config);
+		waitFor(active.haSentinel, true, 5000);
+
+		InMemorySolaceBroker.Publisher publisher = broker.startPublisher("prices/eur", 1000, Long.MAX_VALUE, InMemorySolaceBroker.textMessages());
+		try {
+			// the active member subscribes in its first poll
+			assertFalse(pollFor(active, 10, 5000).isEmpty());
+			assertEquals(1, broker.getSubscriptions(active.getSession()).size());
+			assertTrue(broker.getSubscriptions(backup.getSession()).isEmpty());
+
+			final SolaceSourceTask stopping = active;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+					}
+					stopping.stop();
+				}
+			}.start();
+			tasks.remove(active);
+			long start = System.nanoTime();
+			// the backup is waiting in poll() when the active member goes away
+			List<SourceRecord> records = pollFor(backup, 1, 5000);
+			long takeoverMillis = (System.nanoTime() - start) / 1000000;
+			assertFalse(records.isEmpty());
+			assertTrue("takeover took "+takeoverMillis+"ms", takeoverMillis < 1000);
+			assertEquals(1, broker.getSubscriptions(backup.getSession()).size());
+		} finally {
+			publisher.stopPublishing();
+		}
+	}
+
+	@Test
+	public void testHACheckpointHandoff() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.SOLACE_HA_QUEUE, "ha_sentinel");
+		config.put(SolaceConnectorConstants.SOLACE_HA_CHECKPOINT_TOPIC, "ha/checkpoint");
+		config.put(SolaceConnectorConstants.CONNECTOR_INSTANCE, "first");
+		SolaceSourceTask active = startTask(config);
+		config.put(SolaceConnectorConstants.CONNECTOR_INSTANCE, "second");
+		SolaceSourceTask backup = startTask(config);
+		waitFor(active.haSentinel, true, 5000);
+
+		InMemorySolaceBroker.Publisher publisher = broker.startPublisher("prices/eur", 5000, 3000, InMemorySolaceBroker.textMessages());
+		List<Long> sequences = new ArrayList<Long>();
+		// Kafka Connect commits each record once it has been written
+		for (SourceRecord record : pollFor(active, 1000, 5000)) {
+			active.commitRecord(record);
+			sequences.add(((SolaceSourceRecord) record).getSequenceNumber());
+		}
+		int passedByActive = sequences.size();
+		// the backup keeps receiving while the active member is running
+		assertTrue(backup.poll().isEmpty());
+
+		active.stop();
+		tasks.remove(active);
+		publisher.join();
+		for (SourceRecord record : pollFor(backup, 3000 - passedByActive, 5000)) {
+			sequences.add(((SolaceSourceRecord) record).getSequenceNumber());
+		}
+
+		// every message passed on exactly once, in order
+		assertEquals(3000, sequences.size());
+		for (int i = 0; i < sequences.size(); i++) {
+			assertEquals(Long.valueOf(i), sequences.get(i));
+		}
+		assertTrue(backup.haSentinel.getTakeoverMillis() >= 0);
+		assertTrue(backup.haSentinel.getCheckpointAgeMillis() >= 0);
+		assertEquals("first", backup.haSentinel.getReceivedCheckpoint().getInstance());
+	}
+
+	@Test
+	public void testAdaptivePolling() throws Exception {
+		Map<String, String> config = config();
+		config.put(SolaceConnectorConstants.POLL_ADAPTIVE, "true");
+		config.put(SolaceConnectorConstants.POLL_BATCH_SIZE, "10");
+		config.put(SolaceConnectorConstants.POLL_MIN_BATCH_SIZE, "10");
+		config.put(SolaceConnectorConstants.POLL_MAX_BATCH_SIZE, "1000");
+		SolaceSourceTask task = startTask(config);
+
+		// a burst from idle is drained in growing batches
+		broker.startPublisher("prices/eur", 0, 5000, InMemorySolaceBroker.textMessages()).join();
+		int received = 0;
+		int largest = 0;
+		while (received < 5000) {
+			int size = task.poll().size();
+			assertTrue(size > 0);
+			received += size;
+			largest = Math.max(largest, size);
+		}
+		assertEquals(1000, largest);
+
+		// and the batch shrinks back once it is quiet
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, task.poll().size());
+		}
+		assertEquals(10, task.pollController.getBatchSize());
+	}
+
+	@Test
+	public void testMaxBatchBytes() throws Exception {
+		InMemorySolaceBroker.MessageSource kilobytes = new InMemorySolaceBroker.MessageSource() {
+			@Override
+			public BytesXMLMessage create(long sequence) {
+				BytesMessage msg = JCSMPFactory.onlyInstance().createMessage(BytesMessage.class);
+				msg.setData(new byte[1000]);
+				return msg;
+			}
+		};
+		for (String async : new String[] { "false", "true" }) {
+			Map<String, String> config = config();
+			config.put(SolaceConnectorConstants.POLL_ASYNC, async);
+			config.put(SolaceConnectorConstants.POLL_MAX_BATCH_BYTES, "4500");
+			SolaceSourceTask task = startTask(config);
+			broker.startPublisher("prices/eur", 0, 20, kilobytes).join();
+			while (task.messageBuffer != null && task.messageBuffer.size() < 20) {
+				Thread.sleep(1);
+			}
+
+			// a synchronous batch ends with the message which reaches the limit, an asynchronous one before it
+			int expected = async.equals("true") ? 4 : 5;
+			int received = 0;
+			while (received < 20) {
+				List<SourceRecord> records = task.poll();
+				assertEquals(Math.min(expected, 20 - received), records.size());
+				received += records.size();
+			}
+			task.stop();
+			tasks.remove(task);
+		}
+	}
+
+	@Test
+	public void testPublisherRate() throws Exception {
+		SolaceSourceTask task = startTask(config());
+		long start = System.nanoTime();
+		InMemorySolaceBroker.Publisher publisher = broker.startPublisher("prices/eur", 2000, 200, InMemorySolaceBroker.textMessages());
+		publisher.join();
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		assertEquals(200, publisher.getSentCount());
+		assertTrue("published in "+elapsedMillis+"ms", elapsedMillis >= 95);
+		assertEquals(200, pollFor(task, 200, 5000).size());
+	}
+
+	private static void waitFor(HASentinel sentinel, boolean active, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (sentinel.isActiveMember() != active && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(active, sentinel.isActiveMember());
+	}
+}
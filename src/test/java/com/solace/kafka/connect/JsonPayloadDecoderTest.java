@@ -0,0 +1,106 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JsonPayloadDecoderTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private JsonPayloadDecoder decoder;
+
+	@Before
+	public void setup() {
+		decoder = new JsonPayloadDecoder();
+		decoder.configure(Collections.<String, Object>emptyMap());
+	}
+
+	private SchemaAndValue decode(String json) {
+		return decoder.decode("application/json", ByteBuffer.wrap(json.getBytes(UTF8)));
+	}
+
+	@Test
+	public void testObject() {
+		SchemaAndValue decoded = decode("{\"symbol\":\"ABC\",\"price\":10.5,\"size\":100,\"open\":true,\"venue\":null,"
+				+ "\"legs\":[{\"id\":1},{\"id\":2}],\"tags\":[\"a\",1]}");
+		Struct value = (Struct) decoded.value();
+		value.validate();
+
+		assertEquals("ABC", value.get("symbol"));
+		assertEquals(10.5, value.get("price"));
+		assertEquals(100L, value.get("size"));
+		assertEquals(true, value.get("open"));
+		assertNull(decoded.schema().field("venue"));
+		assertEquals(Schema.Type.STRUCT, decoded.schema().field("legs").schema().valueSchema().type());
+		assertEquals(2L, ((Struct) value.getArray("legs").get(1)).get("id"));
+		assertEquals(Arrays.asList("a", "1"), value.getArray("tags"));
+	}
+
+	@Test
+	public void testSchemaReuse() {
+		Schema first = decode("{\"a\":1,\"b\":\"x\"}").schema();
+		assertSame(first, decode("{\"b\":\"y\",\"a\":2}").schema());
+		assertNotSame(first, decode("{\"a\":1.5,\"b\":\"x\"}").schema());
+	}
+
+	@Test
+	public void testSlicedBuffer() {
+		byte[] data = "xx{\"a\":1}yy".getBytes(UTF8);
+		ByteBuffer payload = ByteBuffer.wrap(data, 2, data.length-4).slice();
+		assertEquals(1L, ((Struct) decoder.decode("application/json", payload).value()).get("a"));
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(16);
+		direct.put("[1,2,3]".getBytes(UTF8)).flip();
+		assertEquals(Arrays.asList(1L, 2L, 3L), decoder.decode("application/json", direct).value());
+	}
+
+	@Test(expected = DataException.class)
+	public void testInvalid() {
+		decode("{\"a\":");
+	}
+
+	@Test
+	public void testRegistry() {
+		PayloadDecoderRegistry registry = PayloadDecoderRegistry.fromConfig(
+				"application/json:com.solace.kafka.connect.JsonPayloadDecoder", Collections.<String, Object>emptyMap());
+		assertTrue(registry.get("Application/JSON; charset=utf-8") instanceof JsonPayloadDecoder);
+		assertNull(registry.get("text/plain"));
+		assertNull(registry.get(null));
+
+		registry.register("*", new TextPayloadDecoder());
+		assertTrue(registry.get("text/plain") instanceof TextPayloadDecoder);
+		assertTrue(registry.get("application/json") instanceof JsonPayloadDecoder);
+	}
+
+	@Test
+	public void testTextCharsets() {
+		TextPayloadDecoder text = new TextPayloadDecoder();
+		byte[] latin1 = "caf\u00e9".getBytes(Charset.forName("ISO-8859-1"));
+		assertEquals("caf\u00e9", text.decode("text/plain; charset=ISO-8859-1", ByteBuffer.wrap(latin1)).value());
+		assertEquals("caf\u00e9", text.decode("text/csv;charset=\"iso-8859-1\"", ByteBuffer.wrap(latin1)).value());
+		assertEquals("caf\u00e9", text.decode("text/plain", ByteBuffer.wrap("caf\u00e9".getBytes(UTF8))).value());
+		assertEquals(1, text.cachedCharsetCount());
+
+		// content types with made up charsets cannot grow the cache without bound
+		for (int i = 0; i < TextPayloadDecoder.MAX_CACHED_CHARSETS * 2; i++) {
+			assertEquals("abc", text.decode("text/plain; charset=x-unknown-" + i, ByteBuffer.wrap("abc".getBytes(UTF8))).value());
+		}
+		assertTrue(text.cachedCharsetCount() <= TextPayloadDecoder.MAX_CACHED_CHARSETS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegistryUnknownClass() {
+		PayloadDecoderRegistry.fromConfig("application/json:com.example.Missing", Collections.<String, Object>emptyMap());
+	}
+}
@@ -0,0 +1,44 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testBuckets() {
+		for (long value = 0; value < 100000; value += 7) {
+			long reported = LatencyHistogram.bucketValue(LatencyHistogram.bucketIndex(value));
+			assertTrue(reported >= value);
+			// within one sub-bucket of the value
+			assertTrue(reported - value <= Math.max(1, value / LatencyHistogram.SUB_BUCKETS));
+		}
+		for (int i = 1; i < LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE_MICROS); i++) {
+			assertTrue(LatencyHistogram.bucketValue(i) > LatencyHistogram.bucketValue(i - 1));
+		}
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+
+		LatencyHistogram.Snapshot snapshot = histogram.rotate();
+		assertEquals(1002, snapshot.getCount());
+		assertEquals(500, snapshot.percentile(50), 500 / LatencyHistogram.SUB_BUCKETS);
+		assertEquals(990, snapshot.percentile(99), 990 / LatencyHistogram.SUB_BUCKETS);
+		assertEquals(0, snapshot.percentile(0));
+		assertTrue(snapshot.max() >= LatencyHistogram.MAX_VALUE_MICROS);
+
+		// the next interval starts empty
+		snapshot = histogram.rotate();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.percentile(99));
+		assertEquals(0, snapshot.max());
+	}
+}
@@ -0,0 +1,66 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.solacesystems.jcsmp.BytesXMLMessage;
+
+public class MessageAckBatcherTest {
+
+	private final List<Long> acked = new ArrayList<Long>();
+
+	/**
+	 * A message which only knows its ack id and records when it is acknowledged.
+	 */
+	private BytesXMLMessage message(final long ackId) {
+		return (BytesXMLMessage) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { BytesXMLMessage.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getAckMessageId")) {
+							return ackId;
+						}
+						if (method.getName().equals("ackMessage")) {
+							acked.add(ackId);
+						}
+						return null;
+					}
+				});
+	}
+
+	@Test
+	public void testFlushWhenBatchFull() {
+		MessageAckBatcher batcher = new MessageAckBatcher(3);
+		batcher.committed(message(1));
+		batcher.committed(message(2));
+		assertTrue(acked.isEmpty());
+		assertEquals(2, batcher.getPending());
+
+		batcher.committed(message(3));
+		assertEquals(3, acked.size());
+		assertEquals(0, batcher.getPending());
+	}
+
+	@Test
+	public void testFlushOrdersByAckId() {
+		MessageAckBatcher batcher = new MessageAckBatcher(100);
+		batcher.committed(message(5));
+		batcher.committed(message(3));
+		batcher.committed(message(4));
+		assertEquals(3, batcher.flush());
+		assertEquals(3L, acked.get(0).longValue());
+		assertEquals(4L, acked.get(1).longValue());
+		assertEquals(5L, acked.get(2).longValue());
+
+		// nothing left over
+		assertEquals(0, batcher.flush());
+	}
+}
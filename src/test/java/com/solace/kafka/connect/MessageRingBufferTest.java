@@ -0,0 +1,187 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MessageRingBufferTest {
+
+	@Test
+	public void testCapacityRoundedUp() {
+		MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(100);
+		assertEquals(128, buffer.capacity());
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testOfferUntilFull() {
+		MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(4);
+		for (int i=0; i<4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(4));
+		assertEquals(4, buffer.size());
+	}
+
+	@Test
+	public void testPollPreservesOrder() {
+		MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(4);
+		List<Integer> out = new ArrayList<Integer>();
+		// wrap around the end of the array a few times
+		int next = 0;
+		for (int round=0; round<5; round++) {
+			for (int i=0; i<3; i++) {
+				assertTrue(buffer.offer(next++));
+			}
+			for (int i=0; i<3; i++) {
+				out.add(buffer.poll());
+			}
+			assertNull(buffer.poll());
+		}
+		assertEquals(15, out.size());
+		for (int i=0; i<out.size(); i++) {
+			assertEquals(i, out.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testPeekAndPoll() {
+		MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(2);
+		assertNull(buffer.peek());
+		assertNull(buffer.poll());
+		for (int i=0; i<5; i++) {
+			assertTrue(buffer.offer(i));
+			assertEquals(i, buffer.peek().intValue());
+			assertEquals(1, buffer.size());
+			assertEquals(i, buffer.poll().intValue());
+		}
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testAwaitTimesOut() throws InterruptedException {
+		MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(4);
+		long start = System.currentTimeMillis();
+		assertFalse(buffer.await(50));
+		assertTrue(System.currentTimeMillis() - start >= 40);
+	}
+
+	@Test
+	public void testProducerWakesConsumer() throws InterruptedException {
+		final MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(1024);
+		final int total = 100000;
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i=0; i<total; i++) {
+						buffer.put(i);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		producer.start();
+
+		List<Integer> out = new ArrayList<Integer>(total);
+		long deadline = System.currentTimeMillis() + 10000;
+		while (out.size() < total && System.currentTimeMillis() < deadline) {
+			if (buffer.await(1000)) {
+				Integer element;
+				while ((element = buffer.poll()) != null) {
+					out.add(element);
+				}
+			}
+		}
+		producer.join();
+		assertEquals(total, out.size());
+		for (int i=0; i<total; i++) {
+			assertEquals(i, out.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testMultipleProducers() throws InterruptedException {
+		final MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(64);
+		final int producers = 4;
+		final int perProducer = 50000;
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int p=0; p<producers; p++) {
+			final int producer = p;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int i=0; i<perProducer; i++) {
+							buffer.put(producer * perProducer + i);
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		List<Integer> out = new ArrayList<Integer>(producers * perProducer);
+		long deadline = System.currentTimeMillis() + 20000;
+		while (out.size() < producers * perProducer && System.currentTimeMillis() < deadline) {
+			if (buffer.await(1000)) {
+				Integer element;
+				while ((element = buffer.poll()) != null) {
+					out.add(element);
+				}
+			}
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(producers * perProducer, out.size());
+		// every element once, each producer's in the order it added them
+		int[] next = new int[producers];
+		for (int value : out) {
+			int producer = value / perProducer;
+			assertEquals(producer * perProducer + next[producer], value);
+			next[producer]++;
+		}
+	}
+
+	@Test
+	public void testWakeup() throws InterruptedException {
+		final MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(4);
+		Thread waker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+				buffer.wakeup();
+			}
+		});
+		waker.start();
+		long start = System.currentTimeMillis();
+		assertFalse(buffer.await(5000));
+		assertTrue(System.currentTimeMillis() - start < 4000);
+		waker.join();
+	}
+
+	@Test
+	public void testWakeupBeforeAwait() throws InterruptedException {
+		MessageRingBuffer<Integer> buffer = new MessageRingBuffer<Integer>(4);
+		buffer.wakeup();
+		long start = System.currentTimeMillis();
+		assertFalse(buffer.await(5000));
+		assertTrue(System.currentTimeMillis() - start < 4000);
+		// only the next await() is released
+		start = System.currentTimeMillis();
+		assertFalse(buffer.await(50));
+		assertTrue(System.currentTimeMillis() - start >= 40);
+	}
+}
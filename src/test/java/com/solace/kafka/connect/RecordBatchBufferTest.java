@@ -0,0 +1,121 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.Test;
+
+public class RecordBatchBufferTest {
+
+	private static SourceRecord record(int i) {
+		return new SourceRecord(null, null, "topic", null, i);
+	}
+
+	@Test
+	public void testTakeWholeBatch() throws InterruptedException {
+		RecordBatchBuffer buffer = new RecordBatchBuffer(10, 0);
+		assertFalse(buffer.await(10));
+		assertTrue(buffer.take().isEmpty());
+
+		for (int i=0; i<3; i++) {
+			buffer.add(record(i), 100, 5);
+		}
+		assertTrue(buffer.await(10));
+		List<SourceRecord> first = buffer.take();
+		assertEquals(3, first.size());
+		assertEquals(300, buffer.getTakenBytes());
+		assertEquals(15, buffer.getTakenConversionNanos());
+
+		buffer.add(record(3), 100, 5);
+		List<SourceRecord> second = buffer.take();
+		assertEquals(1, second.size());
+		assertEquals(3, second.get(0).value());
+
+		// a list once taken belongs to the caller
+		buffer.add(record(4), 100, 5);
+		List<SourceRecord> third = buffer.take();
+		assertNotSame(first, third);
+		assertNotSame(second, third);
+		assertEquals(3, first.size());
+		assertEquals(1, second.size());
+		assertEquals(4, third.get(0).value());
+	}
+
+	@Test
+	public void testFullBatchDoesNotBlockProducer() throws InterruptedException {
+		final RecordBatchBuffer buffer = new RecordBatchBuffer(10, 1000);
+		final int total = 10000;
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i=0; i<total; i++) {
+					buffer.add(record(i), 200, 1);
+				}
+			}
+		});
+		producer.start();
+		// nothing is taken until the producer is done
+		producer.join(10000);
+		assertFalse(producer.isAlive());
+		assertTrue(buffer.isFull());
+
+		List<Object> out = new ArrayList<Object>(total);
+		while (buffer.await(0)) {
+			List<SourceRecord> batch = buffer.take();
+			// 5 records reach the byte limit before the record limit
+			assertTrue(batch.size() <= 5);
+			assertEquals(batch.size() * 200, buffer.getTakenBytes());
+			for (SourceRecord record : batch) {
+				out.add(record.value());
+			}
+		}
+		assertFalse(buffer.isFull());
+		assertEquals(total, out.size());
+		for (int i=0; i<total; i++) {
+			assertEquals(i, out.get(i));
+		}
+	}
+
+	@Test
+	public void testIsFull() throws InterruptedException {
+		RecordBatchBuffer buffer = new RecordBatchBuffer(2, 0);
+		buffer.add(record(0), 100, 5);
+		assertFalse(buffer.isFull());
+		buffer.add(record(1), 100, 5);
+		buffer.add(record(2), 100, 5);
+		assertTrue(buffer.isFull());
+		assertEquals(2, buffer.take().size());
+		// the batch left is not full yet
+		assertFalse(buffer.isFull());
+		assertEquals(1, buffer.take().size());
+	}
+
+	@Test
+	public void testMaxBatches() {
+		RecordBatchBuffer buffer = new RecordBatchBuffer(2, 0, 3);
+		for (int i=0; i<6; i++) {
+			assertFalse(buffer.add(record(i), 100, 5));
+		}
+		// a fourth batch is started, the caller should stop adding
+		assertTrue(buffer.add(record(6), 100, 5));
+		assertTrue(buffer.add(record(7), 100, 5));
+		assertEquals(4, buffer.batchCount());
+		// three full batches left, the next record starts a fourth
+		buffer.take();
+		assertTrue(buffer.add(record(8), 100, 5));
+		buffer.take();
+		assertFalse(buffer.add(record(9), 100, 5));
+	}
+
+	@Test
+	public void testWakeup() throws InterruptedException {
+		final RecordBatchBuffer buffer = new RecordBatchBuffer(10, 0);
+		buffer.wakeup();
+		long start = System.currentTimeMillis();
+		assertFalse(buffer.await(5000));
+		assertTrue(System.currentTimeMillis() - start < 4000);
+	}
+}
@@ -0,0 +1,53 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RecordKeyCacheTest {
+
+	@Test
+	public void testInterned() {
+		RecordKeyCache cache = new RecordKeyCache(TopicRouter.fromRoutes("prices/>:prices", "other", 10), "other", 10);
+		RecordKeyCache.Keys keys = cache.lookup("prices/eur", "sender1");
+		assertEquals("prices/eur_sender1", keys.getKey());
+		assertEquals("prices/eur_sender1", keys.getSourcePartition().get(RecordKeyCache.PARTITION_KEY));
+		assertEquals("prices", keys.getKafkaTopic());
+
+		// the same objects for every message from this destination and sender
+		assertSame(keys, cache.lookup("prices/eur", "sender1"));
+		assertSame(keys.getSourcePartition(), cache.lookup(new String("prices/eur"), new String("sender1")).getSourcePartition());
+
+		RecordKeyCache.Keys other = cache.lookup("prices/eur", "sender2");
+		assertNotSame(keys, other);
+		assertEquals("prices/eur_sender2", other.getKey());
+		assertEquals("prices/eur_null", cache.lookup("prices/eur", null).getKey());
+		assertEquals("other", cache.lookup("orders/1", null).getKafkaTopic());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testBounded() {
+		RecordKeyCache cache = new RecordKeyCache(null, "default_topic", 2);
+		RecordKeyCache.Keys a = cache.lookup("a", "s");
+		cache.lookup("b", "s");
+		// a was used last, so c evicts b
+		assertSame(a, cache.lookup("a", "s"));
+		cache.lookup("c", "s");
+		assertEquals(2, cache.size());
+		assertSame(a, cache.lookup("a", "s"));
+		assertEquals("default_topic", a.getKafkaTopic());
+
+		// senders beyond the limit still get the right key, they are just not kept
+		for (int i = 0; i < RecordKeyCache.MAX_SENDERS_PER_DESTINATION + 5; i++) {
+			assertEquals("d_"+i, cache.lookup("d", Integer.toString(i)).getKey());
+		}
+		String extra = Integer.toString(RecordKeyCache.MAX_SENDERS_PER_DESTINATION);
+		assertNotSame(cache.lookup("d", extra), cache.lookup("d", extra));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new RecordKeyCache(null, "default_topic", 0);
+	}
+}
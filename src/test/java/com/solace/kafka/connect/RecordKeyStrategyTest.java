@@ -0,0 +1,64 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.Charset;
+
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Schema;
+import org.junit.Test;
+
+public class RecordKeyStrategyTest {
+
+	@Test
+	public void testTopicLevel() {
+		assertEquals("prices", RecordKeyStrategy.topicLevel("prices/fx/eur", 0));
+		assertEquals("fx", RecordKeyStrategy.topicLevel("prices/fx/eur", 1));
+		assertEquals("eur", RecordKeyStrategy.topicLevel("prices/fx/eur", 2));
+		assertEquals("eur", RecordKeyStrategy.topicLevel("prices/fx/eur", -1));
+		assertEquals("prices", RecordKeyStrategy.topicLevel("prices/fx/eur", -3));
+		assertNull(RecordKeyStrategy.topicLevel("prices/fx/eur", 3));
+		assertNull(RecordKeyStrategy.topicLevel("prices/fx/eur", -4));
+		assertEquals("", RecordKeyStrategy.topicLevel("prices//eur", 1));
+		assertEquals("queue", RecordKeyStrategy.topicLevel("queue", 0));
+	}
+
+	@Test
+	public void testDestinationKeys() {
+		RecordKeyStrategy strategy = new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.TOPIC_LEVEL, null, 1, 0);
+		assertTrue(strategy.isPerDestination());
+		assertEquals("fx", strategy.destinationKey("prices/fx/eur", "sender1"));
+		assertEquals(Schema.OPTIONAL_STRING_SCHEMA, strategy.keySchema());
+
+		strategy = new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.DESTINATION, null, 0, 0);
+		assertEquals("prices/fx/eur", strategy.destinationKey("prices/fx/eur", "sender1"));
+		assertEquals(Schema.STRING_SCHEMA, strategy.keySchema());
+
+		strategy = new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.DESTINATION_SENDER, null, 0, 0);
+		assertEquals("prices/fx/eur_sender1", strategy.destinationKey("prices/fx/eur", "sender1"));
+
+		assertFalse(new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.CORRELATION_ID, null, 0, 0).isPerDestination());
+	}
+
+	@Test
+	public void testPartition() {
+		RecordKeyStrategy strategy = new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.DESTINATION, null, 0, 12);
+		// the same partition as Kafka's default partitioner would choose for the key
+		int expected = Utils.toPositive(Utils.murmur2("prices/fx/eur".getBytes(Charset.forName("UTF-8")))) % 12;
+		assertEquals(Integer.valueOf(expected), strategy.partition("prices/fx/eur"));
+		assertEquals(strategy.partition("prices/fx/eur"), strategy.partition(new String("prices/fx/eur")));
+
+		// records without a key go round-robin
+		int first = strategy.partition(null);
+		for (int i = 1; i < 24; i++) {
+			assertEquals(Integer.valueOf((first + i) % 12), strategy.partition(null));
+		}
+
+		assertNull(new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.DESTINATION, null, 0, 0).partition("prices/fx/eur"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUserPropertyNeedsName() {
+		new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.USER_PROPERTY, null, 0, 0);
+	}
+}
@@ -0,0 +1,87 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Test;
+
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.SDTException;
+import com.solacesystems.jcsmp.SDTMap;
+import com.solacesystems.jcsmp.SDTStream;
+
+public class SDTConverterTest {
+
+	private SDTMap sampleMap(String name, int count) throws SDTException {
+		SDTMap map = JCSMPFactory.onlyInstance().createMap();
+		map.putString("name", name);
+		map.putInteger("count", count);
+		map.putBoolean("flag", true);
+		map.putDouble("price", 1.5);
+		map.putBytes("raw", new byte[] {1, 2});
+		return map;
+	}
+
+	@Test
+	public void testFlatMap() throws SDTException {
+		SDTConverter converter = new SDTConverter();
+		Struct struct = converter.toStruct(sampleMap("a", 1), new StringBuilder());
+		struct.validate();
+
+		assertEquals("a", struct.get("name"));
+		assertEquals(1, struct.get("count"));
+		assertEquals(true, struct.get("flag"));
+		assertEquals(1.5, struct.get("price"));
+		assertArrayEquals(new byte[] {1, 2}, (byte[]) struct.get("raw"));
+		assertEquals(Schema.Type.INT32, struct.schema().field("count").schema().type());
+		// fields are sorted by name
+		assertEquals("count", struct.schema().fields().get(0).name());
+	}
+
+	@Test
+	public void testSchemaReused() throws SDTException {
+		SDTConverter converter = new SDTConverter();
+		StringBuilder sig1 = new StringBuilder();
+		StringBuilder sig2 = new StringBuilder();
+		Struct s1 = converter.toStruct(sampleMap("a", 1), sig1);
+		Struct s2 = converter.toStruct(sampleMap("b", 2), sig2);
+		assertSame(s1.schema(), s2.schema());
+		assertEquals(sig1.toString(), sig2.toString());
+		assertEquals(1, converter.getCachedSchemaCount());
+
+		SDTMap other = sampleMap("c", 3);
+		other.putLong("extra", 4L);
+		Struct s3 = converter.toStruct(other, new StringBuilder());
+		assertNotSame(s1.schema(), s3.schema());
+		assertEquals(2, converter.getCachedSchemaCount());
+	}
+
+	@Test
+	public void testNestedMapAndStream() throws SDTException {
+		SDTMap map = JCSMPFactory.onlyInstance().createMap();
+		map.putMap("inner", sampleMap("a", 1));
+		SDTStream numbers = JCSMPFactory.onlyInstance().createStream();
+		numbers.writeLong(1L);
+		numbers.writeLong(2L);
+		map.putStream("numbers", numbers);
+		SDTStream mixed = JCSMPFactory.onlyInstance().createStream();
+		mixed.writeLong(1L);
+		mixed.writeString("two");
+		map.putStream("mixed", mixed);
+
+		Struct struct = new SDTConverter().toStruct(map, new StringBuilder());
+		struct.validate();
+
+		assertEquals("a", struct.getStruct("inner").get("name"));
+		List<Object> numberList = struct.getArray("numbers");
+		assertEquals(2, numberList.size());
+		assertEquals(2L, numberList.get(1));
+		assertEquals(Schema.Type.INT64, struct.schema().field("numbers").schema().valueSchema().type());
+		List<Object> mixedList = struct.getArray("mixed");
+		assertEquals("1", mixedList.get(0));
+		assertEquals("two", mixedList.get(1));
+	}
+}
@@ -0,0 +1,312 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.solacesystems.jcsmp.BytesMessage;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.MapMessage;
+import com.solacesystems.jcsmp.SDTException;
+import com.solacesystems.jcsmp.SDTMap;
+import com.solacesystems.jcsmp.TextMessage;
+
+public class SolaceConverterTest {
+
+	private Map<String, String> config;
+
+	@Before
+	public void setup() {
+		config = new HashMap<String, String>();
+		config.put(SolaceConnectorConstants.SOLACE_TOPIC, "test/>");
+		config.put(SolaceConnectorConstants.KAFKA_TOPIC, "solace_topic");
+	}
+
+	private SolaceConverter converter() {
+		SolaceSourceTask task = new SolaceSourceTask();
+		task.setParameters(config);
+		return new SolaceConverter(task);
+	}
+
+	@Test
+	public void testStructText() {
+		SourceRecord record = converter().convertMessage(TestMessages.text("test/foo", "hello"));
+
+		assertEquals("solace_topic", record.topic());
+		Struct value = (Struct) record.value();
+		value.validate();
+		assertEquals("test/foo", value.get(SolaceConnectorConstants.FIELD_DESTINATION));
+		assertEquals("hello", value.get(SolaceConnectorConstants.FIELD_DATA_TEXT));
+		assertEquals(SolaceConnectorConstants.DataType.TEXT.getValue(), value.get(SolaceConnectorConstants.FIELD_DATA_TYPE));
+	}
+
+	@Test
+	public void testStructBytes() {
+		SourceRecord record = converter().convertMessage(TestMessages.bytes("test/foo", new byte[] {1, 2, 3}));
+
+		Struct value = (Struct) record.value();
+		value.validate();
+		assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) value.get(SolaceConnectorConstants.FIELD_DATA_BYTES));
+	}
+
+	@Test
+	public void testMapAndUserProperties() throws SDTException {
+		SolaceConverter converter = converter();
+
+		SDTMap payload = JCSMPFactory.onlyInstance().createMap();
+		payload.putString("symbol", "ABC");
+		payload.putDouble("price", 10.5);
+		MapMessage msg = TestMessages.map("test/foo", payload);
+		SDTMap properties = JCSMPFactory.onlyInstance().createMap();
+		properties.putString("region", "EU");
+		msg.setProperties(properties);
+
+		SourceRecord record = converter.convertMessage(msg);
+		Struct value = (Struct) record.value();
+		value.validate();
+		assertEquals(SolaceConnectorConstants.DataType.MAP.getValue(), value.get(SolaceConnectorConstants.FIELD_DATA_TYPE));
+		assertEquals("ABC", value.getStruct(SolaceConnectorConstants.FIELD_DATA_MAP).get("symbol"));
+		assertEquals("EU", value.getStruct(SolaceConnectorConstants.FIELD_USER_PROPERTIES).get("region"));
+
+		// the same shapes reuse the same schema
+		payload.putString("symbol", "DEF");
+		SourceRecord second = converter.convertMessage(TestMessages.map("test/foo", payload));
+		msg = TestMessages.map("test/foo", payload);
+		msg.setProperties(properties);
+		assertSame(record.valueSchema(), converter.convertMessage(msg).valueSchema());
+		assertNotSame(record.valueSchema(), second.valueSchema());
+	}
+
+	@Test
+	public void testRawMode() throws SDTException {
+		config.put(SolaceConnectorConstants.RECORD_MODE, "raw");
+		SolaceConverter converter = converter();
+
+		SourceRecord record = converter.convertMessage(TestMessages.text("test/foo", "hello"));
+		assertEquals(Schema.Type.BYTES, record.valueSchema().type());
+		assertArrayEquals("hello".getBytes(), (byte[]) record.value());
+
+		record = converter.convertMessage(TestMessages.bytes("test/foo", new byte[] {1, 2, 3}));
+		assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) record.value());
+
+		// a map is passed on in its SDT encoding, the whole attachment even if it was read before
+		SDTMap map = JCSMPFactory.onlyInstance().createMap();
+		map.putString("a", "b");
+		MapMessage msg = TestMessages.map("test/foo", map);
+		assertTrue(msg.hasAttachment());
+		msg.getAttachmentByteBuffer().get();
+		byte[] encoded = (byte[]) converter.convertMessage(msg).value();
+		assertEquals(msg.getAttachmentContentLength(), encoded.length);
+	}
+
+	@Test
+	public void testZeroCopy() {
+		config.put(SolaceConnectorConstants.RECORD_ZERO_COPY, "true");
+		SolaceConverter converter = converter();
+		byte[] data = new byte[] {1, 2, 3, 4, 5};
+
+		Struct value = (Struct) converter.convertMessage(TestMessages.bytes("test/foo", data)).value();
+		value.validate();
+		ByteBuffer payload = (ByteBuffer) value.get(SolaceConnectorConstants.FIELD_DATA_BYTES);
+		assertEquals(data.length, payload.remaining());
+		byte[] read = new byte[payload.remaining()];
+		payload.get(read);
+		assertArrayEquals(data, read);
+
+		config.put(SolaceConnectorConstants.RECORD_MODE, "raw");
+		payload = (ByteBuffer) converter().convertMessage(TestMessages.bytes("test/foo", data)).value();
+		assertEquals(data.length, payload.remaining());
+		assertEquals(3, payload.get(2));
+	}
+
+	@Test
+	public void testZeroCopyConverters() {
+		SolaceSourceTask.checkZeroCopyConverter("com.example.ByteBufferConverter");
+		for (String unsupported : new String[] {null, " ", "org.apache.kafka.connect.json.JsonConverter",
+				"org.apache.kafka.connect.converters.ByteArrayConverter", "org.apache.kafka.connect.storage.StringConverter"}) {
+			try {
+				SolaceSourceTask.checkZeroCopyConverter(unsupported);
+				fail("record.zero_copy accepted with value.converter "+unsupported);
+			} catch (ConnectException e) {
+				assertTrue(e.getMessage().contains(SolaceConnectorConstants.RECORD_ZERO_COPY));
+			}
+		}
+	}
+
+	/**
+	 * Why JsonConverter is rejected: a zero copy payload is a view which need not start at the beginning of its
+	 * backing array, and JsonConverter writes the whole array
+	 */
+	@Test
+	public void testZeroCopyBreaksJsonConverter() {
+		config.put(SolaceConnectorConstants.RECORD_MODE, "raw");
+		config.put(SolaceConnectorConstants.RECORD_ZERO_COPY, "true");
+		SourceRecord record = converter().convertMessage(TestMessages.bytes("test/foo", new byte[] {1, 2, 3}));
+		ByteBuffer view = ByteBuffer.wrap(new byte[] {9, 1, 2, 3, 9}, 1, 3).slice();
+		assertEquals(((ByteBuffer) record.value()).remaining(), view.remaining());
+
+		JsonConverter json = new JsonConverter();
+		json.configure(Collections.<String, Object>emptyMap(), false);
+		byte[] written = json.fromConnectData("solace_topic", record.valueSchema(), view);
+		byte[] read = (byte[]) json.toConnectData("solace_topic", written).value();
+		assertEquals(5, read.length);
+		assertFalse(Arrays.equals(new byte[] {1, 2, 3}, read));
+	}
+
+	@Test
+	public void testFieldProjection() {
+		config.put(SolaceConnectorConstants.RECORD_FIELDS, "SenderTimestamp, Destination,Destination");
+		SolaceConverter converter = converter();
+
+		Schema schema = converter.getValueSchema();
+		assertEquals(SolaceConnectorConstants.FIELD_DESTINATION, schema.fields().get(0).name());
+		assertEquals(SolaceConnectorConstants.FIELD_SENDER_TIMESTAMP, schema.fields().get(1).name());
+		assertNull(schema.field(SolaceConnectorConstants.FIELD_CACHE_REQUEST_ID));
+		assertNotNull(schema.field(SolaceConnectorConstants.FIELD_DATA_TEXT));
+
+		Struct value = (Struct) converter.convertMessage(TestMessages.text("test/foo", "hello")).value();
+		value.validate();
+		assertEquals("test/foo", value.get(SolaceConnectorConstants.FIELD_DESTINATION));
+		assertEquals("hello", value.get(SolaceConnectorConstants.FIELD_DATA_TEXT));
+	}
+
+	@Test(expected = ConnectException.class)
+	public void testUnknownField() {
+		config.put(SolaceConnectorConstants.RECORD_FIELDS, "Destination,NoSuchField");
+		converter();
+	}
+
+	@Test
+	public void testRouting() {
+		config.put(SolaceConnectorConstants.KAFKA_TOPIC_ROUTES, "test/a/>:topic_a");
+		SolaceSourceTask task = new SolaceSourceTask();
+		task.setParameters(config);
+		task.topicRouter = TopicRouter.fromRoutes(task.kafkaTopicRoutes, task.kafkaTopicName, 10);
+		SolaceConverter converter = new SolaceConverter(task);
+
+		assertEquals("topic_a", converter.convertMessage(TestMessages.text("test/a/b", "x")).topic());
+		assertEquals("solace_topic", converter.convertMessage(TestMessages.text("test/b/b", "x")).topic());
+	}
+
+	@Test
+	public void testPayloadDecoders() throws SDTException {
+		config.put(SolaceConnectorConstants.PAYLOAD_DECODERS, "application/json:com.solace.kafka.connect.JsonPayloadDecoder");
+		config.put(SolaceConnectorConstants.PAYLOAD_CONTENT_TYPE_PROPERTY, "contentType");
+		SolaceSourceTask task = new SolaceSourceTask();
+		task.setParameters(config);
+		task.payloadDecoderRegistry = PayloadDecoderRegistry.fromConfig(task.payloadDecoders, config);
+		SolaceConverter converter = new SolaceConverter(task);
+
+		BytesMessage msg = TestMessages.bytes("test/foo", "{\"price\":10.5}".getBytes());
+		msg.setHTTPContentType("application/json; charset=utf-8");
+		Struct value = (Struct) converter.convertMessage(msg).value();
+		value.validate();
+		assertEquals(10.5, value.getStruct(SolaceConnectorConstants.FIELD_DATA_DECODED).get("price"));
+		assertNull(value.get(SolaceConnectorConstants.FIELD_DATA_BYTES));
+
+		// content type from a user property
+		TextMessage text = TestMessages.text("test/foo", "{\"price\":11.5}");
+		SDTMap properties = JCSMPFactory.onlyInstance().createMap();
+		properties.putString("contentType", "application/json");
+		text.setProperties(properties);
+		value = (Struct) converter.convertMessage(text).value();
+		value.validate();
+		assertEquals(11.5, value.getStruct(SolaceConnectorConstants.FIELD_DATA_DECODED).get("price"));
+		assertEquals(SolaceConnectorConstants.DataType.TEXT.getValue(), value.get(SolaceConnectorConstants.FIELD_DATA_TYPE));
+
+		// undecodable payloads are passed on as they are
+		text = TestMessages.text("test/foo", "not json");
+		text.setProperties(properties);
+		value = (Struct) converter.convertMessage(text).value();
+		value.validate();
+		assertEquals("not json", value.get(SolaceConnectorConstants.FIELD_DATA_TEXT));
+		assertNull(value.get(SolaceConnectorConstants.FIELD_DATA_DECODED));
+
+		task.recordMode = SolaceConnectorConstants.RecordMode.RAW;
+		converter = new SolaceConverter(task);
+		SourceRecord record = converter.convertMessage(msg);
+		assertEquals(Schema.Type.STRUCT, record.valueSchema().type());
+		assertEquals(10.5, ((Struct) record.value()).get("price"));
+	}
+
+	@Test
+	public void testKeyStrategies() throws SDTException {
+		SourceRecord record = converter().convertMessage(TestMessages.text("test/foo", "hello"));
+		assertEquals("test/foo_null", record.key());
+		assertNull(record.kafkaPartition());
+
+		config.put(SolaceConnectorConstants.RECORD_KEY, SolaceConnectorConstants.KeyStrategy.TOPIC_LEVEL.getValue());
+		config.put(SolaceConnectorConstants.RECORD_KEY_TOPIC_LEVEL, "-1");
+		config.put(SolaceConnectorConstants.RECORD_PARTITIONS, "8");
+		SolaceConverter converter = converter();
+		record = converter.convertMessage(TestMessages.text("test/foo", "hello"));
+		assertEquals("foo", record.key());
+		assertEquals(new RecordKeyStrategy(SolaceConnectorConstants.KeyStrategy.DESTINATION, null, 0, 8).partition("foo"),
+				record.kafkaPartition());
+		assertEquals(record.kafkaPartition(), converter.convertMessage(TestMessages.text("test/foo", "again")).kafkaPartition());
+
+		config.put(SolaceConnectorConstants.RECORD_KEY, SolaceConnectorConstants.KeyStrategy.USER_PROPERTY.getValue());
+		config.put(SolaceConnectorConstants.RECORD_KEY_PROPERTY, "account");
+		config.remove(SolaceConnectorConstants.RECORD_PARTITIONS);
+		TextMessage text = TestMessages.text("test/foo", "hello");
+		SDTMap properties = JCSMPFactory.onlyInstance().createMap();
+		properties.putLong("account", 42L);
+		text.setProperties(properties);
+		converter = converter();
+		assertEquals("42", converter.convertMessage(text).key());
+		record = converter.convertMessage(TestMessages.text("test/foo", "no property"));
+		assertNull(record.key());
+		assertEquals(Schema.OPTIONAL_STRING_SCHEMA, record.keySchema());
+
+		config.put(SolaceConnectorConstants.RECORD_KEY, SolaceConnectorConstants.KeyStrategy.CORRELATION_ID.getValue());
+		text = TestMessages.text("test/foo", "hello");
+		text.setCorrelationId("request-1");
+		assertEquals("request-1", converter().convertMessage(text).key());
+	}
+
+	@Test(expected = ConnectException.class)
+	public void testUserPropertyKeyNeedsName() {
+		config.put(SolaceConnectorConstants.RECORD_KEY, SolaceConnectorConstants.KeyStrategy.USER_PROPERTY.getValue());
+		converter();
+	}
+
+	@Test
+	public void testRecordTimestamp() {
+		TextMessage msg = JCSMPFactory.onlyInstance().createMessage(TextMessage.class);
+		msg.setText("hello");
+		msg.setSenderTimestamp(1000L);
+		Map<String, Object> overrides = new HashMap<String, Object>();
+		overrides.put("getDestination", JCSMPFactory.onlyInstance().createTopic("test/foo"));
+		overrides.put("getReceiveTimestamp", 2000L);
+		TextMessage received = TestMessages.override(TextMessage.class, msg, overrides);
+
+		assertNull(converter().convertMessage(received).timestamp());
+
+		config.put(SolaceConnectorConstants.RECORD_TIMESTAMP, SolaceConnectorConstants.TimestampSource.SENDER.getValue());
+		SolaceConverter converter = converter();
+		assertEquals(Long.valueOf(1000L), converter.convertMessage(received).timestamp());
+		// without a sender timestamp the receive time is used
+		overrides.put("getSenderTimestamp", null);
+		assertEquals(Long.valueOf(2000L), converter.convertMessage(received).timestamp());
+
+		config.put(SolaceConnectorConstants.RECORD_TIMESTAMP, SolaceConnectorConstants.TimestampSource.RECEIVE.getValue());
+		converter = converter();
+		assertEquals(Long.valueOf(2000L), converter.convertMessage(received).timestamp());
+		// and without that the time of conversion
+		overrides.put("getReceiveTimestamp", 0L);
+		long before = System.currentTimeMillis();
+		assertTrue(converter.convertMessage(received).timestamp() >= before);
+	}
+}
@@ -0,0 +1,120 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SolaceSourceConnectorTest {
+
+	private Map<String, String> props;
+
+	@Before
+	public void setup() {
+		props = new HashMap<String, String>();
+		props.put("name", "solace-source");
+		props.put(SolaceConnectorConstants.SOLACE_TOPIC, "a/>, b/*/c ,d,e");
+	}
+
+	private Set<String> allTopics(List<Map<String, String>> configs) {
+		Set<String> topics = new HashSet<String>();
+		for (Map<String, String> config : configs) {
+			topics.addAll(SolaceConfigDef.splitList(config.get(SolaceConnectorConstants.SOLACE_TOPIC)));
+		}
+		return topics;
+	}
+
+	@Test
+	public void testPartitionedIsDefault() {
+		SolaceSourceConnector connector = new SolaceSourceConnector();
+		connector.start(props);
+		List<Map<String, String>> configs = connector.taskConfigs(2);
+
+		assertEquals(2, configs.size());
+		assertEquals(2, SolaceConfigDef.splitList(configs.get(0).get(SolaceConnectorConstants.SOLACE_TOPIC)).size());
+		assertEquals(2, SolaceConfigDef.splitList(configs.get(1).get(SolaceConnectorConstants.SOLACE_TOPIC)).size());
+		// every topic is subscribed by exactly one task
+		assertEquals(4, allTopics(configs).size());
+		assertTrue(allTopics(configs).contains("b/*/c"));
+		assertFalse(configs.get(0).get(SolaceConnectorConstants.CONNECTOR_INSTANCE)
+				.equals(configs.get(1).get(SolaceConnectorConstants.CONNECTOR_INSTANCE)));
+	}
+
+	@Test
+	public void testPartitionedFewerTopicsThanTasks() {
+		SolaceSourceConnector connector = new SolaceSourceConnector();
+		connector.start(props);
+		List<Map<String, String>> configs = connector.taskConfigs(10);
+		assertEquals(4, configs.size());
+		assertEquals(4, allTopics(configs).size());
+	}
+
+	@Test
+	public void testQueueWithoutTopics() {
+		props.remove(SolaceConnectorConstants.SOLACE_TOPIC);
+		props.put(SolaceConnectorConstants.SOLACE_QUEUE, "kafka");
+		SolaceSourceConnector connector = new SolaceSourceConnector();
+		connector.start(props);
+		List<Map<String, String>> configs = connector.taskConfigs(3);
+		assertEquals(3, configs.size());
+		assertFalse(configs.get(0).containsKey(SolaceConnectorConstants.SOLACE_TOPIC));
+		assertEquals("kafka", configs.get(2).get(SolaceConnectorConstants.SOLACE_QUEUE));
+	}
+
+	@Test
+	public void testResumeOffsetsNeedsOneTask() {
+		props.put(SolaceConnectorConstants.SOLACE_QUEUE, "kafka");
+		props.put(SolaceConnectorConstants.OFFSETS_RESUME, "true");
+		SolaceSourceConnector connector = new SolaceSourceConnector();
+		connector.start(props);
+		assertEquals(1, connector.taskConfigs(1).size());
+		try {
+			// two tasks on one queue would share its source partition
+			connector.taskConfigs(2);
+			fail("offsets.resume accepted with two tasks");
+		} catch (ConnectException e) {
+			assertTrue(e.getMessage().contains(SolaceConnectorConstants.OFFSETS_RESUME));
+		}
+	}
+
+	@Test(expected = ConnectException.class)
+	public void testNoTopics() {
+		props.put(SolaceConnectorConstants.SOLACE_TOPIC, " , ");
+		new SolaceSourceConnector().start(props);
+	}
+
+	@Test
+	public void testShared() {
+		props.put(SolaceConnectorConstants.SOLACE_SUBSCRIPTION_MODE, "shared");
+		SolaceSourceConnector connector = new SolaceSourceConnector();
+		connector.start(props);
+		List<Map<String, String>> configs = connector.taskConfigs(3);
+
+		assertEquals(3, configs.size());
+		for (Map<String, String> config : configs) {
+			List<String> topics = SolaceConfigDef.splitList(config.get(SolaceConnectorConstants.SOLACE_TOPIC));
+			assertEquals(4, topics.size());
+			assertEquals("#share/solace-source/a/>", topics.get(0));
+		}
+	}
+
+	@Test
+	public void testHAReplicates() {
+		props.put(SolaceConnectorConstants.SOLACE_HA_QUEUE, "ha_queue");
+		SolaceSourceConnector connector = new SolaceSourceConnector();
+		connector.start(props);
+		List<Map<String, String>> configs = connector.taskConfigs(2);
+
+		assertEquals(2, configs.size());
+		for (Map<String, String> config : configs) {
+			assertEquals(props.get(SolaceConnectorConstants.SOLACE_TOPIC), config.get(SolaceConnectorConstants.SOLACE_TOPIC));
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import javax.management.ObjectName;
+
+import org.apache.kafka.common.metrics.MetricsReporter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SolaceSourceTaskMetricsTest {
+
+	private SolaceSourceTaskMetrics metrics;
+
+	@Before
+	public void setup() {
+		metrics = new SolaceSourceTaskMetrics("test", "test_0", 100, Collections.<MetricsReporter>emptyList());
+	}
+
+	@After
+	public void tearDown() {
+		metrics.close();
+	}
+
+	@Test
+	public void testRecordPoll() {
+		metrics.recordPoll(10, 1000, 2000000, 50000);
+		metrics.recordPoll(0, 0, 4000000, 0);
+		metrics.recordPoll(30, 3000, 0, 30000);
+
+		assertEquals(40, metrics.value("messages-received-total"), 0);
+		assertEquals(4000, metrics.value("bytes-received-total"), 0);
+		assertEquals(30, metrics.value("records-per-poll-max"), 0);
+		assertEquals(40.0/3, metrics.value("records-per-poll-avg"), 0.001);
+		assertEquals(2, metrics.value("receive-blocked-time-avg-ms"), 0.001);
+		assertEquals(4, metrics.value("receive-blocked-time-max-ms"), 0.001);
+		// 5us and 1us per message
+		assertEquals(5, metrics.value("conversion-time-max-us"), 0.001);
+		assertEquals(3, metrics.value("conversion-time-avg-us"), 0.001);
+		assertTrue(metrics.value("records-per-poll-p99") > 10);
+		assertTrue(Double.isNaN(metrics.value("ha-active")));
+	}
+
+	@Test
+	public void testLatency() throws Exception {
+		LatencyTracker tracker = new LatencyTracker("test_0", 1);
+		metrics.addLatency(tracker);
+		long now = System.currentTimeMillis();
+		SolaceSourceRecord record = new SolaceSourceRecord(null, null, null, "topic", null, null, null, null);
+		tracker.converted(record, now - 20, now - 5);
+		record.setPolledNanos(System.nanoTime());
+		tracker.committed(record);
+		// not polled, so only the first stages are measured
+		tracker.converted(new SolaceSourceRecord(null, null, null, "topic", null, null, null, null), null, now - 5);
+		Thread.sleep(2);
+		tracker.rotate(System.currentTimeMillis());
+
+		assertEquals(1, metrics.value("latency-end-to-end-count"), 0);
+		assertEquals(1, metrics.value("latency-solace-count"), 0);
+		assertEquals(2, metrics.value("latency-buffer-count"), 0);
+		// 15ms from sender to receive, to within a bucket
+		assertEquals(15000, metrics.value("latency-solace-p50-us"), 15000 / LatencyHistogram.SUB_BUCKETS);
+		assertTrue(metrics.value("latency-end-to-end-max-us") >= 20000);
+		assertTrue(metrics.value("latency-kafka-p999-us") >= 0);
+	}
+
+	@Test
+	public void testJmxRegistration() throws Exception {
+		// task 0 of two connectors in the same worker
+		SolaceSourceTaskMetrics jmx = new SolaceSourceTaskMetrics("orders", "test_jmx_0", 100);
+		SolaceSourceTaskMetrics other = new SolaceSourceTaskMetrics("prices", "test_jmx_0", 100);
+		try {
+			jmx.recordPoll(1, 10, 0, 0);
+			other.recordPoll(2, 20, 0, 0);
+			assertEquals(1.0, ManagementFactory.getPlatformMBeanServer()
+					.getAttribute(mbean("orders", "test_jmx_0"), "messages-received-total"));
+			assertEquals(2.0, ManagementFactory.getPlatformMBeanServer()
+					.getAttribute(mbean("prices", "test_jmx_0"), "messages-received-total"));
+		} finally {
+			jmx.close();
+			other.close();
+		}
+	}
+
+	private static ObjectName mbean(String connector, String instance) throws Exception {
+		return new ObjectName(SolaceSourceTaskMetrics.JMX_PREFIX+":type="+SolaceSourceTaskMetrics.GROUP
+				+","+SolaceSourceTaskMetrics.CONNECTOR_TAG+"="+connector+","+SolaceSourceTaskMetrics.INSTANCE_TAG+"="+instance);
+	}
+}
@@ -0,0 +1,73 @@
+package com.solace.kafka.connect;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.solacesystems.jcsmp.BytesMessage;
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.MapMessage;
+import com.solacesystems.jcsmp.SDTMap;
+import com.solacesystems.jcsmp.TextMessage;
+
+/**
+ * Builds messages as if they had been received from a router, without needing one.
+ * 
+ * Messages created by JCSMPFactory have no destination and no receive information, so they are
+ * wrapped in a proxy which answers those getters and delegates everything else.
+ */
+public class TestMessages {
+
+	public static TextMessage text(String destination, String text) {
+		TextMessage msg = JCSMPFactory.onlyInstance().createMessage(TextMessage.class);
+		msg.setText(text);
+		return received(TextMessage.class, msg, destination);
+	}
+
+	public static BytesMessage bytes(String destination, byte[] data) {
+		BytesMessage msg = JCSMPFactory.onlyInstance().createMessage(BytesMessage.class);
+		msg.setData(data);
+		return received(BytesMessage.class, msg, destination);
+	}
+
+	public static MapMessage map(String destination, SDTMap map) {
+		MapMessage msg = JCSMPFactory.onlyInstance().createMessage(MapMessage.class);
+		msg.setMap(map);
+		return received(MapMessage.class, msg, destination);
+	}
+
+	/**
+	 * Wrap a message so that it reports the given destination and a receive timestamp.
+	 */
+	public static <T extends BytesXMLMessage> T received(Class<T> type, T msg, String destination) {
+		Map<String, Object> overrides = new HashMap<String, Object>();
+		overrides.put("getDestination", JCSMPFactory.onlyInstance().createTopic(destination));
+		overrides.put("getReceiveTimestamp", System.currentTimeMillis());
+		return override(type, msg, overrides);
+	}
+
+	/**
+	 * Wrap a message so that the named no-argument getters return fixed values.
+	 */
+	public static <T extends BytesXMLMessage> T override(Class<T> type, final T msg, final Map<String, Object> overrides) {
+		return type.cast(Proxy.newProxyInstance(TestMessages.class.getClassLoader(),
+				new Class<?>[] { type },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ((args == null || args.length == 0) && overrides.containsKey(method.getName())) {
+							return overrides.get(method.getName());
+						}
+						try {
+							return method.invoke(msg, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				}));
+	}
+}
@@ -0,0 +1,71 @@
+package com.solace.kafka.connect;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TopicRouterTest {
+
+	@Test
+	public void testLiteralAndDefault() {
+		TopicRouter router = TopicRouter.fromRoutes("a/b:ab", "default_topic", 10);
+		assertEquals("ab", router.route("a/b"));
+		assertEquals("default_topic", router.route("a/b/c"));
+		assertEquals("default_topic", router.route("a"));
+	}
+
+	@Test
+	public void testSingleLevelWildcards() {
+		TopicRouter router = TopicRouter.fromRoutes("prices/*/eur:eur, orders/uk*/new : uk_orders", "other", 10);
+		assertEquals("eur", router.route("prices/fx/eur"));
+		assertEquals("other", router.route("prices/fx/usd"));
+		assertEquals("other", router.route("prices/fx/x/eur"));
+		assertEquals("uk_orders", router.route("orders/uk/new"));
+		assertEquals("uk_orders", router.route("orders/ukwest/new"));
+		assertEquals("other", router.route("orders/us/new"));
+	}
+
+	@Test
+	public void testRemainingLevels() {
+		TopicRouter router = TopicRouter.fromRoutes("test/>:test", "other", 10);
+		assertEquals("test", router.route("test/foo"));
+		assertEquals("test", router.route("test/foo/bar/baz"));
+		// '>' must match at least one level
+		assertEquals("other", router.route("test"));
+	}
+
+	@Test
+	public void testFirstRouteWins() {
+		TopicRouter router = TopicRouter.fromRoutes("a/*/c:first,a/>:second,a/b/c:third", "other", 10);
+		assertEquals("first", router.route("a/b/c"));
+		assertEquals("second", router.route("a/b/d"));
+	}
+
+	@Test
+	public void testCacheEviction() {
+		TopicRouter router = TopicRouter.fromRoutes("a/>:a", "other", 2);
+		for (int i=0; i<100; i++) {
+			assertEquals("a", router.route("a/"+i));
+			assertEquals("other", router.route("b/"+i));
+			assertEquals(2, router.cachedCount());
+		}
+
+		// least recently used goes first
+		router.route("x");
+		router.route("y");
+		router.route("x");
+		router.route("z");
+		assertTrue(router.isCached("x"));
+		assertTrue(router.isCached("z"));
+		assertFalse(router.isCached("y"));
+		// and is resolved again when it comes back
+		assertEquals("other", router.route("y"));
+		assertTrue(router.isCached("y"));
+		assertFalse(router.isCached("x"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRoute() {
+		TopicRouter.fromRoutes("a/b", "other", 10);
+	}
+}